@@ -1,6 +1,16 @@
 package oop.finance;
 
+import com.google.gson.reflect.TypeToken;
 import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import oop.finance.model.NotificationRule;
 import oop.finance.presentation.AuthHandler;
 import oop.finance.presentation.BudgetHandler;
 import oop.finance.presentation.ConsoleUI;
@@ -8,24 +18,35 @@ import oop.finance.presentation.ReportsHandler;
 import oop.finance.presentation.StatisticsHandler;
 import oop.finance.presentation.TransactionHandler;
 import oop.finance.repository.UserRepository;
+import oop.finance.repository.storage.BackgroundPersister;
+import oop.finance.repository.storage.ShardedUserStorage;
+import oop.finance.repository.storage.SnapshotUserStorage;
+import oop.finance.repository.storage.UserStorage;
+import oop.finance.repository.storage.format.BinarySnapshotFormat;
 import oop.finance.service.AuthService;
 import oop.finance.service.BudgetService;
 import oop.finance.service.FinanceService;
 import oop.finance.service.NotificationService;
 import oop.finance.service.ReportService;
+import oop.finance.service.notification.ConsoleNotificationSink;
+import oop.finance.service.notification.FileNotificationSink;
+import oop.finance.service.notification.NotificationDispatcher;
+import oop.finance.service.notification.NotificationSink;
+import oop.finance.service.notification.SocketNotificationSink;
 import oop.finance.utils.ConfigReader;
+import oop.finance.utils.JsonUtils;
 
 public class Main {
   private static final ConfigReader CONFIG_READER = new ConfigReader();
 
   public static void main(String[] args) {
     loadConfig();
-    String userRepoPath = CONFIG_READER.getProperties().getProperty("users.src");
-    UserRepository userRepository = new UserRepository(userRepoPath);
+    UserRepository userRepository =
+        new UserRepository(createUserStorage(), createBackgroundPersister());
     AuthService authService = new AuthService(userRepository);
-    FinanceService financeService = new FinanceService();
+    FinanceService financeService = createFinanceService();
     BudgetService budgetService = new BudgetService();
-    NotificationService notificationService = new NotificationService(financeService);
+    NotificationService notificationService = createNotificationService();
     ReportService reportService = new ReportService();
 
     AuthHandler authHandler = new AuthHandler(authService);
@@ -48,6 +69,151 @@ public class Main {
     ui.start();
   }
 
+  // Создает хранилище пользователей согласно настройке users.storage (json, binary или sharded)
+  private static UserStorage createUserStorage() {
+    Properties properties = CONFIG_READER.getProperties();
+    String storage = properties.getProperty("users.storage", "json");
+    String userRepoPath = properties.getProperty("users.src");
+
+    if ("sharded".equals(storage)) {
+      return new ShardedUserStorage(properties.getProperty("users.shards"), userRepoPath);
+    }
+
+    int compactionThreshold =
+        Integer.parseInt(
+            properties.getProperty(
+                "users.journal.compaction",
+                String.valueOf(SnapshotUserStorage.DEFAULT_COMPACTION_THRESHOLD)));
+    if ("binary".equals(storage)) {
+      return new SnapshotUserStorage(
+          properties.getProperty("users.binary"), new BinarySnapshotFormat(), compactionThreshold);
+    }
+    return new SnapshotUserStorage(userRepoPath, compactionThreshold);
+  }
+
+  // Создает фоновую запись на диск, если она включена настройкой persistence.async
+  private static BackgroundPersister createBackgroundPersister() {
+    Properties properties = CONFIG_READER.getProperties();
+    if (!Boolean.parseBoolean(properties.getProperty("persistence.async"))) {
+      return null;
+    }
+
+    BackgroundPersister persister =
+        new BackgroundPersister(
+            Long.parseLong(
+                properties.getProperty(
+                    "persistence.flushInterval",
+                    String.valueOf(BackgroundPersister.DEFAULT_FLUSH_INTERVAL_MILLIS))),
+            Long.parseLong(
+                properties.getProperty(
+                    "persistence.maxLatency",
+                    String.valueOf(BackgroundPersister.DEFAULT_MAX_LATENCY_MILLIS))));
+    // при завершении работы дописываем все отложенные изменения
+    Runtime.getRuntime().addShutdownHook(new Thread(persister::close));
+    return persister;
+  }
+
+  // Создает сервис статистики с порогом параллельного подсчета statistics.parallelThreshold и
+  // размером кэша результатов statistics.cacheSize
+  private static FinanceService createFinanceService() {
+    Properties properties = CONFIG_READER.getProperties();
+    return new FinanceService(
+        Integer.parseInt(
+            properties.getProperty(
+                "statistics.parallelThreshold",
+                String.valueOf(FinanceService.DEFAULT_PARALLEL_THRESHOLD))),
+        Integer.parseInt(
+            properties.getProperty(
+                "statistics.cacheSize", String.valueOf(FinanceService.DEFAULT_CACHE_SIZE))));
+  }
+
+  // Создает сервис уведомлений. Если в notifications.sinks перечислены получатели (console, file,
+  // socket), уведомления доставляются им в фоне, иначе показываются в меню. Собственные правила
+  // пользователей читаются из файла notifications.rules
+  private static NotificationService createNotificationService() {
+    Properties properties = CONFIG_READER.getProperties();
+    List<NotificationSink> sinks = new ArrayList<>();
+    for (String name : properties.getProperty("notifications.sinks", "").split(",")) {
+      NotificationSink sink = createNotificationSink(properties, name.trim());
+      if (sink != null) {
+        sinks.add(sink);
+      }
+    }
+    NotificationService notificationService =
+        sinks.isEmpty()
+            ? new NotificationService()
+            : new NotificationService(createNotificationDispatcher(properties, sinks));
+    loadNotificationRules(notificationService, properties.getProperty("notifications.rules"));
+    return notificationService;
+  }
+
+  private static NotificationDispatcher createNotificationDispatcher(
+      Properties properties, List<NotificationSink> sinks) {
+    NotificationDispatcher dispatcher =
+        new NotificationDispatcher(
+            sinks,
+            Integer.parseInt(
+                properties.getProperty(
+                    "notifications.queueSize",
+                    String.valueOf(NotificationDispatcher.DEFAULT_QUEUE_CAPACITY))),
+            NotificationDispatcher.Backpressure.valueOf(
+                properties
+                    .getProperty("notifications.backpressure", "drop_oldest")
+                    .toUpperCase(Locale.ROOT)),
+            Long.parseLong(
+                properties.getProperty(
+                    "notifications.coalesceWindow",
+                    String.valueOf(NotificationDispatcher.DEFAULT_COALESCE_WINDOW_MILLIS))),
+            Integer.parseInt(
+                properties.getProperty(
+                    "notifications.batchSize",
+                    String.valueOf(NotificationDispatcher.DEFAULT_BATCH_SIZE))));
+    // при завершении работы доставляем уже принятые уведомления
+    Runtime.getRuntime().addShutdownHook(new Thread(dispatcher::close));
+    return dispatcher;
+  }
+
+  // Загружает собственные правила уведомлений пользователей из JSON вида {логин: [правила]}
+  private static void loadNotificationRules(NotificationService notificationService, String path) {
+    if (path == null || !Files.exists(Path.of(path))) {
+      return;
+    }
+    try {
+      Type rulesType =
+          new TypeToken<Map<String, List<NotificationRule>>>() {
+            // комментарий для скипа формата данной строки
+          }.getType();
+      Map<String, List<NotificationRule>> rules = new JsonUtils().readFromJSON(path, rulesType);
+      rules.forEach(notificationService::setRules);
+    } catch (RuntimeException error) {
+      System.out.println("Ошибка чтения правил уведомлений: " + error.getMessage());
+    }
+  }
+
+  private static NotificationSink createNotificationSink(Properties properties, String name) {
+    switch (name) {
+      case "console":
+        return new ConsoleNotificationSink();
+      case "file":
+        try {
+          return new FileNotificationSink(
+              Path.of(properties.getProperty("notifications.file", "notifications.log")));
+        } catch (IOException error) {
+          System.out.println("Ошибка открытия файла уведомлений: " + error.getMessage());
+          return null;
+        }
+      case "socket":
+        String[] address = properties.getProperty("notifications.socket", "").split(":");
+        if (address.length != 2) {
+          System.out.println("Некорректный адрес notifications.socket!");
+          return null;
+        }
+        return new SocketNotificationSink(address[0], Integer.parseInt(address[1]));
+      default:
+        return null;
+    }
+  }
+
   public static void loadConfig() {
     try {
       CONFIG_READER.load();
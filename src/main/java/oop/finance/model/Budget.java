@@ -1,14 +1,27 @@
 package oop.finance.model;
 
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.LongToDoubleFunction;
 import oop.finance.constants.BaseConstants;
 import oop.finance.exception.InvalidCredentialsException;
 import oop.finance.model.base.BaseEntity;
 
-/** Модель бюджета */
+/**
+ * Модель бюджета. Бюджет без периода учитывает все расходы категории, а периодический (месяц,
+ * неделя или скользящие N дней) - только расходы текущего периода, которые хранятся по дням в
+ * кольцевом буфере SpendingWindow. Текущий день определяется по часам бюджета (по умолчанию -
+ * системным)
+ */
 public class Budget extends BaseEntity {
   private String category;
   private double limit;
   private double spent;
+  // период бюджета; null - бюджет на все время
+  private BudgetPeriod period;
+  private transient SpendingWindow window;
+  private transient Clock clock = Clock.systemDefaultZone();
 
   public Budget(String category, double limit) {
     validateLimit(limit);
@@ -26,6 +39,42 @@ public class Budget extends BaseEntity {
     this.spent = spent;
   }
 
+  public Budget(String category, double limit, BudgetPeriod period) {
+    this(category, limit, 0, period);
+  }
+
+  public Budget(String category, double limit, double spent, BudgetPeriod period) {
+    this(category, limit, spent);
+    setPeriod(period);
+  }
+
+  // Бюджет на период с заданными часами (например, фиксированными в тестах)
+  public Budget(String category, double limit, BudgetPeriod period, Clock clock) {
+    this(category, limit, 0);
+    this.clock = clock;
+    setPeriod(period);
+  }
+
+  public Budget(String id, LocalDateTime createdAt, String category, double limit, double spent) {
+    this(id, createdAt, category, limit, spent, null);
+  }
+
+  public Budget(
+      String id,
+      LocalDateTime createdAt,
+      String category,
+      double limit,
+      double spent,
+      BudgetPeriod period) {
+    super(id, createdAt);
+    validateLimit(limit);
+
+    this.category = category;
+    this.limit = limit;
+    this.spent = spent;
+    setPeriod(period);
+  }
+
   // Валидация лимита
   public void validateLimit(double newLimit) {
     if (newLimit < 0) {
@@ -35,22 +84,48 @@ public class Budget extends BaseEntity {
 
   // Добавление трат
   public void addExpense(double amount) {
+    addExpense(amount, today());
+  }
+
+  // Добавление трат за день day (номер дня от эпохи)
+  public void addExpense(double amount, long day) {
     spent += amount;
+    if (window != null) {
+      window.add(day, amount);
+    }
+  }
+
+  // Заполняет расходы текущего периода по дням из истории: expensesOfDay возвращает расходы
+  // категории за день. Расходы будущих дат в пределах длины периода откладываются до их дня.
+  // Стоимость зависит только от длины периода
+  public void fillPeriod(LongToDoubleFunction expensesOfDay) {
+    if (window == null) {
+      return;
+    }
+    long today = today();
+    window.reset(today);
+    long lastDay = today + period.getMaxDays() - 1;
+    for (long day = period.startOf(today); day <= lastDay; day++) {
+      double amount = expensesOfDay.applyAsDouble(day);
+      if (amount != 0) {
+        window.add(day, amount);
+      }
+    }
   }
 
   // Превышен ли лимит
   public boolean isExceeded() {
-    return spent > limit;
+    return getSpent() > limit;
   }
 
   // Получение остатка
   public double getRemaining() {
-    return limit - spent;
+    return limit - getSpent();
   }
 
   // Получение процента расхода
   public double getUsagePercentage() {
-    return limit > 0 ? (spent / limit) * BaseConstants.MAX_PERCENT : 0;
+    return limit > 0 ? (getSpent() / limit) * BaseConstants.MAX_PERCENT : 0;
   }
 
   // Геттеры и сеттеры
@@ -72,12 +147,38 @@ public class Budget extends BaseEntity {
     this.limit = limit;
   }
 
+  // Траты за текущий период (для бюджета без периода - за все время)
   public double getSpent() {
+    return window != null ? window.total(today()) : spent;
+  }
+
+  // Траты за все время, включая прошедшие периоды
+  public double getTotalSpent() {
     return spent;
   }
 
+  public BudgetPeriod getPeriod() {
+    return period;
+  }
+
+  public boolean isPeriodic() {
+    return period != null;
+  }
+
+  private void setPeriod(BudgetPeriod period) {
+    this.period = period;
+    this.window = period != null ? new SpendingWindow(period, today()) : null;
+  }
+
+  private long today() {
+    return LocalDate.now(clock).toEpochDay();
+  }
+
   @Override
   public String toString() {
+    if (period != null) {
+      return category + ": " + limit + " за период " + period + " (потрачено: " + getSpent() + ")";
+    }
     return category + ": " + limit + " (потрачено: " + spent + ")";
   }
 }
@@ -0,0 +1,135 @@
+package oop.finance.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Locale;
+import oop.finance.exception.InvalidCredentialsException;
+
+/**
+ * Период бюджета: календарный месяц, календарная неделя (с понедельника) или скользящее окно из N
+ * последних дней. Определяет, с какого дня учитываются расходы на заданную дату
+ */
+public final class BudgetPeriod {
+  public static final int MAX_ROLLING_DAYS = 366;
+  private static final int MAX_MONTH_DAYS = 31;
+  private static final int WEEK_DAYS = 7;
+  private static final String ROLLING_PREFIX = "days:";
+
+  /** Вид периода */
+  public enum Type {
+    MONTH,
+    WEEK,
+    ROLLING_DAYS
+  }
+
+  private final Type type;
+  private final int days;
+
+  private BudgetPeriod(Type type, int days) {
+    this.type = type;
+    this.days = days;
+  }
+
+  public static BudgetPeriod month() {
+    return new BudgetPeriod(Type.MONTH, MAX_MONTH_DAYS);
+  }
+
+  public static BudgetPeriod week() {
+    return new BudgetPeriod(Type.WEEK, WEEK_DAYS);
+  }
+
+  public static BudgetPeriod rollingDays(int days) {
+    if (days <= 0 || days > MAX_ROLLING_DAYS) {
+      throw new InvalidCredentialsException(
+          "Длина периода должна быть от 1 до " + MAX_ROLLING_DAYS + " дней!");
+    }
+    return new BudgetPeriod(Type.ROLLING_DAYS, days);
+  }
+
+  // Разбирает код периода: month, week или days:N
+  public static BudgetPeriod parse(String code) {
+    if (code.startsWith(ROLLING_PREFIX)) {
+      try {
+        return rollingDays(Integer.parseInt(code.substring(ROLLING_PREFIX.length())));
+      } catch (NumberFormatException error) {
+        throw new InvalidCredentialsException("Некорректный период бюджета: " + code);
+      }
+    }
+    switch (code) {
+      case "month":
+        return month();
+      case "week":
+        return week();
+      default:
+        throw new InvalidCredentialsException("Некорректный период бюджета: " + code);
+    }
+  }
+
+  // Код периода для сохранения
+  public String getCode() {
+    return type == Type.ROLLING_DAYS ? ROLLING_PREFIX + days : type.name().toLowerCase(Locale.ROOT);
+  }
+
+  // Первый день периода, в который попадает день day (номера дней от эпохи)
+  public long startOf(long day) {
+    switch (type) {
+      case MONTH:
+        return LocalDate.ofEpochDay(day).withDayOfMonth(1).toEpochDay();
+      case WEEK:
+        return LocalDate.ofEpochDay(day).with(DayOfWeek.MONDAY).toEpochDay();
+      default:
+        return day - days + 1;
+    }
+  }
+
+  // Наибольшее число дней в периоде
+  public int getMaxDays() {
+    return days;
+  }
+
+  // Прошедшая к концу дня day доля периода (для скользящего окна всегда 1)
+  public double elapsedShare(long day) {
+    LocalDate date = LocalDate.ofEpochDay(day);
+    switch (type) {
+      case MONTH:
+        return (double) date.getDayOfMonth() / date.lengthOfMonth();
+      case WEEK:
+        return (double) date.getDayOfWeek().getValue() / WEEK_DAYS;
+      default:
+        return 1;
+    }
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (!(other instanceof BudgetPeriod)) {
+      return false;
+    }
+    BudgetPeriod period = (BudgetPeriod) other;
+    return type == period.type && days == period.days;
+  }
+
+  @Override
+  public int hashCode() {
+    return type.hashCode() * MAX_MONTH_DAYS + days;
+  }
+
+  @Override
+  public String toString() {
+    switch (type) {
+      case MONTH:
+        return "месяц";
+      case WEEK:
+        return "неделя";
+      default:
+        return days + " дн.";
+    }
+  }
+}
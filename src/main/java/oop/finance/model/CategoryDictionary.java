@@ -0,0 +1,89 @@
+package oop.finance.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Общий для всех кошельков словарь категорий. Каждой различной категории присваивается плотный
+ * номер (0, 1, 2, ...), который не переиспользуется. Кошельки хранят собственные локальные номера
+ * категорий и сопоставляют их номерам словаря, поэтому итоги по всем пользователям группируются по
+ * номеру словаря, а размер массивов кошелька не зависит от размера словаря.
+ *
+ * <p>Чтение потокобезопасно и не блокируется, добавление новых категорий синхронизировано
+ */
+public final class CategoryDictionary {
+  public static final int NO_CATEGORY = -1;
+  private static final int INITIAL_CAPACITY = 64;
+  private static final CategoryDictionary GLOBAL = new CategoryDictionary();
+
+  private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+  private volatile String[] names = new String[INITIAL_CAPACITY];
+  private volatile int size;
+
+  // Словарь, общий для всех кошельков приложения
+  public static CategoryDictionary global() {
+    return GLOBAL;
+  }
+
+  // Номер категории; новая категория получает следующий свободный номер
+  public int intern(String category) {
+    if (category == null) {
+      return NO_CATEGORY;
+    }
+
+    Integer id = ids.get(category);
+    return id != null ? id : register(category);
+  }
+
+  // Номер уже известной категории или NO_CATEGORY, если категория еще не встречалась
+  public int find(String category) {
+    if (category == null) {
+      return NO_CATEGORY;
+    }
+
+    Integer id = ids.get(category);
+    return id != null ? id : NO_CATEGORY;
+  }
+
+  // Название категории по номеру
+  public String nameOf(int id) {
+    return id == NO_CATEGORY ? null : names[id];
+  }
+
+  // Регистрирует категории в переданном порядке (используется при загрузке словаря)
+  public void internAll(Collection<String> categories) {
+    categories.forEach(this::intern);
+  }
+
+  // Количество категорий в словаре
+  public int size() {
+    return size;
+  }
+
+  // Все категории в порядке номеров
+  public List<String> names() {
+    // размер читается раньше массива: массив заменяется до увеличения размера
+    int count = size;
+    return List.of(Arrays.copyOf(names, count));
+  }
+
+  private synchronized int register(String category) {
+    Integer existing = ids.get(category);
+    if (existing != null) {
+      return existing;
+    }
+
+    int id = size;
+    if (id == names.length) {
+      names = Arrays.copyOf(names, id * 2);
+    }
+    // имя записывается до публикации номера, поэтому nameOf всегда видит его
+    names[id] = category;
+    size = id + 1;
+    ids.put(category, id);
+    return id;
+  }
+}
@@ -0,0 +1,176 @@
+package oop.finance.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import oop.finance.model.sketch.QuantileSketch;
+import oop.finance.model.sketch.TopAmounts;
+
+/**
+ * Эскизы распределения сумм транзакций кошелька по категориям: эскиз квантилей для расходов и для
+ * доходов каждой категории и наибольшие расходы категории. Обновляются при добавлении транзакции и
+ * сохраняются вместе с кошельком, так что медиана, перцентили и крупнейшие расходы считаются без
+ * сортировки истории.
+ *
+ * <p>Эскизы лежат в массивах по локальному номеру категории хранилища кошелька + 1 (ячейка 0 -
+ * транзакции без категории), поэтому добавление суммы не хэширует название. Названия категорий
+ * переводятся в номера и обратно только в методах с параметром или результатом String
+ */
+public class CategorySketches {
+  private final TransactionStore transactions;
+  private final int k;
+  private final int topCapacity;
+  private QuantileSketch[] expenses = new QuantileSketch[0];
+  private QuantileSketch[] incomes = new QuantileSketch[0];
+  private TopAmounts[] largestExpenses = new TopAmounts[0];
+
+  public CategorySketches(TransactionStore transactions) {
+    this(transactions, QuantileSketch.DEFAULT_K, TopAmounts.DEFAULT_CAPACITY);
+  }
+
+  // transactions - хранилище кошелька, чьи локальные номера категорий используются как ключи
+  public CategorySketches(TransactionStore transactions, int k, int topCapacity) {
+    this.transactions = transactions;
+    this.k = k;
+    this.topCapacity = topCapacity;
+  }
+
+  // Строит эскизы по всей истории хранилища (для кошельков, сохраненных без эскизов)
+  public static CategorySketches of(TransactionStore transactions) {
+    CategorySketches sketches = new CategorySketches(transactions);
+    for (int row = 0; row < transactions.size(); row++) {
+      sketches.add(
+          transactions.getCategoryId(row), transactions.getAmount(row), transactions.isIncome(row));
+    }
+    return sketches;
+  }
+
+  // Учитывает сумму транзакции; categoryId - локальный номер категории хранилища или NO_CATEGORY
+  public void add(int categoryId, double amount, boolean isIncome) {
+    int slot = categoryId + 1;
+    ensureSlots(slot + 1);
+    QuantileSketch[] sketches = sketches(isIncome);
+    if (sketches[slot] == null) {
+      sketches[slot] = new QuantileSketch(k);
+    }
+    sketches[slot].add(amount);
+    if (!isIncome) {
+      if (largestExpenses[slot] == null) {
+        largestExpenses[slot] = new TopAmounts(topCapacity);
+      }
+      largestExpenses[slot].add(amount);
+    }
+  }
+
+  // Учитывает сумму транзакции категории с указанным названием
+  public void add(String category, double amount, boolean isIncome) {
+    add(transactions.internCategory(category), amount, isIncome);
+  }
+
+  // Квантиль сумм транзакций категории (rank от 0 до 1); NaN, если транзакций нет
+  public double quantile(String category, boolean isIncome, double rank) {
+    QuantileSketch sketch = get(sketches(isIncome), category);
+    return sketch != null ? sketch.quantile(rank) : Double.NaN;
+  }
+
+  // Квантиль сумм транзакций по всем категориям: эскизы категорий сливаются в один
+  public double quantile(boolean isIncome, double rank) {
+    QuantileSketch merged = new QuantileSketch(k);
+    for (QuantileSketch sketch : sketches(isIncome)) {
+      if (sketch != null) {
+        merged.merge(sketch);
+      }
+    }
+    return merged.quantile(rank);
+  }
+
+  // Наибольшие расходы категории по убыванию
+  public double[] largestExpenses(String category) {
+    TopAmounts top = get(largestExpenses, category);
+    return top != null ? top.values() : new double[0];
+  }
+
+  // Восстанавливает сохраненный эскиз квантилей категории
+  public void putSketch(String category, boolean isIncome, QuantileSketch sketch) {
+    int slot = transactions.internCategory(category) + 1;
+    ensureSlots(slot + 1);
+    sketches(isIncome)[slot] = sketch;
+  }
+
+  // Восстанавливает сохраненные наибольшие расходы категории
+  public void putLargestExpenses(String category, TopAmounts top) {
+    int slot = transactions.internCategory(category) + 1;
+    ensureSlots(slot + 1);
+    largestExpenses[slot] = top;
+  }
+
+  // Эскизы квантилей по названиям категорий (для сохранения)
+  public Map<String, QuantileSketch> getSketches(boolean isIncome) {
+    return byName(sketches(isIncome));
+  }
+
+  // Наибольшие расходы по названиям категорий (для сохранения)
+  public Map<String, TopAmounts> getLargestExpenses() {
+    return byName(largestExpenses);
+  }
+
+  public int getK() {
+    return k;
+  }
+
+  public int getTopCapacity() {
+    return topCapacity;
+  }
+
+  // Количество хранимых значений во всех эскизах (не зависит от размера истории)
+  public int getRetained() {
+    int retained = 0;
+    for (boolean isIncome : new boolean[] {false, true}) {
+      for (QuantileSketch sketch : sketches(isIncome)) {
+        retained += sketch != null ? sketch.getRetained() : 0;
+      }
+    }
+    for (TopAmounts top : largestExpenses) {
+      retained += top != null ? top.size() : 0;
+    }
+    return retained;
+  }
+
+  private QuantileSketch[] sketches(boolean isIncome) {
+    return isIncome ? incomes : expenses;
+  }
+
+  // Значение ячейки категории по названию; null, если категории нет в хранилище или для нее нет
+  // значения
+  private <T> T get(T[] values, String category) {
+    int categoryId = transactions.categoryIdOf(category);
+    if (categoryId == CategoryDictionary.NO_CATEGORY && category != null) {
+      return null;
+    }
+    int slot = categoryId + 1;
+    return slot < values.length ? values[slot] : null;
+  }
+
+  private <T> Map<String, T> byName(T[] values) {
+    Map<String, T> result = new LinkedHashMap<>();
+    for (int slot = 0; slot < values.length; slot++) {
+      if (values[slot] != null) {
+        result.put(transactions.categoryName(slot - 1), values[slot]);
+      }
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  // Расширяет массивы эскизов до slots ячеек (с запасом, чтобы новые категории не копировали их
+  // каждый раз)
+  private void ensureSlots(int slots) {
+    if (slots <= expenses.length) {
+      return;
+    }
+    int length = Math.max(slots, expenses.length * 2);
+    expenses = Arrays.copyOf(expenses, length);
+    incomes = Arrays.copyOf(incomes, length);
+    largestExpenses = Arrays.copyOf(largestExpenses, length);
+  }
+}
@@ -0,0 +1,59 @@
+package oop.finance.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Уведомление пользователя. Ключ определяет источник уведомления (например, бюджет категории или
+ * баланс): повторные уведомления с тем же ключом для того же пользователя могут быть объединены.
+ * Уведомления об отдельных транзакциях не объединяются - каждое из них несет новое событие
+ */
+public class Notification {
+  private final String login;
+  private final String key;
+  private final String message;
+  private final LocalDateTime createdAt;
+  private final boolean coalescing;
+
+  public Notification(String login, String key, String message) {
+    this(login, key, message, true);
+  }
+
+  // coalescing - можно ли объединять уведомление с повторными уведомлениями того же ключа
+  public Notification(String login, String key, String message, boolean coalescing) {
+    this.login = login;
+    this.key = key;
+    this.message = message;
+    this.createdAt = LocalDateTime.now();
+    this.coalescing = coalescing;
+  }
+
+  public String getLogin() {
+    return login;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public boolean isCoalescing() {
+    return coalescing;
+  }
+
+  // Ключ для объединения повторных уведомлений
+  public String getCoalescingKey() {
+    return login + ":" + key;
+  }
+
+  @Override
+  public String toString() {
+    return createdAt + " " + login + ": " + message;
+  }
+}
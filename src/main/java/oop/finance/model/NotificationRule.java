@@ -0,0 +1,190 @@
+package oop.finance.model;
+
+import java.util.IllegalFormatException;
+import oop.finance.exception.InvalidCredentialsException;
+
+/**
+ * Правило уведомления, заданное данными: показатель кошелька, условие сравнения с порогом и шаблон
+ * сообщения. Правило срабатывает, когда условие начинает выполняться (для показателей отдельной
+ * транзакции - при каждой подходящей транзакции). У правила на рост (AT_LEAST, ABOVE) может быть
+ * верхняя граница: значение, начиная с которого правило перестает выполняться (например,
+ * предупреждение о 80% бюджета не действует с 100%).
+ *
+ * <p>Шаблон форматируется String.format с аргументами: 1 - категория, 2 - значение показателя, 3 -
+ * порог, 4 - баланс, 5 - остаток бюджета категории, 6 - перерасход бюджета категории
+ */
+public class NotificationRule {
+  /** Область, для которой считается показатель */
+  public enum Scope {
+    // кошелек целиком
+    WALLET,
+    // категория расходов
+    CATEGORY,
+    // отдельная транзакция расхода
+    TRANSACTION
+  }
+
+  /** Показатель кошелька */
+  public enum Metric {
+    // баланс кошелька
+    BALANCE(Scope.WALLET),
+    // доля баланса от общего дохода (не определена без доходов)
+    BALANCE_TO_INCOME(Scope.WALLET),
+    // превышение расходов над доходами
+    EXPENSE_SURPLUS(Scope.WALLET),
+    // использование бюджета категории в процентах
+    BUDGET_USAGE(Scope.CATEGORY),
+    // темп расходов категории за текущий период бюджета (без периода - за месяц) относительно
+    // лимита в процентах: 100 - расходы идут ровно по плану, больше 100 - бюджет будет исчерпан
+    // раньше конца периода
+    BUDGET_PACING(Scope.CATEGORY),
+    // сумма расходов категории за последние windowDays дней
+    CATEGORY_VELOCITY(Scope.CATEGORY),
+    // сумма расхода
+    EXPENSE_AMOUNT(Scope.TRANSACTION);
+
+    private final Scope scope;
+
+    Metric(Scope scope) {
+      this.scope = scope;
+    }
+
+    public Scope getScope() {
+      return scope;
+    }
+  }
+
+  /** Условие сравнения значения показателя с порогом */
+  public enum Comparison {
+    AT_LEAST,
+    ABOVE,
+    BELOW,
+    EQUAL
+  }
+
+  private String id;
+  private Metric metric;
+  private Comparison comparison;
+  private double threshold;
+  // граница, с которой правило на рост перестает выполняться; null - без границы
+  private Double upperBound;
+  // категория правила; null - любая категория
+  private String category;
+  private int windowDays;
+  private String message;
+
+  public NotificationRule(
+      String id, Metric metric, Comparison comparison, double threshold, String message) {
+    this(id, metric, comparison, threshold, null, 0, message);
+  }
+
+  // Правило на рост, действующее, пока значение меньше upperBound
+  public NotificationRule(
+      String id,
+      Metric metric,
+      Comparison comparison,
+      double threshold,
+      double upperBound,
+      String message) {
+    this(id, metric, comparison, threshold, null, 0, message);
+    this.upperBound = upperBound;
+    validate();
+  }
+
+  public NotificationRule(
+      String id,
+      Metric metric,
+      Comparison comparison,
+      double threshold,
+      String category,
+      int windowDays,
+      String message) {
+    this.id = id;
+    this.metric = metric;
+    this.comparison = comparison;
+    this.threshold = threshold;
+    this.category = category;
+    this.windowDays = windowDays;
+    this.message = message;
+    validate();
+  }
+
+  // Валидация правила (правила, прочитанные из JSON, проверяются при компиляции)
+  public void validate() {
+    if (id == null || metric == null || comparison == null || message == null) {
+      throw new InvalidCredentialsException(
+          "Правило должно содержать id, metric, comparison и message!");
+    }
+    if (Double.isNaN(threshold)) {
+      throw new InvalidCredentialsException("Некорректный порог правила " + id + "!");
+    }
+    if (upperBound != null
+        && (comparison == Comparison.BELOW
+            || comparison == Comparison.EQUAL
+            || !(upperBound > threshold))) {
+      throw new InvalidCredentialsException(
+          "Верхняя граница правила " + id + " должна быть больше порога правила на рост!");
+    }
+    if (metric == Metric.CATEGORY_VELOCITY && windowDays <= 0) {
+      throw new InvalidCredentialsException("Окно правила " + id + " должно быть положительным!");
+    }
+    if (metric.getScope() == Scope.WALLET && category != null) {
+      throw new InvalidCredentialsException("Правило " + id + " не зависит от категории!");
+    }
+    try {
+      format("", 0, 0, 0, 0);
+    } catch (IllegalFormatException error) {
+      throw new InvalidCredentialsException("Некорректный шаблон сообщения правила " + id + "!");
+    }
+  }
+
+  // Сообщение сработавшего правила
+  public String format(
+      String categoryName, double value, double balance, double remaining, double overrun) {
+    return String.format(message, categoryName, value, threshold, balance, remaining, overrun);
+  }
+
+  // Не вышло ли значение за верхнюю границу правила
+  public boolean isBelowUpperBound(double value) {
+    return upperBound == null || value < upperBound;
+  }
+
+  // Окно показателя в днях (имеет смысл только для CATEGORY_VELOCITY)
+  public int getWindowDays() {
+    return metric == Metric.CATEGORY_VELOCITY ? windowDays : 0;
+  }
+
+  // Геттеры
+  public String getId() {
+    return id;
+  }
+
+  public Metric getMetric() {
+    return metric;
+  }
+
+  public Comparison getComparison() {
+    return comparison;
+  }
+
+  public double getThreshold() {
+    return threshold;
+  }
+
+  public Double getUpperBound() {
+    return upperBound;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public String toString() {
+    return id + ": " + metric + " " + comparison + " " + threshold;
+  }
+}
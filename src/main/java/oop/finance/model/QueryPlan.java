@@ -0,0 +1,418 @@
+package oop.finance.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import oop.finance.model.kernel.SumKernel;
+import oop.finance.utils.DateTimeUtils;
+
+/**
+ * Скомпилированный запрос статистики для одного хранилища транзакций. Условия StatisticsQuery
+ * переводятся в примитивы: допустимые типы транзакций, ячейки накопителя для выбранных категорий
+ * (только тех, что есть в истории кошелька) и границы периода в наносекундах. При компиляции
+ * выбирается способ доступа к данным, а строки, которые все же нужно просмотреть, проходятся одним
+ * циклом прямо по колонкам хранилища. Суммы и количества копятся сразу для доходов и расходов,
+ * поэтому сводная статистика собирается за один проход.
+ *
+ * <p>Строки просматриваются блоками фиксированного размера. Каждый блок копит суммы в собственном
+ * накопителе с компенсированным суммированием (алгоритм Ноймайера), затем накопители блоков
+ * сливаются строго по порядку. Поэтому при числе строк не меньше порога блоки обрабатываются
+ * параллельно в общем пуле fork/join, а результат совпадает с последовательным до бита. Общая сумма
+ * почти по всей истории считается сплошным проходом по колонкам векторным ядром SumKernel, если
+ * подключен модуль jdk.incubator.vector.
+ *
+ * <p>Ядро складывает строки в порядке добавления по дорожкам SumKernel, а выборка по индексу - в
+ * хронологическом порядке по ячейкам категорий. Оба способа суммируют с компенсацией, но порядок
+ * сложения разный, поэтому total() через ядро и итог summarize() по тем же условиям могут
+ * расходиться в последних битах (в пределах ошибки округления компенсированной суммы). Результат
+ * каждого метода при этом не зависит от числа потоков и реализации ядра.
+ *
+ * <p>План отражает состояние хранилища на момент компиляции и выполняется сразу после нее
+ */
+public final class QueryPlan {
+  private static final long NANOS_PER_DAY = DateTimeUtils.NANOS_PER_DAY;
+  private static final int NO_SLOT = -1;
+  private static final int EXPENSE = 0;
+  private static final int INCOME = 1;
+  private static final int SIDES = 2;
+  private static final int CHUNK_SIZE = 16_384;
+  private static final int WORD_SHIFT = 6;
+  // минимальное число строк периода, с которого общая сумма считается ядром по колонкам
+  private static final int KERNEL_MIN_ROWS = 4096;
+  // минимальная доля строк периода (в процентах), при которой сплошной проход быстрее индекса:
+  // по SumKernelBenchmark ядро выигрывает с 85%, при 75-80% проход по индексу не медленнее
+  private static final int KERNEL_MIN_PERCENT = 85;
+  private static final int PERCENT = 100;
+  // скалярный сплошной проход медленнее выборки по индексу, поэтому без модуля ядро не используется
+  private static final SumKernel DEFAULT_KERNEL = SumKernel.vector();
+
+  /** Способ получения данных для запроса */
+  public enum AccessPath {
+    // заведомо пустой результат
+    EMPTY,
+    // нарастающие итоги кошелька
+    AGGREGATES,
+    // итоги по дням и месяцам и хронологический индекс для неполных дней на краях периода
+    ROLLUPS,
+    // только строки периода из хронологического индекса
+    TIME_INDEX
+  }
+
+  private final TransactionStore store;
+  private final AccessPath accessPath;
+  // допустимые типы транзакций: [0] - расходы, [1] - доходы
+  private final boolean[] sides = new boolean[SIDES];
+  private final boolean allCategories;
+  // ячейка накопителя по номеру категории + 1 (NO_SLOT - категория не выбрана) и номер категории
+  // по ячейке; накопители содержат ячейки только выбранных категорий, встречающихся в истории
+  private final int[] slotOfCategory;
+  private final int[] categoryOfSlot;
+  private final long fromNanos;
+  private final long toNanos;
+  private final long firstDay;
+  private final long lastDay;
+  // число просматриваемых строк, начиная с которого блоки обрабатываются параллельно
+  private final int parallelThreshold;
+  // ядро сплошного суммирования колонок или null, если оно не используется
+  private final SumKernel kernel;
+
+  private QueryPlan(
+      StatisticsQuery query, TransactionStore store, int parallelThreshold, SumKernel kernel) {
+    this.store = store;
+    this.parallelThreshold = parallelThreshold;
+    this.kernel = kernel;
+    Boolean type = query.getType();
+    sides[EXPENSE] = type == null || !type;
+    sides[INCOME] = type == null || type;
+    fromNanos = query.getFromNanos();
+    toNanos = query.getToNanos();
+    firstDay = fromNanos != Long.MIN_VALUE ? Math.floorDiv(fromNanos - 1, NANOS_PER_DAY) + 1 : 0;
+    lastDay = toNanos != Long.MAX_VALUE ? Math.floorDiv(toNanos + 1, NANOS_PER_DAY) - 1 : -1;
+
+    Set<String> categories = query.getCategories();
+    allCategories = categories == null;
+    slotOfCategory = new int[store.getCategoryBound() + 1];
+    Arrays.fill(slotOfCategory, NO_SLOT);
+    int[] selected = new int[slotOfCategory.length];
+    int slots = 0;
+    if (allCategories) {
+      selected[slots++] = CategoryDictionary.NO_CATEGORY;
+      BitSet used = store.getUsedCategories();
+      for (int id = used.nextSetBit(0); id >= 0; id = used.nextSetBit(id + 1)) {
+        selected[slots++] = id;
+      }
+    } else {
+      for (String category : categories) {
+        int id = store.categoryIdOf(category);
+        boolean known = id != CategoryDictionary.NO_CATEGORY || category == null;
+        if (known && slotOfCategory[id + 1] == NO_SLOT) {
+          slotOfCategory[id + 1] = slots;
+          selected[slots++] = id;
+        }
+      }
+    }
+    categoryOfSlot = Arrays.copyOf(selected, slots);
+    for (int slot = 0; slot < slots; slot++) {
+      slotOfCategory[categoryOfSlot[slot] + 1] = slot;
+    }
+    accessPath = choosePath(query);
+  }
+
+  // Компилирует запрос для хранилища с последовательным выполнением
+  public static QueryPlan compile(StatisticsQuery query, TransactionStore store) {
+    return compile(query, store, Integer.MAX_VALUE);
+  }
+
+  // Компилирует запрос для хранилища; просмотр не менее parallelThreshold строк идет параллельно
+  public static QueryPlan compile(
+      StatisticsQuery query, TransactionStore store, int parallelThreshold) {
+    return compile(query, store, parallelThreshold, DEFAULT_KERNEL);
+  }
+
+  // Компилирует запрос с указанным ядром суммирования колонок (null - только проход по индексу)
+  public static QueryPlan compile(
+      StatisticsQuery query, TransactionStore store, int parallelThreshold, SumKernel kernel) {
+    return new QueryPlan(query, store, parallelThreshold, kernel);
+  }
+
+  // Выбранный способ доступа к данным
+  public AccessPath getAccessPath() {
+    return accessPath;
+  }
+
+  // Общая сумма подходящих транзакций
+  public double total() {
+    if (accessPath == AccessPath.EMPTY) {
+      return 0;
+    }
+    if (useKernel()) {
+      double[] sums = new double[SIDES];
+      kernel.sum(
+          store.amountColumn(),
+          store.timestampColumn(),
+          store.incomeColumn(),
+          store.size(),
+          fromNanos,
+          toNanos,
+          sums);
+      return (sides[EXPENSE] ? sums[EXPENSE] : 0) + (sides[INCOME] ? sums[INCOME] : 0);
+    }
+
+    Accumulator accumulator = new Accumulator(categoryOfSlot.length);
+    double total = 0;
+    if (allCategories && accessPath != AccessPath.TIME_INDEX) {
+      // общие итоги по типу без перебора категорий
+      if (accessPath == AccessPath.ROLLUPS) {
+        scanEdges(accumulator);
+      }
+      for (int side = 0; side < SIDES; side++) {
+        if (sides[side]) {
+          total +=
+              accessPath == AccessPath.AGGREGATES
+                  ? store.sum(side == INCOME)
+                  : store.sumDays(side == INCOME, firstDay, lastDay) + accumulator.total(side);
+        }
+      }
+      return total;
+    }
+
+    accumulate(accumulator);
+    return accumulator.total(EXPENSE) + accumulator.total(INCOME);
+  }
+
+  // Суммы подходящих транзакций по категориям (ключ null - транзакции без категории)
+  public Map<String, Double> groupByCategory() {
+    Accumulator accumulator = new Accumulator(categoryOfSlot.length);
+    accumulate(accumulator);
+
+    Map<String, Double> result = new HashMap<>();
+    for (int slot = 0; slot < categoryOfSlot.length; slot++) {
+      if (accumulator.counts[EXPENSE][slot] + accumulator.counts[INCOME][slot] > 0) {
+        result.put(
+            store.categoryName(categoryOfSlot[slot]),
+            accumulator.value(EXPENSE, slot) + accumulator.value(INCOME, slot));
+      }
+    }
+    return result;
+  }
+
+  // Сводная статистика по доходам и расходам за один проход
+  public StatisticsSummary summarize() {
+    Accumulator accumulator = new Accumulator(categoryOfSlot.length);
+    accumulate(accumulator);
+
+    double[] totals = new double[SIDES];
+    for (int side = 0; side < SIDES; side++) {
+      boolean fromTotals = accessPath == AccessPath.AGGREGATES && allCategories && sides[side];
+      totals[side] = fromTotals ? store.sum(side == INCOME) : accumulator.total(side);
+    }
+    return new StatisticsSummary(
+        totals[INCOME],
+        totals[EXPENSE],
+        amountsByCategory(accumulator, INCOME),
+        amountsByCategory(accumulator, EXPENSE),
+        countsByCategory(accumulator, INCOME),
+        countsByCategory(accumulator, EXPENSE));
+  }
+
+  private Map<String, Double> amountsByCategory(Accumulator accumulator, int side) {
+    Map<String, Double> result = new HashMap<>();
+    for (int slot = 0; slot < categoryOfSlot.length; slot++) {
+      if (accumulator.counts[side][slot] > 0) {
+        result.put(store.categoryName(categoryOfSlot[slot]), accumulator.value(side, slot));
+      }
+    }
+    return result;
+  }
+
+  private Map<String, Integer> countsByCategory(Accumulator accumulator, int side) {
+    Map<String, Integer> result = new HashMap<>();
+    for (int slot = 0; slot < categoryOfSlot.length; slot++) {
+      if (accumulator.counts[side][slot] > 0) {
+        result.put(store.categoryName(categoryOfSlot[slot]), accumulator.counts[side][slot]);
+      }
+    }
+    return result;
+  }
+
+  // Сплошной проход ядром по колонкам вместо выборки через индекс: для общей суммы без фильтра по
+  // категориям, когда в период попадает не меньше KERNEL_MIN_PERCENT процентов строк
+  private boolean useKernel() {
+    if (kernel == null || accessPath != AccessPath.TIME_INDEX || !allCategories) {
+      return false;
+    }
+    int rows = store.upperBound(toNanos) - store.lowerBound(fromNanos);
+    return rows >= KERNEL_MIN_ROWS
+        && (long) PERCENT * rows >= (long) KERNEL_MIN_PERCENT * store.size();
+  }
+
+  private AccessPath choosePath(StatisticsQuery query) {
+    if (query.isContradictory()) {
+      return AccessPath.EMPTY;
+    }
+    if (!query.hasPeriod()) {
+      return AccessPath.AGGREGATES;
+    }
+    // итогам по дням нужны обе границы периода и хотя бы один целый день внутри него
+    boolean bounded = fromNanos != Long.MIN_VALUE && toNanos != Long.MAX_VALUE;
+    return bounded && firstDay <= lastDay ? AccessPath.ROLLUPS : AccessPath.TIME_INDEX;
+  }
+
+  // Копит суммы и количества по типам и ячейкам выбранных категорий выбранным способом
+  private void accumulate(Accumulator accumulator) {
+    switch (accessPath) {
+      case AGGREGATES:
+        addCategories(accumulator, false);
+        break;
+      case ROLLUPS:
+        addCategories(accumulator, true);
+        scanEdges(accumulator);
+        break;
+      case TIME_INDEX:
+        scan(fromNanos, toNanos, accumulator);
+        break;
+      default:
+        break;
+    }
+  }
+
+  // Итоги всех категорий (и транзакций без категории) допустимых типов: нарастающие или за
+  // целые дни периода
+  private void addCategories(Accumulator accumulator, boolean byDays) {
+    for (int side = 0; side < SIDES; side++) {
+      if (!sides[side]) {
+        continue;
+      }
+      BitSet used = store.getCategories(side == INCOME);
+      for (int id = used.nextSetBit(0); id >= 0; id = used.nextSetBit(id + 1)) {
+        addCategory(accumulator, side, id, byDays);
+      }
+      addCategory(accumulator, side, CategoryDictionary.NO_CATEGORY, byDays);
+    }
+  }
+
+  private void addCategory(Accumulator accumulator, int side, int categoryId, boolean byDays) {
+    int slot = slotOfCategory[categoryId + 1];
+    if (slot == NO_SLOT) {
+      return;
+    }
+
+    boolean isIncome = side == INCOME;
+    int count =
+        byDays
+            ? store.countDays(isIncome, categoryId, firstDay, lastDay)
+            : store.count(isIncome, categoryId);
+    if (count > 0) {
+      double amount =
+          byDays
+              ? store.sumDays(isIncome, categoryId, firstDay, lastDay)
+              : store.sum(isIncome, categoryId);
+      accumulator.add(side, slot, amount, count);
+    }
+  }
+
+  // Неполные дни на краях периода
+  private void scanEdges(Accumulator accumulator) {
+    scan(fromNanos, firstDay * NANOS_PER_DAY - 1, accumulator);
+    scan((lastDay + 1) * NANOS_PER_DAY, toNanos, accumulator);
+  }
+
+  // Просматривает строки с временем в [from, to] из хронологического индекса блоками по
+  // CHUNK_SIZE позиций и сливает накопители блоков по порядку
+  private void scan(long from, long to, Accumulator accumulator) {
+    int first = store.lowerBound(from);
+    int end = store.upperBound(to);
+    if (first >= end) {
+      return;
+    }
+
+    int chunks = (end - first + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    IntStream indexes = IntStream.range(0, chunks);
+    if (end - first >= parallelThreshold && chunks > 1) {
+      indexes = indexes.parallel();
+    }
+    int[] order = store.timeOrder();
+    Accumulator[] parts =
+        indexes
+            .mapToObj(
+                chunk -> {
+                  int start = first + chunk * CHUNK_SIZE;
+                  return scanChunk(order, start, Math.min(start + CHUNK_SIZE, end));
+                })
+            .toArray(Accumulator[]::new);
+    for (Accumulator part : parts) {
+      accumulator.merge(part);
+    }
+  }
+
+  // Единственный цикл по строкам блока: проверяются только тип и ячейка категории
+  private Accumulator scanChunk(int[] order, int start, int end) {
+    Accumulator accumulator = new Accumulator(categoryOfSlot.length);
+    double[] amounts = store.amountColumn();
+    int[] categoryIds = store.categoryColumn();
+    long[] incomeWords = store.incomeColumn();
+    for (int position = start; position < end; position++) {
+      int row = order[position];
+      int side = (incomeWords[row >>> WORD_SHIFT] & (1L << row)) != 0 ? INCOME : EXPENSE;
+      int index = categoryIds[row] + 1;
+      if (sides[side] && index < slotOfCategory.length && slotOfCategory[index] != NO_SLOT) {
+        accumulator.add(side, slotOfCategory[index], amounts[row], 1);
+      }
+    }
+    return accumulator;
+  }
+
+  /**
+   * Суммы и количества по типу транзакции и ячейке выбранной категории. Суммы ведутся с
+   * компенсацией ошибки округления (алгоритм Ноймайера)
+   */
+  private static final class Accumulator {
+    private final double[][] sums;
+    private final double[][] compensations;
+    private final int[][] counts;
+
+    Accumulator(int slots) {
+      sums = new double[SIDES][slots];
+      compensations = new double[SIDES][slots];
+      counts = new int[SIDES][slots];
+    }
+
+    void add(int side, int slot, double amount, int count) {
+      double sum = sums[side][slot];
+      double next = sum + amount;
+      if (Math.abs(sum) >= Math.abs(amount)) {
+        compensations[side][slot] += (sum - next) + amount;
+      } else {
+        compensations[side][slot] += (amount - next) + sum;
+      }
+      sums[side][slot] = next;
+      counts[side][slot] += count;
+    }
+
+    // Добавляет итоги другого накопителя
+    void merge(Accumulator other) {
+      for (int side = 0; side < SIDES; side++) {
+        for (int slot = 0; slot < sums[side].length; slot++) {
+          if (other.counts[side][slot] > 0) {
+            add(side, slot, other.value(side, slot), other.counts[side][slot]);
+          }
+        }
+      }
+    }
+
+    double value(int side, int slot) {
+      return sums[side][slot] + compensations[side][slot];
+    }
+
+    double total(int side) {
+      Accumulator total = new Accumulator(1);
+      for (int slot = 0; slot < sums[side].length; slot++) {
+        total.add(0, 0, value(side, slot), 0);
+      }
+      return total.value(0, 0);
+    }
+  }
+}
@@ -1,6 +1,11 @@
 package oop.finance.model;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import oop.finance.model.base.BaseEntity;
 import oop.finance.utils.DateTimeUtils;
 
@@ -14,27 +19,38 @@ public class Report extends BaseEntity {
 
   // Генерация таблицы для CSV
   public String generateCsv() {
-    StringBuilder csv = new StringBuilder();
+    StringWriter csv = new StringWriter();
+    try {
+      writeCsv(csv);
+    } catch (IOException error) {
+      throw new UncheckedIOException(error);
+    }
+    return csv.toString();
+  }
 
-    csv.append(
-        String.format(
-            "Отчет кошелька %s\n",
-            createdAt.format(DateTimeFormatter.ofPattern(DateTimeUtils.DATE_TIME_FORMAT))));
-    csv.append("Тип,Категория,Сумма,Дата\n");
+  // Потоковая запись таблицы CSV: транзакции обходятся курсором в хронологическом порядке и
+  // пишутся по одной, без сборки всего отчета в памяти
+  public void writeCsv(Writer out) throws IOException {
+    DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DateTimeUtils.DATE_TIME_FORMAT);
+    out.write(String.format("Отчет кошелька %s\n", createdAt.format(formatter)));
+    out.write("Тип,Категория,Сумма,Дата\n");
 
-    for (Transaction transaction : user.getWallet().getTransactions()) {
+    Iterator<Transaction> transactions =
+        new TransactionCursor(
+            user.getWallet().getTransactionStore(),
+            StatisticsQuery.create(),
+            TransactionCursor.Order.OLDEST_FIRST,
+            null);
+    while (transactions.hasNext()) {
+      Transaction transaction = transactions.next();
       String type = transaction.isIncome() ? "Доход" : "Расход";
-      csv.append(
+      out.write(
           String.format(
               "%s,%s,%.2f,%s\n",
               type,
               transaction.getCategory(),
               transaction.getAmount(),
-              transaction
-                  .getCreatedAt()
-                  .format(DateTimeFormatter.ofPattern(DateTimeUtils.DATE_TIME_FORMAT))));
+              transaction.getCreatedAt().format(formatter)));
     }
-
-    return csv.toString();
   }
 }
@@ -0,0 +1,92 @@
+package oop.finance.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Расходы периодического бюджета по дням в кольцевом буфере фиксированного размера (наибольшая
+ * длина периода). Буфер сдвигается лениво, только при запросе итога на более позднюю текущую дату:
+ * выпавшие из периода дни вычитаются из итога и обнуляются, поэтому сдвиг стоит не больше длины
+ * буфера даже после долгого перерыва, а сумма за период читается из итога без прохода по истории.
+ * Расходы будущих дат не сдвигают окно, а откладываются до наступления своего дня
+ */
+public class SpendingWindow {
+  private final BudgetPeriod period;
+  // расходы по дням: день d хранится в ячейке d mod длина буфера
+  private final double[] buckets;
+  // дни окна [firstDay, lastDay]; ячейки вне окна нулевые
+  private long firstDay;
+  private long lastDay;
+  private double total;
+  // расходы дней позже lastDay по дням
+  private final NavigableMap<Long, Double> future = new TreeMap<>();
+
+  public SpendingWindow(BudgetPeriod period, long today) {
+    this.period = period;
+    this.buckets = new double[period.getMaxDays()];
+    reset(today);
+  }
+
+  // Очищает окно и начинает период, содержащий день today
+  public void reset(long today) {
+    Arrays.fill(buckets, 0);
+    firstDay = period.startOf(today);
+    lastDay = today;
+    total = 0;
+    future.clear();
+  }
+
+  // Учитывает расход за день day. Расход раньше начала текущего периода не учитывается, расход
+  // позже последнего учтенного дня будет учтен, когда итог запросят на этот день
+  public void add(long day, double amount) {
+    if (day > lastDay) {
+      future.merge(day, amount, Double::sum);
+    } else if (day >= firstDay) {
+      buckets[slot(day)] += amount;
+      total += amount;
+    }
+  }
+
+  // Сумма расходов периода, содержащего день today (или последний учтенный день, если он позже)
+  public double total(long today) {
+    advance(today);
+    return total;
+  }
+
+  // Сдвигает окно так, чтобы оно заканчивалось днем today
+  private void advance(long today) {
+    if (today <= lastDay) {
+      return;
+    }
+    long start = period.startOf(today);
+    long dropUntil = Math.min(start, lastDay + 1);
+    for (long day = firstDay; day < dropUntil; day++) {
+      int slot = slot(day);
+      total -= buckets[slot];
+      buckets[slot] = 0;
+    }
+    if (start > lastDay) {
+      // весь прежний период выпал: итог сбрасывается без накопленной ошибки округления
+      total = 0;
+    }
+    firstDay = start;
+    lastDay = today;
+
+    // наступившие отложенные расходы попадают в окно, если их день еще в периоде
+    Map<Long, Double> due = future.headMap(today, true);
+    for (Map.Entry<Long, Double> entry : due.entrySet()) {
+      add(entry.getKey(), entry.getValue());
+    }
+    due.clear();
+  }
+
+  private int slot(long day) {
+    return (int) Math.floorMod(day, (long) buckets.length);
+  }
+
+  public BudgetPeriod getPeriod() {
+    return period;
+  }
+}
@@ -1,49 +1,121 @@
 package oop.finance.model;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.function.Predicate;
+import oop.finance.utils.DateTimeUtils;
 
 /**
  * Построитель запросов для фильтрации транзакций при формировании статистики. Реализует паттерн
- * Builder для создания сложных предикатов
+ * Builder. Условия хранятся в виде значений (тип, набор категорий, границы периода), поэтому запрос
+ * можно проверять как на объектах Transaction, так и прямо на колонках TransactionStore
  */
 public class StatisticsQuery {
-  private final List<Predicate<Transaction>> filters = new ArrayList<>();
+  private Boolean type;
+  private boolean contradictory;
+  private Set<String> categoryFilter;
+  private long fromNanos = Long.MIN_VALUE;
+  private long toNanos = Long.MAX_VALUE;
 
   public static StatisticsQuery create() {
     return new StatisticsQuery();
   }
 
-  // Добавляет фильтр по категориям
+  // Добавляет фильтр по категориям. Повторный вызов оставляет только общие категории
   public StatisticsQuery withCategories(String[] categories) {
     if (categories != null && categories.length > 0) {
-      filters.add(transaction -> Arrays.asList(categories).contains(transaction.getCategory()));
+      Set<String> selected = new HashSet<>(Arrays.asList(categories));
+      if (categoryFilter != null) {
+        selected.retainAll(categoryFilter);
+      }
+      categoryFilter = selected;
     }
     return this;
   }
 
   // Добавляет фильтр по типу транзакции (доход/расход)
   public StatisticsQuery withType(boolean isIncome) {
-    filters.add(transaction -> transaction.isIncome() == isIncome);
+    if (type != null && type != isIncome) {
+      contradictory = true;
+    }
+    type = isIncome;
     return this;
   }
 
-  // Добавляет фильтр по временному периоду
+  // Добавляет фильтр по временному периоду (обе границы включаются)
   public StatisticsQuery withPeriod(LocalDateTime dateFrom, LocalDateTime dateTo) {
     if (dateFrom != null) {
-      filters.add(transaction -> !transaction.getCreatedAt().isBefore(dateFrom));
+      fromNanos = Math.max(fromNanos, DateTimeUtils.toEpochNanos(dateFrom));
     }
     if (dateTo != null) {
-      filters.add(transaction -> !transaction.getCreatedAt().isAfter(dateTo));
+      toNanos = Math.min(toNanos, DateTimeUtils.toEpochNanos(dateTo));
     }
     return this;
   }
 
+  // Тип транзакций запроса или null, если тип не задан
+  public Boolean getType() {
+    return type;
+  }
+
+  // Выбранные категории или null, если фильтра по категориям нет
+  public Set<String> getCategories() {
+    return categoryFilter != null ? Collections.unmodifiableSet(categoryFilter) : null;
+  }
+
+  // Задан ли фильтр по периоду
+  public boolean hasPeriod() {
+    return fromNanos != Long.MIN_VALUE || toNanos != Long.MAX_VALUE;
+  }
+
+  // Границы периода в наносекундах от эпохи (включительно)
+  public long getFromNanos() {
+    return fromNanos;
+  }
+
+  public long getToNanos() {
+    return toNanos;
+  }
+
+  // Заведомо пустой запрос (например, одновременно доходы и расходы)
+  public boolean isContradictory() {
+    return contradictory;
+  }
+
+  // Компилирует запрос в план выполнения для конкретного хранилища транзакций
+  public QueryPlan compile(TransactionStore store) {
+    return QueryPlan.compile(this, store);
+  }
+
+  // Компилирует запрос с параллельным просмотром не менее parallelThreshold транзакций
+  public QueryPlan compile(TransactionStore store, int parallelThreshold) {
+    return QueryPlan.compile(this, store, parallelThreshold);
+  }
+
   // Собирает все добавленные фильтры в единый предикат
   public Predicate<Transaction> build() {
-    return filters.stream().reduce(transaction -> true, Predicate::and);
+    return transaction ->
+        matches(
+            transaction.isIncome(),
+            transaction.getCategory(),
+            transaction.getCreatedAt() != null
+                ? DateTimeUtils.toEpochNanos(transaction.getCreatedAt())
+                : Long.MIN_VALUE);
+  }
+
+  // Проверяет строку поколоночного хранилища без создания объекта Transaction
+  public boolean matches(TransactionStore store, int row) {
+    return matches(store.isIncome(row), store.getCategory(row), store.getTimestamp(row));
+  }
+
+  private boolean matches(boolean income, String category, long timestamp) {
+    return !contradictory
+        && (type == null || type == income)
+        && (categoryFilter == null || categoryFilter.contains(category))
+        && timestamp >= fromNanos
+        && timestamp <= toNanos;
   }
 }
@@ -0,0 +1,81 @@
+package oop.finance.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Сводная статистика, собранная за один проход по данным: общие суммы и количества доходов и
+ * расходов, а также суммы и количества по категориям для обоих типов транзакций
+ */
+public class StatisticsSummary {
+  private final double totalIncome;
+  private final double totalExpense;
+  private final int incomeCount;
+  private final int expenseCount;
+  private final Map<String, Double> incomeByCategory;
+  private final Map<String, Double> expensesByCategory;
+  private final Map<String, Integer> incomeCountByCategory;
+  private final Map<String, Integer> expenseCountByCategory;
+
+  StatisticsSummary(
+      double totalIncome,
+      double totalExpense,
+      Map<String, Double> incomeByCategory,
+      Map<String, Double> expensesByCategory,
+      Map<String, Integer> incomeCountByCategory,
+      Map<String, Integer> expenseCountByCategory) {
+    this.incomeByCategory = Collections.unmodifiableMap(incomeByCategory);
+    this.expensesByCategory = Collections.unmodifiableMap(expensesByCategory);
+    this.incomeCountByCategory = Collections.unmodifiableMap(incomeCountByCategory);
+    this.expenseCountByCategory = Collections.unmodifiableMap(expenseCountByCategory);
+    this.totalIncome = totalIncome;
+    this.totalExpense = totalExpense;
+    this.incomeCount = count(incomeCountByCategory);
+    this.expenseCount = count(expenseCountByCategory);
+  }
+
+  public double getTotalIncome() {
+    return totalIncome;
+  }
+
+  public double getTotalExpense() {
+    return totalExpense;
+  }
+
+  public int getIncomeCount() {
+    return incomeCount;
+  }
+
+  public int getExpenseCount() {
+    return expenseCount;
+  }
+
+  public Map<String, Double> getIncomeByCategory() {
+    return incomeByCategory;
+  }
+
+  public Map<String, Double> getExpensesByCategory() {
+    return expensesByCategory;
+  }
+
+  public Map<String, Integer> getIncomeCountByCategory() {
+    return incomeCountByCategory;
+  }
+
+  public Map<String, Integer> getExpenseCountByCategory() {
+    return expenseCountByCategory;
+  }
+
+  // Превышают ли расходы доходы
+  public boolean isExpenseExceeding() {
+    return totalExpense > totalIncome;
+  }
+
+  private static int count(Map<String, Integer> counts) {
+    int total = 0;
+    for (int value : counts.values()) {
+      total += value;
+    }
+    return total;
+  }
+}
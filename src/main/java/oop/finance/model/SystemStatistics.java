@@ -0,0 +1,64 @@
+package oop.finance.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Статистика по всем пользователям системы: общие суммы доходов и расходов, суммы по категориям,
+ * пользователи с наибольшими расходами и количество пользователей с превышенным бюджетом
+ */
+public class SystemStatistics {
+  private final int userCount;
+  private final double totalIncome;
+  private final double totalExpense;
+  private final Map<String, Double> incomeByCategory;
+  private final Map<String, Double> expensesByCategory;
+  private final Map<String, Double> topSpenders;
+  private final int usersOverBudget;
+
+  // topSpenders - логины и суммы расходов в порядке убывания расходов
+  public SystemStatistics(
+      int userCount,
+      double totalIncome,
+      double totalExpense,
+      Map<String, Double> incomeByCategory,
+      Map<String, Double> expensesByCategory,
+      Map<String, Double> topSpenders,
+      int usersOverBudget) {
+    this.userCount = userCount;
+    this.totalIncome = totalIncome;
+    this.totalExpense = totalExpense;
+    this.incomeByCategory = Collections.unmodifiableMap(incomeByCategory);
+    this.expensesByCategory = Collections.unmodifiableMap(expensesByCategory);
+    this.topSpenders = Collections.unmodifiableMap(topSpenders);
+    this.usersOverBudget = usersOverBudget;
+  }
+
+  public int getUserCount() {
+    return userCount;
+  }
+
+  public double getTotalIncome() {
+    return totalIncome;
+  }
+
+  public double getTotalExpense() {
+    return totalExpense;
+  }
+
+  public Map<String, Double> getIncomeByCategory() {
+    return incomeByCategory;
+  }
+
+  public Map<String, Double> getExpensesByCategory() {
+    return expensesByCategory;
+  }
+
+  public Map<String, Double> getTopSpenders() {
+    return topSpenders;
+  }
+
+  public int getUsersOverBudget() {
+    return usersOverBudget;
+  }
+}
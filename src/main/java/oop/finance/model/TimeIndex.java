@@ -0,0 +1,132 @@
+package oop.finance.model;
+
+import java.util.Arrays;
+
+/**
+ * Индекс строк хранилища транзакций, упорядоченный по времени создания (при равном времени - по
+ * порядку добавления). Транзакции обычно добавляются в хронологическом порядке и просто
+ * дописываются в конец. Записи «задним числом» (импорт, восстановление) копятся в неотсортированном
+ * хвосте, который сортируется и сливается с упорядоченной частью при первом запросе по периоду
+ */
+class TimeIndex {
+  private int[] order;
+  private int size;
+  // длина упорядоченного префикса order
+  private int sortedCount;
+
+  TimeIndex(int capacity) {
+    order = new int[Math.max(capacity, 1)];
+  }
+
+  // Добавляет строку с указанным временем
+  void add(int row, long[] timestamps) {
+    if (size == order.length) {
+      order = Arrays.copyOf(order, size * 2);
+    }
+
+    boolean inOrder =
+        sortedCount == size && (size == 0 || timestamps[order[size - 1]] <= timestamps[row]);
+    order[size++] = row;
+    if (inOrder) {
+      sortedCount = size;
+    }
+  }
+
+  // Позиция первой строки со временем не раньше from
+  int lowerBound(long[] timestamps, long from) {
+    ensureSorted(timestamps);
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (timestamps[order[middle]] < from) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  // Позиция первой строки со временем позже to
+  int upperBound(long[] timestamps, long to) {
+    ensureSorted(timestamps);
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (timestamps[order[middle]] <= to) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  // Номер строки на указанной позиции хронологического порядка
+  int rowAt(int position, long[] timestamps) {
+    ensureSorted(timestamps);
+    return order[position];
+  }
+
+  // Упорядоченный массив номеров строк (первые size элементов)
+  int[] sorted(long[] timestamps) {
+    ensureSorted(timestamps);
+    return order;
+  }
+
+  // Сортирует хвост записей «задним числом» и сливает его с упорядоченной частью: O(n + k log k)
+  private void ensureSorted(long[] timestamps) {
+    if (sortedCount == size) {
+      return;
+    }
+
+    int[] tail = Arrays.copyOfRange(order, sortedCount, size);
+    mergeSort(tail, new int[tail.length], 0, tail.length, timestamps);
+
+    int[] merged = new int[order.length];
+    int left = 0;
+    int right = 0;
+    int position = 0;
+    while (left < sortedCount && right < tail.length) {
+      merged[position++] =
+          before(order[left], tail[right], timestamps) ? order[left++] : tail[right++];
+    }
+    while (left < sortedCount) {
+      merged[position++] = order[left++];
+    }
+    while (right < tail.length) {
+      merged[position++] = tail[right++];
+    }
+
+    order = merged;
+    sortedCount = size;
+  }
+
+  private static void mergeSort(int[] rows, int[] buffer, int from, int to, long[] timestamps) {
+    if (to - from < 2) {
+      return;
+    }
+
+    int middle = (from + to) >>> 1;
+    mergeSort(rows, buffer, from, middle, timestamps);
+    mergeSort(rows, buffer, middle, to, timestamps);
+
+    int left = from;
+    int right = middle;
+    for (int position = from; position < to; position++) {
+      if (right >= to || (left < middle && !before(rows[right], rows[left], timestamps))) {
+        buffer[position] = rows[left++];
+      } else {
+        buffer[position] = rows[right++];
+      }
+    }
+    System.arraycopy(buffer, from, rows, from, to - from);
+  }
+
+  // Должна ли строка a стоять раньше строки b
+  private static boolean before(int a, int b, long[] timestamps) {
+    return timestamps[a] < timestamps[b] || (timestamps[a] == timestamps[b] && a < b);
+  }
+}
@@ -0,0 +1,354 @@
+package oop.finance.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import oop.finance.utils.DateTimeUtils;
+
+/**
+ * Материализованные итоги транзакций кошелька по дням и месяцам, отдельно для доходов и расходов:
+ * общий ряд, ряд транзакций без категории и ряд на каждую категорию. Суммы и количества за дни
+ * месяца лежат в блоке из 31 ячейки, итоги месяцев - в дереве Фенвика, поэтому сумма за любой
+ * промежуток целых дней считается за O(log месяцев) плюс не более двух неполных месяцев.
+ *
+ * <p>У каждого ряда свой непрерывный диапазон месяцев, и блоки дней создаются только для месяцев, в
+ * которых у ряда есть транзакции. Месяцы, далеко отстоящие от диапазона ряда (например, ошибочная
+ * дата в 1970 году), хранятся отдельно в разреженном виде и не расширяют диапазон. Транзакции без
+ * времени создания (и за пределами 1677-2262 годов) в итоги не попадают
+ */
+class TimeRollups {
+  private static final int DAYS_IN_BLOCK = 31;
+  private static final int MONTHS_PER_YEAR = 12;
+  private static final int INITIAL_MONTHS = 12;
+  // наибольший разрыв в месяцах, до которого диапазон ряда расширяется, а не уходит в разреженные
+  private static final int MAX_GAP_MONTHS = 120;
+  private static final int ALL_SERIES = 0;
+  private static final int UNCATEGORIZED_SERIES = 1;
+  // оценка размера заголовка массива и ссылки на него, байт
+  private static final int ARRAY_OVERHEAD = 20;
+  // оценка размера элемента TreeMap вместе с ключом, байт
+  private static final int ENTRY_OVERHEAD = 56;
+
+  private Series[] incomeSeries = new Series[0];
+  private Series[] expenseSeries = new Series[0];
+
+  // Учитывает транзакцию в итогах ее дня и месяца
+  void add(long epochNanos, int categoryId, boolean isIncome, double amount) {
+    if (epochNanos == Long.MIN_VALUE || epochNanos == Long.MAX_VALUE) {
+      return;
+    }
+
+    LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(epochNanos, DateTimeUtils.NANOS_PER_DAY));
+    long month = monthOf(date);
+    int day = date.getDayOfMonth() - 1;
+    series(isIncome, ALL_SERIES).add(month, day, amount);
+    series(isIncome, slotOf(categoryId)).add(month, day, amount);
+  }
+
+  // Сумма транзакций за дни [fromDay, toDay] (номера дней от эпохи) по всем категориям
+  double sum(boolean isIncome, long fromDay, long toDay) {
+    return total(find(isIncome, ALL_SERIES), fromDay, toDay, false);
+  }
+
+  // Сумма транзакций категории (или без категории для NO_CATEGORY) за дни [fromDay, toDay]
+  double sum(boolean isIncome, int categoryId, long fromDay, long toDay) {
+    return total(find(isIncome, slotOf(categoryId)), fromDay, toDay, false);
+  }
+
+  // Количество транзакций категории за дни [fromDay, toDay]
+  int count(boolean isIncome, int categoryId, long fromDay, long toDay) {
+    return (int) total(find(isIncome, slotOf(categoryId)), fromDay, toDay, true);
+  }
+
+  // Оценка занимаемой памяти в байтах
+  long estimateBytes() {
+    long bytes =
+        2L * ARRAY_OVERHEAD + (long) Integer.BYTES * (incomeSeries.length + expenseSeries.length);
+    for (Series[] all : new Series[][] {incomeSeries, expenseSeries}) {
+      for (Series series : all) {
+        if (series != null) {
+          bytes += series.estimateBytes();
+        }
+      }
+    }
+    return bytes;
+  }
+
+  private static double total(Series series, long fromDay, long toDay, boolean counts) {
+    if (series == null || fromDay > toDay) {
+      return 0;
+    }
+
+    LocalDate from = LocalDate.ofEpochDay(fromDay);
+    LocalDate to = LocalDate.ofEpochDay(toDay);
+    return series.total(
+        monthOf(from), from.getDayOfMonth() - 1, monthOf(to), to.getDayOfMonth() - 1, counts);
+  }
+
+  private Series series(boolean isIncome, int slot) {
+    Series[] all = isIncome ? incomeSeries : expenseSeries;
+    if (slot >= all.length) {
+      all = Arrays.copyOf(all, Math.max(slot + 1, all.length * 2));
+      if (isIncome) {
+        incomeSeries = all;
+      } else {
+        expenseSeries = all;
+      }
+    }
+    if (all[slot] == null) {
+      all[slot] = new Series();
+    }
+    return all[slot];
+  }
+
+  private Series find(boolean isIncome, int slot) {
+    Series[] all = isIncome ? incomeSeries : expenseSeries;
+    return slot < all.length ? all[slot] : null;
+  }
+
+  private static int slotOf(int categoryId) {
+    return categoryId == CategoryDictionary.NO_CATEGORY ? UNCATEGORIZED_SERIES : categoryId + 2;
+  }
+
+  private static long monthOf(LocalDate date) {
+    return date.getYear() * (long) MONTHS_PER_YEAR + date.getMonthValue() - 1;
+  }
+
+  private static double sumDays(double[] block, int first, int last) {
+    if (block == null) {
+      return 0;
+    }
+
+    double total = 0;
+    for (int day = first; day <= last; day++) {
+      total += block[day];
+    }
+    return total;
+  }
+
+  /**
+   * Итоги одного ряда: суммы и количества по дням (блоками по месяцам) и деревья месяцев для
+   * непрерывного диапазона, а также разреженные блоки далеких от диапазона месяцев
+   */
+  private static final class Series {
+    // номер первого месяца диапазона (год * 12 + месяц) и количество месяцев; 0 - диапазона нет
+    private long originMonth;
+    private int monthCount;
+    private double[][] dayAmounts = new double[0][];
+    private double[][] dayCounts = new double[0][];
+    // деревья Фенвика по месяцам, нумерация с 1
+    private double[] monthAmounts = new double[1];
+    private double[] monthCounts = new double[1];
+    // количество созданных блоков в диапазоне
+    private int denseBlocks;
+    // блоки месяцев вне диапазона: [0] - суммы, [1] - количества по дням
+    private final TreeMap<Long, double[][]> sparse = new TreeMap<>();
+
+    void add(long month, int day, double amount) {
+      if (!fitsRange(month)) {
+        double[][] block = sparse.get(month);
+        boolean created = block == null;
+        if (created) {
+          block = new double[][] {new double[DAYS_IN_BLOCK], new double[DAYS_IN_BLOCK]};
+          sparse.put(month, block);
+        }
+        block[0][day] += amount;
+        block[1][day]++;
+        // проверяется только при появлении нового разреженного месяца
+        if (created && sparse.size() > denseBlocks) {
+          rebalance();
+        }
+        return;
+      }
+
+      int offset = ensureMonth(month);
+      if (dayAmounts[offset] == null) {
+        dayAmounts[offset] = new double[DAYS_IN_BLOCK];
+        dayCounts[offset] = new double[DAYS_IN_BLOCK];
+        denseBlocks++;
+      }
+      dayAmounts[offset][day] += amount;
+      dayCounts[offset][day]++;
+      for (int node = offset + 1; node < monthAmounts.length; node += node & -node) {
+        monthAmounts[node] += amount;
+        monthCounts[node]++;
+      }
+    }
+
+    // Итог за дни с firstDay месяца fromMonth по lastDay месяца toMonth включительно
+    double total(long fromMonth, int firstDay, long toMonth, int lastDay, boolean counts) {
+      double total = denseTotal(fromMonth, firstDay, toMonth, lastDay, counts);
+      if (sparse.isEmpty()) {
+        return total;
+      }
+      int side = counts ? 1 : 0;
+      for (Map.Entry<Long, double[][]> entry :
+          sparse.subMap(fromMonth, true, toMonth, true).entrySet()) {
+        long month = entry.getKey();
+        total +=
+            sumDays(
+                entry.getValue()[side],
+                month == fromMonth ? firstDay : 0,
+                month == toMonth ? lastDay : DAYS_IN_BLOCK - 1);
+      }
+      return total;
+    }
+
+    private double denseTotal(
+        long fromMonth, int firstDay, long toMonth, int lastDay, boolean counts) {
+      long from = fromMonth - originMonth;
+      long to = toMonth - originMonth;
+      if (monthCount == 0 || to < 0 || from >= monthCount) {
+        return 0;
+      }
+
+      int first = firstDay;
+      int last = lastDay;
+      if (from < 0) {
+        from = 0;
+        first = 0;
+      }
+      if (to >= monthCount) {
+        to = monthCount - 1;
+        last = DAYS_IN_BLOCK - 1;
+      }
+      double[][] blocks = counts ? dayCounts : dayAmounts;
+      if (from == to) {
+        return sumDays(blocks[(int) from], first, last);
+      }
+      return sumDays(blocks[(int) from], first, DAYS_IN_BLOCK - 1)
+          + months((int) from + 1, (int) to - 1, counts)
+          + sumDays(blocks[(int) to], 0, last);
+    }
+
+    // Итог по месяцам диапазона с first по last включительно
+    private double months(int first, int last, boolean counts) {
+      if (first > last) {
+        return 0;
+      }
+      double[] tree = counts ? monthCounts : monthAmounts;
+      return prefix(tree, last + 1) - prefix(tree, first);
+    }
+
+    // Попадает ли месяц в диапазон или достаточно близко к нему, чтобы расширить диапазон
+    private boolean fitsRange(long month) {
+      if (monthCount == 0) {
+        return true;
+      }
+      long gap = month < originMonth ? originMonth - month : month - (originMonth + monthCount - 1);
+      return gap <= Math.max(MAX_GAP_MONTHS, monthCount);
+    }
+
+    // Переводит месяц в смещение от первого месяца, при необходимости расширяя диапазон
+    private int ensureMonth(long month) {
+      if (monthCount == 0) {
+        reshape(month, INITIAL_MONTHS);
+      } else if (month < originMonth) {
+        // запас оставляется перед диапазоном: история часто дополняется задним числом подряд
+        long end = originMonth + monthCount;
+        int count = (int) Math.max(2L * monthCount, end - month);
+        reshape(end - count, count);
+      } else if (month >= originMonth + monthCount) {
+        reshape(originMonth, (int) Math.max(2L * monthCount, month - originMonth + 1));
+      }
+      return (int) (month - originMonth);
+    }
+
+    // Переносит блоки дней в новый диапазон месяцев и перестраивает деревья
+    private void reshape(long origin, int count) {
+      double[][] amounts = new double[count][];
+      double[][] counts = new double[count][];
+      int shift = (int) (originMonth - origin);
+      if (monthCount > 0) {
+        System.arraycopy(dayAmounts, 0, amounts, shift, monthCount);
+        System.arraycopy(dayCounts, 0, counts, shift, monthCount);
+      }
+      originMonth = origin;
+      monthCount = count;
+      dayAmounts = amounts;
+      dayCounts = counts;
+      monthAmounts = build(amounts);
+      monthCounts = build(counts);
+    }
+
+    // Разреженных блоков стало больше, чем блоков диапазона (например, первая транзакция ряда
+    // имела ошибочную дату): диапазоном становится самая населенная группа близких месяцев
+    private void rebalance() {
+      TreeMap<Long, double[][]> all = new TreeMap<>(sparse);
+      for (int offset = 0; offset < monthCount; offset++) {
+        if (dayAmounts[offset] != null) {
+          all.put(originMonth + offset, new double[][] {dayAmounts[offset], dayCounts[offset]});
+        }
+      }
+
+      List<Long> best = new ArrayList<>();
+      List<Long> group = new ArrayList<>();
+      for (long month : all.keySet()) {
+        if (!group.isEmpty() && month - group.get(group.size() - 1) > MAX_GAP_MONTHS) {
+          group = new ArrayList<>();
+        }
+        group.add(month);
+        if (group.size() > best.size()) {
+          best = group;
+        }
+      }
+
+      long first = best.get(0);
+      int count = (int) Math.max(INITIAL_MONTHS, best.get(best.size() - 1) - first + 1);
+      originMonth = first;
+      monthCount = count;
+      dayAmounts = new double[count][];
+      dayCounts = new double[count][];
+      denseBlocks = best.size();
+      for (long month : best) {
+        double[][] block = all.remove(month);
+        dayAmounts[(int) (month - first)] = block[0];
+        dayCounts[(int) (month - first)] = block[1];
+      }
+      monthAmounts = build(dayAmounts);
+      monthCounts = build(dayCounts);
+      sparse.clear();
+      sparse.putAll(all);
+    }
+
+    long estimateBytes() {
+      // два дерева месяцев и два массива ссылок на блоки дней
+      long bytes = 2L * (ARRAY_OVERHEAD + (long) Double.BYTES * monthAmounts.length);
+      bytes += 2L * (ARRAY_OVERHEAD + (long) Integer.BYTES * dayAmounts.length);
+      long block = ARRAY_OVERHEAD + (long) Double.BYTES * DAYS_IN_BLOCK;
+      bytes += 2L * block * denseBlocks;
+      bytes += (ENTRY_OVERHEAD + 2L * Integer.BYTES + ARRAY_OVERHEAD + 2L * block) * sparse.size();
+      return bytes;
+    }
+
+    private static double prefix(double[] tree, int length) {
+      double total = 0;
+      for (int node = length; node > 0; node -= node & -node) {
+        total += tree[node];
+      }
+      return total;
+    }
+
+    // Строит дерево Фенвика по итогам блоков за O(месяцев)
+    private static double[] build(double[][] blocks) {
+      double[] tree = new double[blocks.length + 1];
+      for (int month = 0; month < blocks.length; month++) {
+        if (blocks[month] != null) {
+          for (double value : blocks[month]) {
+            tree[month + 1] += value;
+          }
+        }
+      }
+      for (int node = 1; node < tree.length; node++) {
+        int parent = node + (node & -node);
+        if (parent < tree.length) {
+          tree[parent] += tree[node];
+        }
+      }
+      return tree;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package oop.finance.model;
 
+import java.time.LocalDateTime;
 import oop.finance.model.base.BaseEntity;
 
 /** Модель транзакции */
@@ -14,6 +15,14 @@ public class Transaction extends BaseEntity {
     this.isIncome = isIncome;
   }
 
+  public Transaction(
+      String id, LocalDateTime createdAt, double amount, String category, boolean isIncome) {
+    super(id, createdAt);
+    this.amount = amount;
+    this.category = category;
+    this.isIncome = isIncome;
+  }
+
   // Геттеры и сеттеры
   public String getCategory() {
     return category;
@@ -0,0 +1,156 @@
+package oop.finance.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import oop.finance.exception.InvalidCredentialsException;
+
+/**
+ * Курсор для обхода транзакций кошелька, подходящих под условия StatisticsQuery, в хронологическом
+ * порядке. Строки перебираются по хронологическому индексу хранилища только в пределах периода
+ * запроса, сам курсор хранит лишь текущую позицию, поэтому память не зависит от размера истории.
+ *
+ * <p>Положение курсора описывается ключом (время, номер строки) последней выданной транзакции и
+ * передается вызывающему коду в виде непрозрачного токена. Продолжение по токену находит ключ в
+ * индексе двоичным поиском, поэтому остается корректным и после добавления новых транзакций, в том
+ * числе «задним числом»
+ */
+public class TransactionCursor implements Iterator<Transaction> {
+  private static final String TOKEN_VERSION = "1";
+  private static final String SEPARATOR = ":";
+  private static final int TOKEN_PARTS = 4;
+
+  /** Порядок обхода */
+  public enum Order {
+    OLDEST_FIRST,
+    NEWEST_FIRST
+  }
+
+  private final TransactionStore store;
+  private final StatisticsQuery query;
+  private final Order order;
+  // позиции периода в хронологическом индексе: [first, last)
+  private final int first;
+  private final int last;
+  // следующая проверяемая позиция
+  private int position;
+  // найденная, но еще не выданная строка
+  private int pendingRow = -1;
+  // ключ последней выданной транзакции (или ключ из токена)
+  private boolean hasKey;
+  private long keyNanos;
+  private int keyRow;
+
+  // token - токен продолжения, полученный от курсора с тем же порядком, или null для начала обхода
+  public TransactionCursor(
+      TransactionStore store, StatisticsQuery query, Order order, String token) {
+    this.store = store;
+    this.query = query;
+    this.order = order;
+    if (query.isContradictory()) {
+      first = 0;
+      last = 0;
+    } else {
+      first = store.lowerBound(query.getFromNanos());
+      last = store.upperBound(query.getToNanos());
+    }
+
+    if (token != null) {
+      decode(token);
+    }
+    position = hasKey ? resumePosition() : (order == Order.OLDEST_FIRST ? first : last - 1);
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (pendingRow < 0 && position >= first && position < last) {
+      int row = store.rowAtTime(position);
+      position += order == Order.OLDEST_FIRST ? 1 : -1;
+      if (query.matches(store, row)) {
+        pendingRow = row;
+      }
+    }
+    return pendingRow >= 0;
+  }
+
+  @Override
+  public Transaction next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    int row = pendingRow;
+    pendingRow = -1;
+    hasKey = true;
+    keyNanos = store.getTimestamp(row);
+    keyRow = row;
+    return store.get(row);
+  }
+
+  // Следующие не более size транзакций и токен для продолжения (null, если транзакций больше нет)
+  public TransactionPage nextPage(int size) {
+    List<Transaction> transactions = new ArrayList<>(Math.min(size, last - first));
+    while (transactions.size() < size && hasNext()) {
+      transactions.add(next());
+    }
+    return new TransactionPage(transactions, hasNext() ? getToken() : null);
+  }
+
+  // Токен, продолжающий обход после последней выданной транзакции
+  public String getToken() {
+    if (!hasKey) {
+      return null;
+    }
+    String key =
+        String.join(
+            SEPARATOR,
+            TOKEN_VERSION,
+            order.name(),
+            String.valueOf(keyNanos),
+            String.valueOf(keyRow));
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void decode(String token) {
+    try {
+      String key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      String[] parts = key.split(SEPARATOR);
+      if (parts.length != TOKEN_PARTS
+          || !TOKEN_VERSION.equals(parts[0])
+          || !order.name().equals(parts[1])) {
+        throw new IllegalArgumentException(key);
+      }
+      keyNanos = Long.parseLong(parts[2]);
+      keyRow = Integer.parseInt(parts[TOKEN_PARTS - 1]);
+      hasKey = true;
+    } catch (IllegalArgumentException error) {
+      throw new InvalidCredentialsException("Некорректный токен продолжения!");
+    }
+  }
+
+  // Позиция сразу за ключом в порядке обхода. В индексе равное время упорядочено по номеру строки
+  private int resumePosition() {
+    if (order == Order.OLDEST_FIRST) {
+      int next = Math.max(first, store.lowerBound(keyNanos));
+      while (next < last && isKeyOrBefore(store.rowAtTime(next), true)) {
+        next++;
+      }
+      return next;
+    }
+
+    int next = Math.min(last, store.upperBound(keyNanos)) - 1;
+    while (next >= first && isKeyOrBefore(store.rowAtTime(next), false)) {
+      next--;
+    }
+    return next;
+  }
+
+  // Выдана ли строка с тем же временем, что и ключ, до ключа или вместе с ним
+  private boolean isKeyOrBefore(int row, boolean ascending) {
+    return store.getTimestamp(row) == keyNanos && (ascending ? row <= keyRow : row >= keyRow);
+  }
+}
@@ -0,0 +1,29 @@
+package oop.finance.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/** Страница транзакций и токен продолжения для получения следующей страницы */
+public class TransactionPage {
+  private final List<Transaction> transactions;
+  private final String nextToken;
+
+  // nextToken - null, если страница последняя
+  public TransactionPage(List<Transaction> transactions, String nextToken) {
+    this.transactions = Collections.unmodifiableList(transactions);
+    this.nextToken = nextToken;
+  }
+
+  public List<Transaction> getTransactions() {
+    return transactions;
+  }
+
+  public String getNextToken() {
+    return nextToken;
+  }
+
+  // Есть ли следующая страница
+  public boolean hasNext() {
+    return nextToken != null;
+  }
+}
@@ -0,0 +1,474 @@
+package oop.finance.model;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.UUID;
+import oop.finance.utils.DateTimeUtils;
+
+/**
+ * Поколоночное хранение истории транзакций кошелька. Каждое поле транзакции лежит в отдельном
+ * примитивном массиве (время в наносекундах от эпохи, сумма, номер категории, UUID как два long),
+ * признак дохода - в битовой колонке из слов long. Объекты Transaction создаются только по запросу,
+ * а агрегаты по всей истории считаются последовательным проходом по массивам. Для запросов по
+ * периоду поддерживаются хронологический индекс строк и итоги по дням и месяцам.
+ *
+ * <p>Номера категорий локальны для кошелька: плотные 0, 1, 2, ... в порядке появления, каждому
+ * соответствует номер из общего словаря CategoryDictionary. Поэтому массивы итогов по категориям
+ * растут с числом категорий кошелька, а не с числом категорий всех пользователей
+ */
+public class TransactionStore {
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int INITIAL_CATEGORIES = 8;
+  private static final int UUID_LENGTH = 36;
+  private static final int[] UUID_DASHES = {8, 13, 18, 23};
+  // строк в слове колонки признака дохода - 2^WORD_SHIFT
+  private static final int WORD_SHIFT = 6;
+
+  private int size;
+  private long[] timestamps;
+  private double[] amounts;
+  private int[] categoryIds;
+  private long[] idHigh;
+  private long[] idLow;
+  // признак дохода: строка i - бит i % 64 слова i / 64 (колонка отдается ядру суммирования без
+  // копии)
+  private long[] incomeWords;
+  // идентификаторы, которые не являются каноничным UUID (редкость, поэтому хранятся отдельно)
+  private final BitSet textIdRows = new BitSet();
+  private final Map<Integer, String> textIds = new HashMap<>();
+  private final CategoryDictionary dictionary = CategoryDictionary.global();
+  // локальные номера категорий по названию и номер общего словаря по локальному номеру
+  private final Map<String, Integer> localIds = new HashMap<>();
+  private String[] categoryNames = new String[0];
+  private int[] globalIds = new int[0];
+  private int categoryCount;
+  // локальные номера категорий, встречающихся в истории кошелька
+  private final BitSet usedCategories = new BitSet();
+  // нарастающие итоги: общие и по номерам категорий, отдельно для доходов и расходов
+  private double totalIncome;
+  private double totalExpense;
+  private double[] incomeByCategory = new double[0];
+  private double[] expenseByCategory = new double[0];
+  private int[] incomeCounts = new int[0];
+  private int[] expenseCounts = new int[0];
+  private final BitSet incomeCategories = new BitSet();
+  private final BitSet expenseCategories = new BitSet();
+  // итоги и количества транзакций без категории: [0] - расходы, [1] - доходы
+  private final double[] uncategorizedTotals = new double[2];
+  private final int[] uncategorizedCounts = new int[2];
+  private final TimeIndex timeIndex;
+  private final TimeRollups rollups = new TimeRollups();
+
+  public TransactionStore() {
+    this(INITIAL_CAPACITY);
+  }
+
+  public TransactionStore(int capacity) {
+    int initial = Math.max(capacity, 1);
+    timestamps = new long[initial];
+    amounts = new double[initial];
+    categoryIds = new int[initial];
+    idHigh = new long[initial];
+    idLow = new long[initial];
+    incomeWords = new long[wordsFor(initial)];
+    timeIndex = new TimeIndex(initial);
+  }
+
+  public TransactionStore(List<Transaction> transactions) {
+    this(transactions.size());
+    transactions.forEach(this::add);
+  }
+
+  // Добавляет транзакцию, раскладывая ее поля по колонкам. Возвращает номер строки
+  public int add(Transaction transaction) {
+    return add(
+        transaction.getId(),
+        transaction.getCreatedAt(),
+        transaction.getAmount(),
+        transaction.getCategory(),
+        transaction.isIncome());
+  }
+
+  // Добавляет транзакцию по значениям полей (используется при загрузке)
+  public int add(
+      String id, LocalDateTime createdAt, double amount, String category, boolean isIncome) {
+    UUID uuid = parseUuid(id);
+    long epochNanos = createdAt != null ? toStoredNanos(createdAt) : Long.MIN_VALUE;
+    if (uuid != null) {
+      return add(
+          uuid.getMostSignificantBits(),
+          uuid.getLeastSignificantBits(),
+          epochNanos,
+          amount,
+          category,
+          isIncome);
+    }
+
+    int row = add(0, 0, epochNanos, amount, category, isIncome);
+    textIdRows.set(row);
+    textIds.put(row, id);
+    return row;
+  }
+
+  // Время транзакции в колонке timestamps. Даты, не помещающиеся в наносекунды long, и сама
+  // отметка Long.MIN_VALUE (транзакция без даты) отклоняются, а не приводятся к границе
+  private static long toStoredNanos(LocalDateTime createdAt) {
+    long epochNanos;
+    try {
+      epochNanos = DateTimeUtils.toEpochNanosExact(createdAt);
+    } catch (ArithmeticException error) {
+      epochNanos = Long.MIN_VALUE;
+    }
+    if (epochNanos == Long.MIN_VALUE) {
+      throw new IllegalArgumentException(
+          "Дата транзакции " + createdAt + " вне поддерживаемого диапазона (1677-2262 годы)");
+    }
+    return epochNanos;
+  }
+
+  // Добавляет транзакцию с идентификатором UUID, заданным двумя long
+  public int add(
+      long uuidHigh,
+      long uuidLow,
+      long epochNanos,
+      double amount,
+      String category,
+      boolean isIncome) {
+    ensureCapacity(size + 1);
+    int row = size++;
+    idHigh[row] = uuidHigh;
+    idLow[row] = uuidLow;
+    timestamps[row] = epochNanos;
+    amounts[row] = amount;
+    if (isIncome) {
+      incomeWords[row >>> WORD_SHIFT] |= 1L << row;
+    }
+    int categoryId = internCategory(category);
+    categoryIds[row] = categoryId;
+    if (categoryId != CategoryDictionary.NO_CATEGORY) {
+      usedCategories.set(categoryId);
+    }
+    addToTotals(categoryId, amount, isIncome);
+    timeIndex.add(row, timestamps);
+    rollups.add(epochNanos, categoryId, isIncome, amount);
+    return row;
+  }
+
+  // Локальный номер категории; новая категория получает следующий номер кошелька и регистрируется
+  // в общем словаре
+  public int internCategory(String category) {
+    if (category == null) {
+      return CategoryDictionary.NO_CATEGORY;
+    }
+    Integer id = localIds.get(category);
+    if (id != null) {
+      return id;
+    }
+
+    int localId = categoryCount++;
+    if (localId == categoryNames.length) {
+      int length = Math.max(INITIAL_CATEGORIES, localId * 2);
+      categoryNames = Arrays.copyOf(categoryNames, length);
+      globalIds = Arrays.copyOf(globalIds, length);
+    }
+    categoryNames[localId] = category;
+    globalIds[localId] = dictionary.intern(category);
+    localIds.put(category, localId);
+    return localId;
+  }
+
+  // Локальный номер уже известной категории или NO_CATEGORY
+  public int categoryIdOf(String category) {
+    if (category == null) {
+      return CategoryDictionary.NO_CATEGORY;
+    }
+    Integer id = localIds.get(category);
+    return id != null ? id : CategoryDictionary.NO_CATEGORY;
+  }
+
+  // Название категории по локальному номеру (null для NO_CATEGORY)
+  public String categoryName(int categoryId) {
+    return categoryId == CategoryDictionary.NO_CATEGORY ? null : categoryNames[categoryId];
+  }
+
+  // Номер категории в общем словаре по локальному номеру
+  public int globalCategoryId(int categoryId) {
+    return categoryId == CategoryDictionary.NO_CATEGORY
+        ? CategoryDictionary.NO_CATEGORY
+        : globalIds[categoryId];
+  }
+
+  // Обновляет нарастающие итоги и количества: общие, по категориям и для транзакций без категории
+  private void addToTotals(int categoryId, double amount, boolean isIncome) {
+    if (isIncome) {
+      totalIncome += amount;
+    } else {
+      totalExpense += amount;
+    }
+    if (categoryId == CategoryDictionary.NO_CATEGORY) {
+      uncategorizedTotals[isIncome ? 1 : 0] += amount;
+      uncategorizedCounts[isIncome ? 1 : 0]++;
+      return;
+    }
+
+    if (categoryId >= incomeByCategory.length) {
+      int length = Math.max(categoryId + 1, incomeByCategory.length * 2);
+      incomeByCategory = Arrays.copyOf(incomeByCategory, length);
+      expenseByCategory = Arrays.copyOf(expenseByCategory, length);
+      incomeCounts = Arrays.copyOf(incomeCounts, length);
+      expenseCounts = Arrays.copyOf(expenseCounts, length);
+    }
+    if (isIncome) {
+      incomeByCategory[categoryId] += amount;
+      incomeCounts[categoryId]++;
+      incomeCategories.set(categoryId);
+    } else {
+      expenseByCategory[categoryId] += amount;
+      expenseCounts[categoryId]++;
+      expenseCategories.set(categoryId);
+    }
+  }
+
+  // Количество транзакций
+  public int size() {
+    return size;
+  }
+
+  // Собирает объект транзакции для строки (новый объект при каждом вызове)
+  public Transaction get(int row) {
+    checkRow(row);
+    LocalDateTime createdAt =
+        timestamps[row] == Long.MIN_VALUE ? null : DateTimeUtils.fromEpochNanos(timestamps[row]);
+    return new Transaction(getId(row), createdAt, amounts[row], getCategory(row), isIncome(row));
+  }
+
+  // Представление истории в виде неизменяемого списка, элементы которого создаются при обращении
+  public List<Transaction> asList() {
+    return new TransactionList();
+  }
+
+  // Сумма транзакций нужного типа по всей истории (из нарастающего итога)
+  public double sum(boolean isIncome) {
+    return isIncome ? totalIncome : totalExpense;
+  }
+
+  // Сумма транзакций нужного типа по одной категории
+  public double sum(boolean isIncome, String category) {
+    int categoryId = categoryIdOf(category);
+    // неизвестная категория не должна попасть в итог транзакций без категории
+    if (categoryId == CategoryDictionary.NO_CATEGORY && category != null) {
+      return 0;
+    }
+    return sum(isIncome, categoryId);
+  }
+
+  // Сумма транзакций нужного типа по локальному номеру категории (для NO_CATEGORY - без категории)
+  public double sum(boolean isIncome, int categoryId) {
+    if (categoryId == CategoryDictionary.NO_CATEGORY) {
+      return uncategorizedTotals[isIncome ? 1 : 0];
+    }
+    if (categoryId < 0 || categoryId >= incomeByCategory.length) {
+      return 0;
+    }
+    return isIncome ? incomeByCategory[categoryId] : expenseByCategory[categoryId];
+  }
+
+  // Количество транзакций нужного типа по локальному номеру категории (NO_CATEGORY - без категории)
+  public int count(boolean isIncome, int categoryId) {
+    if (categoryId == CategoryDictionary.NO_CATEGORY) {
+      return uncategorizedCounts[isIncome ? 1 : 0];
+    }
+    if (categoryId < 0 || categoryId >= incomeCounts.length) {
+      return 0;
+    }
+    return isIncome ? incomeCounts[categoryId] : expenseCounts[categoryId];
+  }
+
+  // Есть ли в истории транзакции без категории
+  public boolean hasUncategorized() {
+    return uncategorizedCounts[0] + uncategorizedCounts[1] > 0;
+  }
+
+  // Локальные номера категорий, в которых есть транзакции нужного типа (копия)
+  public BitSet getCategories(boolean isIncome) {
+    return (BitSet) (isIncome ? incomeCategories : expenseCategories).clone();
+  }
+
+  // Сумма транзакций нужного типа за целые дни [fromDay, toDay] (номера дней от эпохи, UTC)
+  // по итогам дней и месяцев: O(log месяцев) без обращения к самим транзакциям
+  public double sumDays(boolean isIncome, long fromDay, long toDay) {
+    return rollups.sum(isIncome, fromDay, toDay);
+  }
+
+  // Сумма транзакций нужного типа по локальному номеру категории за целые дни [fromDay, toDay]
+  public double sumDays(boolean isIncome, int categoryId, long fromDay, long toDay) {
+    return rollups.sum(isIncome, categoryId, fromDay, toDay);
+  }
+
+  // Количество транзакций нужного типа по локальному номеру категории за дни [fromDay, toDay]
+  public int countDays(boolean isIncome, int categoryId, long fromDay, long toDay) {
+    return rollups.count(isIncome, categoryId, fromDay, toDay);
+  }
+
+  // Оценка памяти, занимаемой итогами по дням и месяцам, в байтах
+  public long getRollupBytes() {
+    return rollups.estimateBytes();
+  }
+
+  // Позиция в хронологическом порядке первой транзакции не раньше fromNanos: O(log n)
+  public int lowerBound(long fromNanos) {
+    return timeIndex.lowerBound(timestamps, fromNanos);
+  }
+
+  // Позиция в хронологическом порядке первой транзакции позже toNanos: O(log n)
+  public int upperBound(long toNanos) {
+    return timeIndex.upperBound(timestamps, toNanos);
+  }
+
+  // Номер строки по позиции в хронологическом порядке
+  public int rowAtTime(int position) {
+    if (position < 0 || position >= size) {
+      throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size);
+    }
+    return timeIndex.rowAt(position, timestamps);
+  }
+
+  // Доступ к отдельным колонкам строки
+  public long getTimestamp(int row) {
+    checkRow(row);
+    return timestamps[row];
+  }
+
+  public double getAmount(int row) {
+    checkRow(row);
+    return amounts[row];
+  }
+
+  // Локальный номер категории строки
+  public int getCategoryId(int row) {
+    checkRow(row);
+    return categoryIds[row];
+  }
+
+  public String getCategory(int row) {
+    return categoryName(getCategoryId(row));
+  }
+
+  public boolean isIncome(int row) {
+    checkRow(row);
+    return (incomeWords[row >>> WORD_SHIFT] & (1L << row)) != 0;
+  }
+
+  // Хранится ли идентификатор строки в виде UUID (два long)
+  public boolean hasUuid(int row) {
+    checkRow(row);
+    return !textIdRows.get(row);
+  }
+
+  public long getUuidHigh(int row) {
+    checkRow(row);
+    return idHigh[row];
+  }
+
+  public long getUuidLow(int row) {
+    checkRow(row);
+    return idLow[row];
+  }
+
+  public String getId(int row) {
+    checkRow(row);
+    return hasUuid(row) ? new UUID(idHigh[row], idLow[row]).toString() : textIds.get(row);
+  }
+
+  // Локальные номера категорий, встречающихся в истории (копия)
+  public BitSet getUsedCategories() {
+    return (BitSet) usedCategories.clone();
+  }
+
+  // Граница локальных номеров категорий: все номера меньше нее (размер массивов для группировки)
+  public int getCategoryBound() {
+    return categoryCount;
+  }
+
+  // Прямой доступ к колонкам для скомпилированных планов запросов. Массивы могут быть длиннее
+  // size и заменяются при росте хранилища, поэтому их нельзя сохранять между запросами
+  long[] timestampColumn() {
+    return timestamps;
+  }
+
+  double[] amountColumn() {
+    return amounts;
+  }
+
+  int[] categoryColumn() {
+    return categoryIds;
+  }
+
+  long[] incomeColumn() {
+    return incomeWords;
+  }
+
+  int[] timeOrder() {
+    return timeIndex.sorted(timestamps);
+  }
+
+  private void ensureCapacity(int required) {
+    if (required <= timestamps.length) {
+      return;
+    }
+
+    int capacity = Math.max(required, timestamps.length * 2);
+    timestamps = Arrays.copyOf(timestamps, capacity);
+    amounts = Arrays.copyOf(amounts, capacity);
+    categoryIds = Arrays.copyOf(categoryIds, capacity);
+    idHigh = Arrays.copyOf(idHigh, capacity);
+    idLow = Arrays.copyOf(idLow, capacity);
+    incomeWords = Arrays.copyOf(incomeWords, wordsFor(capacity));
+  }
+
+  private static int wordsFor(int rows) {
+    return (rows + Long.SIZE - 1) >>> WORD_SHIFT;
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + size);
+    }
+  }
+
+  // Разбирает только каноничную запись UUID (36 символов, строчные hex-цифры), которая
+  // гарантированно восстанавливается из двух long в исходную строку
+  private static UUID parseUuid(String id) {
+    if (id == null || id.length() != UUID_LENGTH) {
+      return null;
+    }
+    for (int i = 0; i < UUID_LENGTH; i++) {
+      char symbol = id.charAt(i);
+      boolean dash = Arrays.binarySearch(UUID_DASHES, i) >= 0;
+      boolean hex = (symbol >= '0' && symbol <= '9') || (symbol >= 'a' && symbol <= 'f');
+      if (dash ? symbol != '-' : !hex) {
+        return null;
+      }
+    }
+    return UUID.fromString(id);
+  }
+
+  /** Неизменяемый список-представление, создающий транзакции по мере обращения */
+  private class TransactionList extends AbstractList<Transaction> implements RandomAccess {
+    @Override
+    public Transaction get(int index) {
+      return TransactionStore.this.get(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package oop.finance.model;
 
+import java.time.LocalDateTime;
 import java.util.Objects;
 import oop.finance.model.base.BaseEntity;
 
@@ -8,11 +9,31 @@ public class User extends BaseEntity {
   private String login;
   private String password;
   private Wallet wallet;
+  private transient boolean dirty;
 
   public User(String login, String password) {
     this.login = login;
     this.password = password;
     this.wallet = new Wallet(id);
+    this.dirty = true;
+  }
+
+  public User(String id, LocalDateTime createdAt, String login, String password, Wallet wallet) {
+    super(id, createdAt);
+    this.login = login;
+    this.password = password;
+    this.wallet = wallet;
+  }
+
+  // Изменялся ли пользователь или его кошелек с момента последнего сохранения
+  public boolean isDirty() {
+    return dirty || wallet.isDirty();
+  }
+
+  // Снимает отметку об изменениях после сохранения
+  public void markClean() {
+    dirty = false;
+    wallet.markClean();
   }
 
   // Геттеры
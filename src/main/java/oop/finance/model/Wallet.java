@@ -1,51 +1,169 @@
 package oop.finance.model;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import oop.finance.model.base.BaseEntity;
+import oop.finance.model.event.WalletListener;
+import oop.finance.utils.DateTimeUtils;
 
 /**
  * Модель кошелька пользователя. В будущем планируется добавить возможность добавлять несколько
- * бюджетов сразу
+ * бюджетов сразу.
+ *
+ * <p>Изменения кошелька выполняются под его монитором: под ним же снимок пользователей, который
+ * пишется в фоновом потоке, читает кошелек, поэтому в снимок не попадает наполовину примененное
+ * изменение
  */
 public class Wallet extends BaseEntity {
   private double balance;
-  private List<Transaction> transactions;
+  private TransactionStore transactions;
   private Map<String, Budget> budgets;
+  // бюджеты, индексированные локальным номером категории хранилища
+  private transient Budget[] budgetsByCategory = new Budget[0];
+  // эскизы распределения сумм по категориям
+  private CategorySketches sketches;
+  private long version;
+  private transient boolean dirty;
+  private transient List<WalletListener> listeners;
 
   public Wallet(String userId) {
     this.balance = 0;
-    this.transactions = new ArrayList<>();
+    this.transactions = new TransactionStore();
     this.budgets = new HashMap<>();
+    this.sketches = new CategorySketches(this.transactions);
     this.id = userId;
   }
 
   public Wallet(double balance, List<Transaction> transactions, Map<String, Budget> budgets) {
     this.balance = balance;
+    this.transactions = new TransactionStore(transactions);
+    this.budgets = budgets;
+    this.sketches = CategorySketches.of(this.transactions);
+    indexBudgets();
+  }
+
+  // Восстановление сохраненного кошелька без пересчета баланса и бюджетов
+  public Wallet(
+      String id,
+      LocalDateTime createdAt,
+      double balance,
+      long version,
+      TransactionStore transactions,
+      Map<String, Budget> budgets) {
+    this(id, createdAt, balance, version, transactions, budgets, null);
+  }
+
+  // Восстановление сохраненного кошелька вместе с эскизами; если эскизы не сохранялись (null),
+  // они строятся по истории
+  public Wallet(
+      String id,
+      LocalDateTime createdAt,
+      double balance,
+      long version,
+      TransactionStore transactions,
+      Map<String, Budget> budgets,
+      CategorySketches sketches) {
+    super(id, createdAt);
+    this.balance = balance;
+    this.version = version;
     this.transactions = transactions;
     this.budgets = budgets;
+    this.sketches = sketches != null ? sketches : CategorySketches.of(transactions);
+    indexBudgets();
   }
 
   // Метод добавления транзакции с обновлением баланса
-  public void addTransaction(Transaction transaction) {
-    transactions.add(transaction);
+  public synchronized void addTransaction(Transaction transaction) {
+    int row = transactions.add(transaction);
 
     if (transaction.isIncome()) {
       balance += transaction.getAmount();
     } else {
       balance -= transaction.getAmount();
-      updateBudget(transaction);
+      updateBudget(
+          transactions.getCategoryId(row),
+          transaction.getAmount(),
+          Math.floorDiv(transactions.getTimestamp(row), DateTimeUtils.NANOS_PER_DAY));
+    }
+    sketches.add(transactions.getCategoryId(row), transaction.getAmount(), transaction.isIncome());
+
+    markChanged();
+    for (WalletListener listener : getListeners()) {
+      listener.onTransactionAdded(this, transaction);
     }
   }
 
-  // Метод обновления баланса
-  private void updateBudget(Transaction transaction) {
-    Budget budget = budgets.get(transaction.getCategory());
+  // Метод обновления бюджета категории расхода; day - день транзакции (номер дня от эпохи)
+  private void updateBudget(int categoryId, double amount, long day) {
+    Budget budget = budgetFor(categoryId);
     if (budget != null) {
-      budget.addExpense(transaction.getAmount());
+      budget.addExpense(amount, day);
+    }
+  }
+
+  private Budget budgetFor(int categoryId) {
+    return categoryId >= 0 && categoryId < budgetsByCategory.length
+        ? budgetsByCategory[categoryId]
+        : null;
+  }
+
+  // Перестраивает индекс бюджетов по номерам категорий и расходы периодических бюджетов
+  private void indexBudgets() {
+    budgetsByCategory = new Budget[0];
+    budgets.forEach(this::indexBudget);
+    budgets.values().forEach(this::fillPeriod);
+  }
+
+  // Заполняет расходы текущего периода периодического бюджета из дневных итогов истории, поэтому
+  // расходы периода всегда соответствуют истории категории
+  private void fillPeriod(Budget budget) {
+    if (!budget.isPeriodic()) {
+      return;
+    }
+    int categoryId = transactions.categoryIdOf(budget.getCategory());
+    budget.fillPeriod(
+        day ->
+            categoryId == CategoryDictionary.NO_CATEGORY
+                ? 0
+                : transactions.sumDays(false, categoryId, day, day));
+  }
+
+  private void indexBudget(String category, Budget budget) {
+    int categoryId =
+        budget != null
+            ? transactions.internCategory(category)
+            : transactions.categoryIdOf(category);
+    if (categoryId == CategoryDictionary.NO_CATEGORY) {
+      return;
+    }
+    if (categoryId >= budgetsByCategory.length) {
+      budgetsByCategory = Arrays.copyOf(budgetsByCategory, categoryId + 1);
+    }
+    budgetsByCategory[categoryId] = budget;
+  }
+
+  // Отмечает изменение кошелька: увеличивает версию и помечает кошелек несохраненным
+  private void markChanged() {
+    version++;
+    dirty = true;
+  }
+
+  // Подписывает слушателя на изменения кошелька (слушатели не сериализуются)
+  public void addListener(WalletListener listener) {
+    getListeners().add(listener);
+  }
+
+  private List<WalletListener> getListeners() {
+    // после десериализации Gson transient-поле не инициализировано
+    if (listeners == null) {
+      listeners = new ArrayList<>();
     }
+    return listeners;
   }
 
   // Геттеры и сеттеры
@@ -53,40 +171,90 @@ public class Wallet extends BaseEntity {
     return balance;
   }
 
-  public void setBalance(double balance) {
+  public synchronized void setBalance(double balance) {
     this.balance = balance;
+    dirty = true;
   }
 
+  // Неизменяемое представление истории: транзакции создаются при обращении к элементам
   public List<Transaction> getTransactions() {
+    return transactions.asList();
+  }
+
+  // Поколоночное хранилище истории для агрегирующих проходов без создания объектов
+  public TransactionStore getTransactionStore() {
     return transactions;
   }
 
-  public void setTransactions(List<Transaction> transactions) {
-    this.transactions = transactions;
+  public synchronized void setTransactions(List<Transaction> transactions) {
+    this.transactions = new TransactionStore(transactions);
+    this.sketches = CategorySketches.of(this.transactions);
+    // локальные номера категорий нового хранилища другие: индекс бюджетов строится заново
+    indexBudgets();
+    dirty = true;
+  }
+
+  // Сумма расходов категории за всю историю из поколоночных итогов хранилища (без прохода по
+  // истории)
+  public double getExpenses(String category) {
+    return transactions.sum(false, category);
+  }
+
+  // Эскизы распределения сумм транзакций по категориям
+  public CategorySketches getSketches() {
+    return sketches;
   }
 
+  // Неизменяемое представление бюджетов (изменение - через setBudget)
   public Map<String, Budget> getBudgets() {
-    return budgets;
+    return Collections.unmodifiableMap(budgets);
   }
 
   public List<Budget> getBudgetsList() {
     return new ArrayList<>(budgets.values());
   }
 
-  public void setBudgets(Map<String, Budget> budgets) {
+  public synchronized void setBudgets(Map<String, Budget> budgets) {
     this.budgets = budgets;
+    indexBudgets();
+    dirty = true;
   }
 
   public void setBudget(Budget budget) {
-    budgets.put(budget.getCategory(), budget);
+    setBudget(budget, null);
   }
 
-  public void setBudget(Budget budget, String oldCategory) {
-    budgets.remove(oldCategory);
-    setBudget(budget);
+  public synchronized void setBudget(Budget budget, String oldCategory) {
+    if (oldCategory != null) {
+      budgets.remove(oldCategory);
+      indexBudget(oldCategory, null);
+    }
+    budgets.put(budget.getCategory(), budget);
+    indexBudget(budget.getCategory(), budget);
+    fillPeriod(budget);
+
+    markChanged();
+    for (WalletListener listener : getListeners()) {
+      listener.onBudgetChanged(this, budget, oldCategory);
+    }
   }
 
   public Budget getBudget(String category) {
-    return budgets.get(category);
+    return budgetFor(transactions.categoryIdOf(category));
+  }
+
+  // Изменялся ли кошелек с момента последнего сохранения
+  public boolean isDirty() {
+    return dirty;
+  }
+
+  // Снимает отметку об изменениях после сохранения
+  public void markClean() {
+    dirty = false;
+  }
+
+  // Номер версии кошелька, увеличивается при каждом изменении транзакций или бюджетов
+  public long getVersion() {
+    return version;
   }
 }
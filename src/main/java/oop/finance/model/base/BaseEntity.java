@@ -14,6 +14,12 @@ public abstract class BaseEntity implements Serializable {
     this.createdAt = LocalDateTime.now();
   }
 
+  // Восстановление сущности с сохраненными идентификатором и датой создания
+  protected BaseEntity(String id, LocalDateTime createdAt) {
+    this.id = id;
+    this.createdAt = createdAt;
+  }
+
   public String getId() {
     return id;
   }
@@ -0,0 +1,14 @@
+package oop.finance.model.event;
+
+import oop.finance.model.Budget;
+import oop.finance.model.Transaction;
+import oop.finance.model.Wallet;
+
+/** Слушатель изменений кошелька. Получает уведомления о новых транзакциях и изменении бюджетов */
+public interface WalletListener {
+  // Вызывается после добавления транзакции в кошелек
+  void onTransactionAdded(Wallet wallet, Transaction transaction);
+
+  // Вызывается после установки, изменения или переименования бюджета
+  void onBudgetChanged(Wallet wallet, Budget budget, String oldCategory);
+}
@@ -0,0 +1,83 @@
+package oop.finance.model.kernel;
+
+/** Скалярная реализация ядра суммирования, повторяющая порядок операций векторной */
+class ScalarSumKernel implements SumKernel {
+  private static final int WORD_SHIFT = 6;
+
+  @Override
+  public void sum(
+      double[] amounts,
+      long[] timestamps,
+      long[] incomeWords,
+      int size,
+      long from,
+      long to,
+      double[] sums) {
+    Lanes lanes = new Lanes();
+    lanes.accumulate(amounts, timestamps, incomeWords, 0, size, from, to);
+    sums[EXPENSE] = lanes.total(EXPENSE);
+    sums[INCOME] = lanes.total(INCOME);
+  }
+
+  @Override
+  public String name() {
+    return "scalar";
+  }
+
+  /** Компенсированные суммы дорожек для расходов и доходов */
+  static final class Lanes {
+    private final double[][] sums = new double[2][];
+    private final double[][] compensations = new double[2][];
+
+    Lanes() {
+      this(new double[LANES], new double[LANES], new double[LANES], new double[LANES]);
+    }
+
+    Lanes(
+        double[] expenseSums,
+        double[] expenseCompensations,
+        double[] incomeSums,
+        double[] incomeCompensations) {
+      sums[EXPENSE] = expenseSums;
+      compensations[EXPENSE] = expenseCompensations;
+      sums[INCOME] = incomeSums;
+      compensations[INCOME] = incomeCompensations;
+    }
+
+    // Добавляет строки [first, last) к суммам дорожек
+    void accumulate(
+        double[] amounts,
+        long[] timestamps,
+        long[] incomeWords,
+        int first,
+        int last,
+        long from,
+        long to) {
+      for (int row = first; row < last; row++) {
+        int word = row >>> WORD_SHIFT;
+        boolean income = word < incomeWords.length && (incomeWords[word] & (1L << row)) != 0;
+        boolean inPeriod = timestamps[row] >= from && timestamps[row] <= to;
+        int lane = row % LANES;
+        // отфильтрованная строка добавляет 0, как выключенная дорожка векторного ядра
+        add(EXPENSE, lane, inPeriod && !income ? amounts[row] : 0);
+        add(INCOME, lane, inPeriod && income ? amounts[row] : 0);
+      }
+    }
+
+    // Итог дорожек одного типа транзакций
+    double total(int side) {
+      return SumKernel.combine(sums[side], compensations[side]);
+    }
+
+    private void add(int side, int lane, double value) {
+      double sum = sums[side][lane];
+      double next = sum + value;
+      if (Math.abs(sum) >= Math.abs(value)) {
+        compensations[side][lane] += (sum - next) + value;
+      } else {
+        compensations[side][lane] += (value - next) + sum;
+      }
+      sums[side][lane] = next;
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package oop.finance.model.kernel;
+
+/**
+ * Ядро суммирования колонки сумм с фильтром по времени, раздельно для расходов и доходов. Строки
+ * распределяются по LANES дорожкам (строка i - дорожка i % LANES), каждая дорожка суммирует с
+ * компенсацией ошибки округления (алгоритм Ноймайера), затем дорожки складываются по порядку.
+ * Поэтому векторная и скалярная реализации дают одинаковый до бита результат
+ */
+public interface SumKernel {
+  int LANES = 4;
+  int EXPENSE = 0;
+  int INCOME = 1;
+  String VECTOR_MODULE = "jdk.incubator.vector";
+
+  // Суммирует amounts строк [0, size) со временем в [from, to]. incomeWords - признак дохода по
+  // 64 строки в слове (строка i - бит i % 64 слова i / 64). Результат: sums[EXPENSE] и sums[INCOME]
+  void sum(
+      double[] amounts,
+      long[] timestamps,
+      long[] incomeWords,
+      int size,
+      long from,
+      long to,
+      double[] sums);
+
+  // Название реализации (для бенчмарков и диагностики)
+  String name();
+
+  // Векторное ядро, если модуль jdk.incubator.vector подключен (--add-modules), иначе скалярное
+  static SumKernel preferred() {
+    SumKernel vector = vector();
+    return vector != null ? vector : scalar();
+  }
+
+  // Векторное ядро или null, если модуль jdk.incubator.vector не подключен
+  static SumKernel vector() {
+    if (!ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+      return null;
+    }
+    try {
+      // класс загружается по имени, чтобы без модуля не возникало ошибки связывания
+      return (SumKernel)
+          Class.forName("oop.finance.model.kernel.VectorSumKernel")
+              .getDeclaredConstructor()
+              .newInstance();
+    } catch (ReflectiveOperationException | LinkageError error) {
+      return null;
+    }
+  }
+
+  // Скалярное ядро
+  static SumKernel scalar() {
+    return new ScalarSumKernel();
+  }
+
+  // Складывает компенсированные суммы дорожек в фиксированном порядке
+  static double combine(double[] laneSums, double[] laneCompensations) {
+    double sum = 0;
+    double compensation = 0;
+    for (int lane = 0; lane < laneSums.length; lane++) {
+      double value = laneSums[lane] + laneCompensations[lane];
+      double next = sum + value;
+      if (Math.abs(sum) >= Math.abs(value)) {
+        compensation += (sum - next) + value;
+      } else {
+        compensation += (value - next) + sum;
+      }
+      sum = next;
+    }
+    return sum + compensation;
+  }
+}
@@ -0,0 +1,93 @@
+package oop.finance.model.kernel;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Реализация ядра суммирования на jdk.incubator.vector: LANES строк за шаг, фильтры по времени и
+ * типу транзакции - маски дорожек. Класс загружается только через SumKernel.preferred()
+ */
+class VectorSumKernel implements SumKernel {
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_256;
+  private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_256;
+  private static final int WORD_SHIFT = 6;
+  private static final int WORD_MASK = 63;
+  // бит признака дохода для каждой дорожки
+  private static final LongVector LANE_BITS =
+      LongVector.broadcast(LONGS, 1)
+          .lanewise(VectorOperators.LSHL, LongVector.zero(LONGS).addIndex(1));
+
+  @Override
+  public void sum(
+      double[] amounts,
+      long[] timestamps,
+      long[] incomeWords,
+      int size,
+      long from,
+      long to,
+      double[] sums) {
+    DoubleVector zero = DoubleVector.zero(DOUBLES);
+    DoubleVector expense = zero;
+    DoubleVector expenseCompensation = zero;
+    DoubleVector income = zero;
+    DoubleVector incomeCompensation = zero;
+    int bound = LONGS.loopBound(size);
+    for (int row = 0; row < bound; row += LANES) {
+      LongVector time = LongVector.fromArray(LONGS, timestamps, row);
+      VectorMask<Double> inPeriod =
+          time.compare(VectorOperators.GE, from)
+              .and(time.compare(VectorOperators.LE, to))
+              .cast(DOUBLES);
+
+      // строка кратна LANES, поэтому биты дорожек не пересекают границу слова
+      int word = row >>> WORD_SHIFT;
+      long bits = word < incomeWords.length ? incomeWords[word] >>> (row & WORD_MASK) : 0;
+      VectorMask<Double> isIncome =
+          LongVector.broadcast(LONGS, bits)
+              .and(LANE_BITS)
+              .compare(VectorOperators.NE, 0)
+              .cast(DOUBLES);
+
+      // выключенные дорожки добавляют 0
+      DoubleVector amount = DoubleVector.fromArray(DOUBLES, amounts, row);
+      DoubleVector expenseAmounts = zero.blend(amount, inPeriod.andNot(isIncome));
+      DoubleVector incomeAmounts = zero.blend(amount, inPeriod.and(isIncome));
+
+      DoubleVector nextExpense = expense.add(expenseAmounts);
+      expenseCompensation =
+          expenseCompensation.add(compensation(expense, expenseAmounts, nextExpense));
+      expense = nextExpense;
+      DoubleVector nextIncome = income.add(incomeAmounts);
+      incomeCompensation = incomeCompensation.add(compensation(income, incomeAmounts, nextIncome));
+      income = nextIncome;
+    }
+
+    ScalarSumKernel.Lanes lanes =
+        new ScalarSumKernel.Lanes(
+            expense.toArray(),
+            expenseCompensation.toArray(),
+            income.toArray(),
+            incomeCompensation.toArray());
+    // неполный последний шаг досчитывается скалярно по тем же дорожкам
+    lanes.accumulate(amounts, timestamps, incomeWords, bound, size, from, to);
+    sums[EXPENSE] = lanes.total(EXPENSE);
+    sums[INCOME] = lanes.total(INCOME);
+  }
+
+  @Override
+  public String name() {
+    return "vector";
+  }
+
+  // Поправка Ноймайера для шага sum + value = next по каждой дорожке
+  private static DoubleVector compensation(
+      DoubleVector sum, DoubleVector value, DoubleVector next) {
+    VectorMask<Double> sumLarger = sum.abs().compare(VectorOperators.GE, value.abs());
+    DoubleVector fromSum = sum.sub(next).add(value);
+    DoubleVector fromValue = value.sub(next).add(sum);
+    return fromValue.blend(fromSum, sumLarger);
+  }
+}
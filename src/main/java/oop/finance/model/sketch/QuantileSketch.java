@@ -0,0 +1,218 @@
+package oop.finance.model.sketch;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Потоковый эскиз квантилей в стиле KLL. Значения копятся на уровнях: элемент уровня h заменяет 2^h
+ * исходных значений. Когда уровень заполняется, он сортируется и через один элемент переносится на
+ * уровень выше (сжатие), так что число хранимых значений не превышает примерно 3k при любом размере
+ * истории. Ошибка ранга - порядка 1/k.
+ *
+ * <p>Смещение при сжатии чередуется по счетчику сжатий, а не выбирается случайно, поэтому
+ * содержимое эскиза полностью определяется последовательностью значений и может быть сохранено и
+ * восстановлено. Эскизы с одинаковым k можно сливать
+ */
+public class QuantileSketch {
+  public static final int DEFAULT_K = 128;
+  // во сколько раз емкость уровня меньше емкости следующего
+  private static final double DECAY = 2.0 / 3.0;
+  private static final int MIN_CAPACITY = 8;
+
+  private final int k;
+  private double[][] levels = new double[0][];
+  private int[] sizes = new int[0];
+  // емкости уровней меняются только при добавлении уровня
+  private int[] capacities = new int[0];
+  private int totalCapacity;
+  private int retained;
+  private long count;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+  private long compactions;
+
+  public QuantileSketch() {
+    this(DEFAULT_K);
+  }
+
+  public QuantileSketch(int k) {
+    this.k = Math.max(k, MIN_CAPACITY);
+    addLevel();
+  }
+
+  // Восстанавливает сохраненный эскиз; levels[h] - значения уровня h
+  public static QuantileSketch restore(
+      int k, long count, double min, double max, long compactions, List<double[]> levels) {
+    QuantileSketch sketch = new QuantileSketch(k);
+    for (int h = 0; h < levels.size(); h++) {
+      if (h == sketch.levels.length) {
+        sketch.addLevel();
+      }
+      for (double value : levels.get(h)) {
+        sketch.append(h, value);
+      }
+    }
+    sketch.count = count;
+    sketch.min = min;
+    sketch.max = max;
+    sketch.compactions = compactions;
+    return sketch;
+  }
+
+  // Добавляет значение
+  public void add(double value) {
+    count++;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+    append(0, value);
+    compress();
+  }
+
+  // Добавляет все значения другого эскиза
+  public void merge(QuantileSketch other) {
+    if (other.count == 0) {
+      return;
+    }
+    while (levels.length < other.levels.length) {
+      addLevel();
+    }
+    for (int h = 0; h < other.levels.length; h++) {
+      for (int i = 0; i < other.sizes[h]; i++) {
+        append(h, other.levels[h][i]);
+      }
+    }
+    count += other.count;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    compress();
+  }
+
+  // Значение, не меньше которого доля rank всех значений (0 - минимум, 1 - максимум); NaN для
+  // пустого эскиза
+  public double quantile(double rank) {
+    if (count == 0) {
+      return Double.NaN;
+    }
+    if (rank <= 0) {
+      return min;
+    }
+    if (rank >= 1) {
+      return max;
+    }
+
+    double[][] sorted = new double[levels.length][];
+    for (int h = 0; h < levels.length; h++) {
+      sorted[h] = Arrays.copyOf(levels[h], sizes[h]);
+      Arrays.sort(sorted[h]);
+    }
+    // слияние отсортированных уровней с накоплением весов до нужного ранга
+    long target = Math.max(1, (long) Math.ceil(rank * count));
+    int[] positions = new int[levels.length];
+    long weight = 0;
+    while (true) {
+      int next = -1;
+      for (int h = 0; h < sorted.length; h++) {
+        if (positions[h] < sorted[h].length
+            && (next < 0 || sorted[h][positions[h]] < sorted[next][positions[next]])) {
+          next = h;
+        }
+      }
+      if (next < 0) {
+        return max;
+      }
+      double value = sorted[next][positions[next]++];
+      weight += 1L << next;
+      if (weight >= target) {
+        return value;
+      }
+    }
+  }
+
+  public int getK() {
+    return k;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getMin() {
+    return min;
+  }
+
+  public double getMax() {
+    return max;
+  }
+
+  public long getCompactions() {
+    return compactions;
+  }
+
+  // Количество хранимых значений
+  public int getRetained() {
+    return retained;
+  }
+
+  public int getLevelCount() {
+    return levels.length;
+  }
+
+  // Значения уровня h (копия)
+  public double[] getLevel(int h) {
+    return Arrays.copyOf(levels[h], sizes[h]);
+  }
+
+  private void append(int h, double value) {
+    if (sizes[h] == levels[h].length) {
+      levels[h] = Arrays.copyOf(levels[h], 2 * levels[h].length);
+    }
+    levels[h][sizes[h]++] = value;
+    retained++;
+  }
+
+  private void addLevel() {
+    levels = Arrays.copyOf(levels, levels.length + 1);
+    sizes = Arrays.copyOf(sizes, sizes.length + 1);
+    levels[levels.length - 1] = new double[MIN_CAPACITY];
+    capacities = new int[levels.length];
+    totalCapacity = 0;
+    for (int h = 0; h < levels.length; h++) {
+      int depth = levels.length - 1 - h;
+      capacities[h] = Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(DECAY, depth)));
+      totalCapacity += capacities[h];
+    }
+  }
+
+  // Сжимает заполненные уровни, пока число значений не уложится в суммарную емкость
+  private void compress() {
+    while (retained > totalCapacity) {
+      int h = 0;
+      while (sizes[h] < capacities[h]) {
+        h++;
+      }
+      compact(h);
+    }
+  }
+
+  // Переносит каждое второе значение отсортированного уровня на уровень выше; при нечетном
+  // размере наибольшее значение остается на месте
+  private void compact(int h) {
+    if (h + 1 == levels.length) {
+      addLevel();
+    }
+    double[] items = levels[h];
+    int size = sizes[h];
+    Arrays.sort(items, 0, size);
+    int odd = size & 1;
+    int paired = size - odd;
+    int offset = (int) (compactions++ & 1);
+    sizes[h] = 0;
+    retained -= size;
+    for (int i = offset; i < paired; i += 2) {
+      append(h + 1, items[i]);
+    }
+    if (odd == 1) {
+      append(h, items[size - 1]);
+    }
+  }
+}
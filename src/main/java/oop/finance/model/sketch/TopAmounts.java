@@ -0,0 +1,106 @@
+package oop.finance.model.sketch;
+
+import java.util.Arrays;
+
+/**
+ * Наибольшие суммы потока транзакций: двоичная куча ограниченного размера с наименьшей из
+ * отобранных сумм в корне. Новая сумма сравнивается только с корнем, поэтому добавление стоит O(log
+ * capacity), а память не зависит от размера истории
+ */
+public class TopAmounts {
+  public static final int DEFAULT_CAPACITY = 10;
+
+  private final double[] heap;
+  private int size;
+
+  public TopAmounts() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public TopAmounts(int capacity) {
+    this.heap = new double[capacity];
+  }
+
+  // Восстанавливает сохраненную кучу из отобранных сумм
+  public static TopAmounts restore(int capacity, double[] amounts) {
+    TopAmounts top = new TopAmounts(capacity);
+    for (double amount : amounts) {
+      top.add(amount);
+    }
+    return top;
+  }
+
+  // Учитывает сумму, вытесняя наименьшую из отобранных, если куча заполнена
+  public void add(double amount) {
+    if (size < heap.length) {
+      heap[size] = amount;
+      siftUp(size++);
+    } else if (size > 0 && amount > heap[0]) {
+      heap[0] = amount;
+      siftDown(0);
+    }
+  }
+
+  // Добавляет отобранные суммы другой кучи
+  public void merge(TopAmounts other) {
+    for (int i = 0; i < other.size; i++) {
+      add(other.heap[i]);
+    }
+  }
+
+  // Отобранные суммы по убыванию
+  public double[] values() {
+    double[] values = Arrays.copyOf(heap, size);
+    Arrays.sort(values);
+    for (int i = 0, j = values.length - 1; i < j; i++, j--) {
+      double value = values[i];
+      values[i] = values[j];
+      values[j] = value;
+    }
+    return values;
+  }
+
+  public int getCapacity() {
+    return heap.length;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private void siftUp(int index) {
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+      if (heap[parent] <= heap[index]) {
+        return;
+      }
+      swap(parent, index);
+      index = parent;
+    }
+  }
+
+  private void siftDown(int index) {
+    while (true) {
+      int smallest = index;
+      int left = 2 * index + 1;
+      int right = left + 1;
+      if (left < size && heap[left] < heap[smallest]) {
+        smallest = left;
+      }
+      if (right < size && heap[right] < heap[smallest]) {
+        smallest = right;
+      }
+      if (smallest == index) {
+        return;
+      }
+      swap(smallest, index);
+      index = smallest;
+    }
+  }
+
+  private void swap(int first, int second) {
+    double value = heap[first];
+    heap[first] = heap[second];
+    heap[second] = value;
+  }
+}
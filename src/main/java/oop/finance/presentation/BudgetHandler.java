@@ -1,6 +1,7 @@
 package oop.finance.presentation;
 
 import oop.finance.exception.InvalidCredentialsException;
+import oop.finance.model.BudgetPeriod;
 import oop.finance.model.User;
 import oop.finance.model.Wallet;
 import oop.finance.presentation.base.BaseUI;
@@ -23,8 +24,9 @@ public class BudgetHandler extends BaseUI {
       User user = authService.getCurrentUser();
       String category = readString("Введите категорию бюджета: ");
       double amount = readDouble("Введите бюджет: ");
+      BudgetPeriod period = readPeriod();
 
-      budgetService.setBudget(user, category, amount);
+      budgetService.setBudget(user, category, amount, period);
 
       printSuccessNotification("Бюджет успешно установлен!");
     } catch (IllegalArgumentException | InvalidCredentialsException error) {
@@ -32,6 +34,28 @@ public class BudgetHandler extends BaseUI {
     }
   }
 
+  // Запрашивает период бюджета; null - бюджет на все время
+  private BudgetPeriod readPeriod() {
+    System.out.println("1 - Без периода");
+    System.out.println("2 - Календарный месяц");
+    System.out.println("3 - Календарная неделя");
+    System.out.println("4 - Последние N дней");
+    String choice = readString("Выберите период бюджета: ");
+
+    switch (choice) {
+      case "1":
+        return null;
+      case "2":
+        return BudgetPeriod.month();
+      case "3":
+        return BudgetPeriod.week();
+      case "4":
+        return BudgetPeriod.rollingDays((int) readDouble("Введите количество дней: "));
+      default:
+        throw new InvalidCredentialsException("Некорректный период бюджета!");
+    }
+  }
+
   // Отображает текущие бюджеты пользователя
   public void handleWatchBudget() {
     try {
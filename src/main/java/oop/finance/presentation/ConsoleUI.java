@@ -113,7 +113,7 @@ public class ConsoleUI extends BaseUI {
   private void showNotifications() {
     if (authService.getCurrentUser() != null) {
       List<String> notifications =
-          notificationService.checkNotifications(authService.getCurrentUser());
+          notificationService.pollNotifications(authService.getCurrentUser());
 
       if (!notifications.isEmpty()) {
         for (String notification : notifications) {
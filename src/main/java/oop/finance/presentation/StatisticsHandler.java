@@ -1,17 +1,27 @@
 package oop.finance.presentation;
 
+import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Map;
 import oop.finance.exception.InvalidCredentialsException;
 import oop.finance.model.Budget;
+import oop.finance.model.StatisticsQuery;
+import oop.finance.model.StatisticsSummary;
+import oop.finance.model.Transaction;
+import oop.finance.model.TransactionCursor;
+import oop.finance.model.TransactionPage;
 import oop.finance.model.User;
 import oop.finance.presentation.base.BaseUI;
 import oop.finance.service.AuthService;
 import oop.finance.service.BudgetService;
 import oop.finance.service.FinanceService;
+import oop.finance.utils.DateTimeUtils;
 
 /** Класс-обработчик пользовательского интерфейса для работы со статистикой. */
 public class StatisticsHandler extends BaseUI {
+  private static final int PAGE_SIZE = 10;
+  private static final DateTimeFormatter DATE_FORMATTER =
+      DateTimeFormatter.ofPattern(DateTimeUtils.DATE_TIME_FORMAT);
   private final AuthService authService;
   private final FinanceService financeService;
   private final BudgetService budgetService;
@@ -34,6 +44,7 @@ public class StatisticsHandler extends BaseUI {
     System.out.println("1 - Просмотреть общую статистику");
     System.out.println("2 - Просмотреть статистику по категориям");
     System.out.println("3 - Просмотреть статистику по периоду");
+    System.out.println("4 - Просмотреть историю операций");
     System.out.println("help - Справка");
   }
 
@@ -51,6 +62,9 @@ public class StatisticsHandler extends BaseUI {
       case "3":
         showStatisticsByPeriod();
         break;
+      case "4":
+        showHistory();
+        break;
       case "help":
         showHelp();
         break;
@@ -60,46 +74,30 @@ public class StatisticsHandler extends BaseUI {
   }
 
   // Отображает общую сводную статистику по всем операциям (доходы/расходы + детализация по
-  // категориям)
+  // категориям). Вся статистика экрана собирается за один проход
   private void showStatistics() {
     try {
       User user = authService.getCurrentUser();
-      double totalIncome = financeService.getTotalIncome(user);
-      double totalExpenses = financeService.getTotalExpense(user);
+      StatisticsSummary summary = financeService.getStatistics(user);
 
-      System.out.println("Общий доход: " + totalIncome);
-      System.out.println("Общий расход: " + totalExpenses);
+      System.out.println("Общий доход: " + summary.getTotalIncome());
+      System.out.println("Общий расход: " + summary.getTotalExpense());
 
       // Доходы по категориям
-      Map<String, Double> incomeByCategory = financeService.getIncomeByCategory(user);
-      if (!incomeByCategory.isEmpty()) {
-        System.out.println("Доходы по категориям:");
-        incomeByCategory.forEach(
-            (category, amount) -> System.out.println(" " + category + ": " + amount));
-      } else {
-        System.out.println("Доходы по категориям отсутствуют.");
-      }
+      printCategories(
+          summary.getIncomeByCategory(),
+          "Доходы по категориям:",
+          "Доходы по категориям отсутствуют.");
 
       // Расходы по категориям с бюджетами
-      Map<String, Double> expensesByCategory = financeService.getExpensesByCategory(user);
-      if (!expensesByCategory.isEmpty()) {
-        System.out.println("Расходы по категориям:");
-        expensesByCategory.forEach(
-            (category, amount) -> {
-              System.out.println(" " + category + ": " + amount);
-              Budget budget = user.getWallet().getBudget(category);
-              if (budget != null) {
-                double remaining = budgetService.getBudgetRemaining(user, category);
-                System.out.println(
-                    "  Бюджет: " + budget.getLimit() + ", Оставшийся бюджет: " + remaining);
-              }
-            });
-      } else {
-        System.out.println("Расходы по категориям отсутствуют.");
-      }
+      printExpensesWithBudgets(
+          user,
+          summary.getExpensesByCategory(),
+          "Расходы по категориям:",
+          "Расходы по категориям отсутствуют.");
 
       // Проверка превышения расходов над доходами
-      if (financeService.isTotalExceeding(user)) {
+      if (summary.isExpenseExceeding()) {
         printInfoNotification("Внимание: Ваши расходы превышают доходы!");
       }
     } catch (IllegalArgumentException | InvalidCredentialsException error) {
@@ -114,40 +112,23 @@ public class StatisticsHandler extends BaseUI {
           readString("Введите категории, по которым хотите просмотреть статистику через |:\n");
       String[] categories = str.split("\\|");
       User user = authService.getCurrentUser();
-      double totalIncome = financeService.getTotalIncome(user, categories);
-      double totalExpenses = financeService.getTotalExpense(user, categories);
+      StatisticsSummary summary = financeService.getStatistics(user, categories);
 
-      System.out.println("Общий доход по выбранным категориям: " + totalIncome);
-      System.out.println("Общий расход по выбранным категориям: " + totalExpenses);
+      System.out.println("Общий доход по выбранным категориям: " + summary.getTotalIncome());
+      System.out.println("Общий расход по выбранным категориям: " + summary.getTotalExpense());
 
       // Доходы по категориям
-      Map<String, Double> incomeByCategory = financeService.getIncomeByCategory(user, categories);
-      if (!incomeByCategory.isEmpty()) {
-        System.out.println("Доходы по выбранным категориям:");
-        incomeByCategory.forEach(
-            (category, amount) -> System.out.println(" " + category + ": " + amount));
-      } else {
-        System.out.println("Доходы по выбранным категориям отсутствуют.");
-      }
+      printCategories(
+          summary.getIncomeByCategory(),
+          "Доходы по выбранным категориям:",
+          "Доходы по выбранным категориям отсутствуют.");
 
       // Расходы по категориям с бюджетами
-      Map<String, Double> expensesByCategory =
-          financeService.getExpensesByCategory(user, categories);
-      if (!expensesByCategory.isEmpty()) {
-        System.out.println("Расходы по выбранным категориям:");
-        expensesByCategory.forEach(
-            (category, amount) -> {
-              System.out.println(" " + category + ": " + amount);
-              Budget budget = user.getWallet().getBudget(category);
-              if (budget != null) {
-                double remaining = budgetService.getBudgetRemaining(user, category);
-                System.out.println(
-                    "  Бюджет: " + budget.getLimit() + ", Оставшийся бюджет: " + remaining);
-              }
-            });
-      } else {
-        System.out.println("Расходы по выбранным категориям отсутствуют.");
-      }
+      printExpensesWithBudgets(
+          user,
+          summary.getExpensesByCategory(),
+          "Расходы по выбранным категориям:",
+          "Расходы по выбранным категориям отсутствуют.");
     } catch (IllegalArgumentException | InvalidCredentialsException error) {
       printErrorNotification("Ошибка при сборе статистики: " + error.getMessage());
     }
@@ -161,36 +142,108 @@ public class StatisticsHandler extends BaseUI {
       String dateTo = readString("Конечная дата: ");
 
       User user = authService.getCurrentUser();
-      double totalIncome = financeService.getTotalIncome(user, dateFrom, dateTo);
-      double totalExpenses = financeService.getTotalExpense(user, dateFrom, dateTo);
-
-      System.out.println("Общий доход за период " + dateFrom + " - " + dateTo + ": " + totalIncome);
-      System.out.println(
-          "Общий расход за период " + dateFrom + " - " + dateTo + ": " + totalExpenses);
-
-      Map<String, Double> incomeByCategory =
-          financeService.getIncomeByCategory(user, dateFrom, dateTo);
-      if (!incomeByCategory.isEmpty()) {
-        System.out.println("Доходы за период " + dateFrom + " - " + dateTo + ":");
-        incomeByCategory.forEach(
-            (category, amount) -> System.out.println(" " + category + ": " + amount));
-      } else {
-        System.out.println("Доходы за заданный период отсутствуют.");
-      }
-
-      Map<String, Double> expensesByCategory =
-          financeService.getExpensesByCategory(user, dateFrom, dateTo);
-      if (!expensesByCategory.isEmpty()) {
-        System.out.println("Расходы за период " + dateFrom + " - " + dateTo + ":");
-        expensesByCategory.forEach(
-            (category, amount) -> System.out.println(" " + category + ": " + amount));
-      } else {
-        System.out.println("Расходы за заданный период отсутствуют.");
-      }
+      StatisticsSummary summary = financeService.getStatistics(user, dateFrom, dateTo);
+      String period = dateFrom + " - " + dateTo;
+
+      System.out.println("Общий доход за период " + period + ": " + summary.getTotalIncome());
+      System.out.println("Общий расход за период " + period + ": " + summary.getTotalExpense());
+
+      printCategories(
+          summary.getIncomeByCategory(),
+          "Доходы за период " + period + ":",
+          "Доходы за заданный период отсутствуют.");
+      printCategories(
+          summary.getExpensesByCategory(),
+          "Расходы за период " + period + ":",
+          "Расходы за заданный период отсутствуют.");
     } catch (IllegalArgumentException
         | InvalidCredentialsException
         | DateTimeParseException error) {
       printErrorNotification("Ошибка при сборе статистики: " + error.getMessage());
     }
   }
+
+  // Постраничный просмотр истории операций, начиная с последних. Следующая страница запрашивается
+  // по токену продолжения, поэтому в памяти находится только текущая страница
+  private void showHistory() {
+    try {
+      User user = authService.getCurrentUser();
+      String type = readString("Какие операции показать (1 - все, 2 - доходы, 3 - расходы): ");
+      StatisticsQuery query = StatisticsQuery.create();
+      if ("2".equals(type)) {
+        query.withType(true);
+      } else if ("3".equals(type)) {
+        query.withType(false);
+      }
+
+      String token = null;
+      int pageNumber = 1;
+      do {
+        TransactionPage page =
+            financeService.getTransactionPage(
+                user, query, TransactionCursor.Order.NEWEST_FIRST, PAGE_SIZE, token);
+        if (page.getTransactions().isEmpty()) {
+          System.out.println("Операции отсутствуют.");
+          return;
+        }
+
+        System.out.println("Страница " + pageNumber++ + ":");
+        page.getTransactions().forEach(this::printTransaction);
+        token = page.getNextToken();
+      } while (token != null
+          && "n".equals(readString("n - следующая страница, любой другой ввод - выход: ")));
+    } catch (IllegalArgumentException | InvalidCredentialsException error) {
+      printErrorNotification("Ошибка при просмотре истории: " + error.getMessage());
+    }
+  }
+
+  // Выводит одну операцию истории
+  private void printTransaction(Transaction transaction) {
+    String date =
+        transaction.getCreatedAt() != null
+            ? transaction.getCreatedAt().format(DATE_FORMATTER)
+            : "-";
+    String type = transaction.isIncome() ? "Доход" : "Расход";
+    System.out.println(
+        " "
+            + date
+            + " | "
+            + type
+            + " | "
+            + transaction.getCategory()
+            + " | "
+            + transaction.getAmount());
+  }
+
+  // Выводит суммы по категориям или сообщение об их отсутствии
+  private void printCategories(Map<String, Double> byCategory, String header, String empty) {
+    if (byCategory.isEmpty()) {
+      System.out.println(empty);
+      return;
+    }
+
+    System.out.println(header);
+    byCategory.forEach((category, amount) -> System.out.println(" " + category + ": " + amount));
+  }
+
+  // Выводит расходы по категориям вместе с бюджетами и их остатками
+  private void printExpensesWithBudgets(
+      User user, Map<String, Double> expensesByCategory, String header, String empty) {
+    if (expensesByCategory.isEmpty()) {
+      System.out.println(empty);
+      return;
+    }
+
+    System.out.println(header);
+    expensesByCategory.forEach(
+        (category, amount) -> {
+          System.out.println(" " + category + ": " + amount);
+          Budget budget = user.getWallet().getBudget(category);
+          if (budget != null) {
+            double remaining = budgetService.getBudgetRemaining(user, category);
+            System.out.println(
+                "  Бюджет: " + budget.getLimit() + ", Оставшийся бюджет: " + remaining);
+          }
+        });
+  }
 }
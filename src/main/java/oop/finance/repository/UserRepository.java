@@ -1,72 +1,125 @@
 package oop.finance.repository;
 
-import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
 import oop.finance.model.User;
 import oop.finance.repository.base.BaseRepository;
-import oop.finance.utils.JsonUtils;
+import oop.finance.repository.storage.BackgroundPersister;
+import oop.finance.repository.storage.SnapshotUserStorage;
+import oop.finance.repository.storage.UserStorage;
+import oop.finance.repository.storage.WriteBatch;
 
 /**
  * Класс для работы с "хранилищем" данных по юзерам. Предоставляет методы получения, записи и
- * поиска. Реализует паттерн Repository для отделения логики хранения от бизнес-логики
+ * поиска. Реализует паттерн Repository для отделения логики хранения от бизнес-логики. При старте
+ * читается только индекс логинов, пользователи с кошельками подгружаются из хранилища по запросу
  */
 public class UserRepository implements BaseRepository<User> {
-  private final JsonUtils jsonUtils = new JsonUtils();
-  private final Map<String, User> users;
-  private String filePath;
-  private final Type usersMapType =
-      new TypeToken<Map<String, User>>() {
-        // комментарий для скипа формата данной строки
-      }.getType();
+  private final UserStorage storage;
+  private final Set<String> logins;
+  private final Map<String, User> users = new HashMap<>();
+  private final BackgroundPersister persister;
 
   public UserRepository(String path) {
-    this.filePath = path;
-    this.users = load();
+    this(new SnapshotUserStorage(path));
   }
 
-  // Находит пользователя по логину
+  public UserRepository(UserStorage storage) {
+    this(storage, null);
+  }
+
+  // persister - фоновая запись на диск; если null, saveAll пишет синхронно
+  public UserRepository(UserStorage storage, BackgroundPersister persister) {
+    this.storage = storage;
+    this.persister = persister;
+    this.logins = storage.loadLogins();
+  }
+
+  // Находит пользователя по логину, при необходимости подгружая его из хранилища
   public User findByLogin(String login) {
-    return users.get(login);
+    User user = users.get(login);
+
+    if (user == null && logins.contains(login)) {
+      user = storage.load(login);
+      if (user != null) {
+        users.put(login, user);
+      }
+    }
+
+    return user;
+  }
+
+  // Пользователь из кэша или прочитанный из хранилища без добавления в кэш
+  private User peek(String login) {
+    User user = users.get(login);
+    return user != null ? user : storage.load(login);
   }
 
   // Проверяет существование пользователя с указанным логином
   public boolean existsByLogin(String login) {
-    return users.containsKey(login);
+    return logins.contains(login);
   }
 
   // Добавляет нового пользователя
   @Override
   public void add(User user) {
+    logins.add(user.getLogin());
     users.put(user.getLogin(), user);
+    storage.add(user);
   }
 
   // Возвращает список всех пользователей
   @Override
   public List<User> list() {
-    return new ArrayList<>(users.values());
+    return new ArrayList<>(load().values());
   }
 
-  // Загружает пользователей из JSON-файла
+  // Возвращает поток всех пользователей без копирования в список. Уже загруженные пользователи
+  // берутся из кэша, остальные читаются из хранилища по одному при обходе и в кэш не попадают,
+  // поэтому обход не держит в памяти всю базу. Поток можно обходить параллельно, пока репозиторий
+  // не изменяется
+  @Override
+  public Stream<User> stream() {
+    return new ArrayList<>(logins).stream().map(this::peek).filter(Objects::nonNull);
+  }
+
+  // Количество пользователей (включая еще не загруженных)
+  public int count() {
+    return logins.size();
+  }
+
+  // Подгружает всех еще не загруженных пользователей
   @Override
   public Map<String, User> load() {
-    try {
-      Map<String, User> loadedUsers = jsonUtils.readFromJSON(filePath, usersMapType);
-      return loadedUsers != null ? loadedUsers : new HashMap<>();
-    } catch (JsonSyntaxException error) {
-      System.out.println("Ошибка загрузки пользователей: " + error.getMessage());
-      System.out.println("Создаю новую базу пользователей...");
-      return new HashMap<>();
+    for (String login : logins) {
+      findByLogin(login);
     }
+    return users;
   }
 
-  // Сохраняет всех пользователей в JSON-файл
+  // Сохраняет только пользователей, изменившихся с прошлого сохранения. Изменения сериализуются
+  // сразу, а запись на диск при наличии фонового потока откладывается и объединяется
   @Override
   public void saveAll() {
-    jsonUtils.writeToJSON(filePath, users);
+    List<User> changedUsers = new ArrayList<>();
+    for (User user : users.values()) {
+      if (user.isDirty()) {
+        changedUsers.add(user);
+      }
+    }
+
+    WriteBatch batch = storage.prepareSave(changedUsers);
+    changedUsers.forEach(User::markClean);
+
+    if (persister != null) {
+      persister.submit(batch);
+    } else {
+      batch.commit();
+    }
   }
 }
@@ -2,6 +2,7 @@ package oop.finance.repository.base;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /** Базовый интерфейс репозитория. Описывает методы добавления, получения, загрузки и сохранения */
 public interface BaseRepository<T> {
@@ -11,5 +12,7 @@ public interface BaseRepository<T> {
 
   List<T> list();
 
+  Stream<T> stream();
+
   void saveAll();
 }
@@ -0,0 +1,79 @@
+package oop.finance.repository.journal;
+
+import java.util.Map;
+import oop.finance.model.Budget;
+import oop.finance.model.Transaction;
+import oop.finance.model.User;
+import oop.finance.model.Wallet;
+
+/**
+ * Запись журнала изменений. Описывает одно изменение: регистрацию пользователя, новую транзакцию
+ * или изменение бюджета. Версия кошелька позволяет не применять повторно уже учтенные в снимке
+ * записи
+ */
+public class JournalRecord {
+  /** Тип изменения */
+  public enum Operation {
+    USER,
+    TRANSACTION,
+    BUDGET
+  }
+
+  private final Operation operation;
+  private final String login;
+  private final long version;
+  private User user;
+  private Transaction transaction;
+  private Budget budget;
+  private String oldCategory;
+
+  private JournalRecord(Operation operation, String login, long version) {
+    this.operation = operation;
+    this.login = login;
+    this.version = version;
+  }
+
+  // Запись о регистрации нового пользователя
+  public static JournalRecord user(User user) {
+    JournalRecord record =
+        new JournalRecord(Operation.USER, user.getLogin(), user.getWallet().getVersion());
+    record.user = user;
+    return record;
+  }
+
+  // Запись о добавлении транзакции
+  public static JournalRecord transaction(String login, long version, Transaction transaction) {
+    JournalRecord record = new JournalRecord(Operation.TRANSACTION, login, version);
+    record.transaction = transaction;
+    return record;
+  }
+
+  // Запись об установке или изменении бюджета
+  public static JournalRecord budget(
+      String login, long version, Budget budget, String oldCategory) {
+    JournalRecord record = new JournalRecord(Operation.BUDGET, login, version);
+    record.budget = budget;
+    record.oldCategory = oldCategory;
+    return record;
+  }
+
+  // Применяет запись к загруженным пользователям. Возвращает false, если запись уже учтена
+  public boolean applyTo(Map<String, User> users) {
+    if (operation == Operation.USER) {
+      return users.putIfAbsent(login, user) == null;
+    }
+
+    User owner = users.get(login);
+    if (owner == null || version <= owner.getWallet().getVersion()) {
+      return false;
+    }
+
+    Wallet wallet = owner.getWallet();
+    if (operation == Operation.TRANSACTION) {
+      wallet.addTransaction(transaction);
+    } else {
+      wallet.setBudget(budget, oldCategory);
+    }
+    return true;
+  }
+}
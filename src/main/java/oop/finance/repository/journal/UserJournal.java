@@ -0,0 +1,115 @@
+package oop.finance.repository.journal;
+
+import com.google.gson.JsonSyntaxException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import oop.finance.model.User;
+import oop.finance.utils.FileUtils;
+import oop.finance.utils.JsonUtils;
+
+/**
+ * Журнал изменений пользователей (append-only). Каждое изменение сериализуется в одну строку JSON и
+ * при сохранении дописывается в конец файла, поэтому стоимость сохранения зависит от объема
+ * изменений, а не от размера базы. При загрузке журнал проигрывается поверх последнего снимка.
+ *
+ * <p>Запись, оборванная сбоем, пропускается при проигрывании, а перед первой записью в журнал
+ * оборванный хвост файла отрезается, поэтому записи, дописанные после сбоя, не теряются
+ */
+public class UserJournal {
+  private final JsonUtils jsonUtils = new JsonUtils();
+  private final Path path;
+  private final List<String> pending = new ArrayList<>();
+  private int size;
+  // проверен ли хвост файла перед первой записью
+  private boolean tailChecked;
+
+  public UserJournal(String filePath) {
+    this.path = Paths.get(filePath);
+  }
+
+  // Добавляет запись в буфер журнала. Запись сериализуется сразу, чтобы зафиксировать состояние
+  public void append(JournalRecord record) {
+    pending.add(jsonUtils.toJsonLine(record));
+  }
+
+  // Забирает накопленные записи для записи на диск и учитывает их в размере журнала
+  public List<String> drain() {
+    List<String> lines = new ArrayList<>(pending);
+    pending.clear();
+    size += lines.size();
+    return lines;
+  }
+
+  // Дописывает записи в конец файла журнала и сбрасывает их на диск
+  public void writeLines(List<String> lines) {
+    try {
+      if (!tailChecked) {
+        FileUtils.truncateTornLine(path);
+        tailChecked = true;
+      }
+      FileUtils.appendLines(path, lines);
+    } catch (IOException error) {
+      throw new RuntimeException("Ошибка записи журнала: " + error.getMessage());
+    }
+  }
+
+  // Проигрывает журнал поверх загруженного снимка. Возвращает число примененных записей
+  public int replay(Map<String, User> users) {
+    if (!Files.exists(path)) {
+      return 0;
+    }
+
+    int applied = 0;
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+
+        JournalRecord record;
+        try {
+          record = jsonUtils.fromJsonLine(line, JournalRecord.class);
+        } catch (JsonSyntaxException error) {
+          // запись, оборванная при сбое, пропускается: следующие записи остаются корректными
+          continue;
+        }
+
+        size++;
+        if (record != null && record.applyTo(users)) {
+          applied++;
+        }
+      }
+    } catch (IOException error) {
+      throw new RuntimeException("Ошибка чтения журнала: " + error.getMessage());
+    }
+
+    return applied;
+  }
+
+  // Удаляет файл журнала после того, как его содержимое свернуто в новый снимок
+  public void deleteFile() {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException error) {
+      throw new RuntimeException("Ошибка очистки журнала: " + error.getMessage());
+    }
+  }
+
+  // Обнуляет размер журнала, когда принято решение свернуть его в снимок
+  public void resetSize() {
+    size = 0;
+  }
+
+  // Количество записей в файле журнала
+  public int size() {
+    return size;
+  }
+}
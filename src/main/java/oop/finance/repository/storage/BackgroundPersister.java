@@ -0,0 +1,117 @@
+package oop.finance.repository.storage;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновая запись изменений на диск с объединением (group commit). Пакеты, пришедшие в течение
+ * интервала сброса, объединяются и записываются одной операцией, но не позже, чем через
+ * максимальную задержку после первого несохраненного пакета. Вызывающий поток не ждет диска
+ */
+public class BackgroundPersister implements AutoCloseable {
+  public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 500;
+  public static final long DEFAULT_MAX_LATENCY_MILLIS = 5000;
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+  private final long flushIntervalMillis;
+  private final long maxLatencyMillis;
+  private final ScheduledExecutorService executor;
+  private WriteBatch pending;
+  private long pendingSince;
+  private ScheduledFuture<?> scheduledFlush;
+
+  public BackgroundPersister(long flushIntervalMillis, long maxLatencyMillis) {
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.maxLatencyMillis = Math.max(flushIntervalMillis, maxLatencyMillis);
+    this.executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "background-persister");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  // Ставит пакет в очередь на запись и сразу возвращает управление
+  public synchronized void submit(WriteBatch batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    if (executor.isShutdown()) {
+      batch.commit();
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    if (pending == null) {
+      pending = batch;
+      pendingSince = now;
+    } else {
+      pending.merge(batch);
+    }
+
+    schedule(Math.min(flushIntervalMillis, maxLatencyMillis - (now - pendingSince)));
+  }
+
+  // Записывает все отложенные изменения и останавливает фоновый поток
+  @Override
+  public void close() {
+    synchronized (this) {
+      // отложенный сброс больше не нужен: пакет будет записан немедленно
+      if (scheduledFlush != null) {
+        scheduledFlush.cancel(false);
+      }
+    }
+    executor.execute(this::flush);
+    executor.shutdown();
+    try {
+      executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException error) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void schedule(long delayMillis) {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+    }
+    scheduledFlush =
+        executor.schedule(this::flush, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+  }
+
+  // Забирает накопленный пакет и записывает его. При ошибке пакет возвращается в очередь
+  private void flush() {
+    WriteBatch batch;
+    synchronized (this) {
+      batch = pending;
+      pending = null;
+      scheduledFlush = null;
+    }
+
+    if (batch == null) {
+      return;
+    }
+
+    try {
+      batch.commit();
+    } catch (RuntimeException error) {
+      System.out.println("Ошибка фонового сохранения: " + error.getMessage());
+      requeue(batch);
+    }
+  }
+
+  private synchronized void requeue(WriteBatch failed) {
+    if (executor.isShutdown()) {
+      return;
+    }
+
+    if (pending != null) {
+      failed.merge(pending);
+    }
+    pending = failed;
+    pendingSince = System.currentTimeMillis();
+    schedule(flushIntervalMillis);
+  }
+}
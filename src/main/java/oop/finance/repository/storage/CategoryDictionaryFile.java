@@ -0,0 +1,59 @@
+package oop.finance.repository.storage;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import oop.finance.model.CategoryDictionary;
+import oop.finance.utils.JsonUtils;
+
+/**
+ * Файл общего словаря категорий, хранящийся рядом с данными пользователей. Загружается до
+ * пользователей, чтобы категории получали те же номера, что и в прошлый запуск, и дописывается в
+ * пакет сохранения, только когда в словаре появились новые категории
+ */
+class CategoryDictionaryFile {
+  private final JsonUtils jsonUtils = new JsonUtils();
+  private final CategoryDictionary dictionary = CategoryDictionary.global();
+  private final Path path;
+  private final Type namesType =
+      new TypeToken<List<String>>() {
+        // комментарий для скипа формата данной строки
+      }.getType();
+  private int savedSize;
+
+  CategoryDictionaryFile(Path path) {
+    this.path = path;
+  }
+
+  // Регистрирует сохраненные категории в порядке их номеров
+  void load() {
+    if (!Files.exists(path)) {
+      return;
+    }
+
+    try {
+      List<String> names = jsonUtils.readFromJSON(path.toString(), namesType);
+      if (names != null) {
+        dictionary.internAll(names);
+        savedSize = names.size();
+      }
+    } catch (JsonSyntaxException error) {
+      System.out.println("Ошибка загрузки словаря категорий: " + error.getMessage());
+    }
+  }
+
+  // Добавляет в пакет перезапись словаря, если с прошлого сохранения появились новые категории
+  void prepareSave(WriteBatch batch) {
+    int size = dictionary.size();
+    if (size == savedSize) {
+      return;
+    }
+
+    batch.putFile(path, jsonUtils.toJson(dictionary.names()).getBytes(StandardCharsets.UTF_8));
+    savedSize = size;
+  }
+}
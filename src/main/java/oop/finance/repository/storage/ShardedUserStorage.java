@@ -0,0 +1,127 @@
+package oop.finance.repository.storage;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import oop.finance.model.User;
+import oop.finance.utils.JsonUtils;
+
+/**
+ * Посегментное хранение пользователей: каждый пользователь с кошельком лежит в отдельном файле, а
+ * небольшой индекс сопоставляет логин и файл. Старт читает только индекс, а сохранение
+ * перезаписывает только изменившиеся сегменты
+ */
+public class ShardedUserStorage implements UserStorage {
+  private static final String INDEX_FILE = "index.json";
+  private static final String SHARD_SUFFIX = ".json";
+  private static final String CATEGORIES_FILE = "categories.json";
+
+  private final JsonUtils jsonUtils = new JsonUtils();
+  private final Path directory;
+  private final String legacyFilePath;
+  private final CategoryDictionaryFile categories;
+  private final Type indexType =
+      new TypeToken<Map<String, String>>() {
+        // комментарий для скипа формата данной строки
+      }.getType();
+  private Map<String, String> index = new HashMap<>();
+  private boolean indexChanged;
+
+  // legacyFilePath - снимок JSON, из которого данные переносятся при первом запуске
+  public ShardedUserStorage(String directory, String legacyFilePath) {
+    this.directory = Paths.get(directory);
+    this.legacyFilePath = legacyFilePath;
+    this.categories = new CategoryDictionaryFile(this.directory.resolve(CATEGORIES_FILE));
+  }
+
+  @Override
+  public Set<String> loadLogins() {
+    Path indexPath = directory.resolve(INDEX_FILE);
+    categories.load();
+
+    if (Files.exists(indexPath)) {
+      try {
+        Map<String, String> loadedIndex = jsonUtils.readFromJSON(indexPath.toString(), indexType);
+        index = loadedIndex != null ? loadedIndex : new HashMap<>();
+      } catch (JsonSyntaxException error) {
+        System.out.println("Ошибка загрузки индекса пользователей: " + error.getMessage());
+        index = new HashMap<>();
+      }
+    } else if (legacyFilePath != null) {
+      importLegacy();
+    }
+
+    return new HashSet<>(index.keySet());
+  }
+
+  // Загружает сегмент пользователя с диска
+  @Override
+  public User load(String login) {
+    String shardId = index.get(login);
+    if (shardId == null) {
+      return null;
+    }
+
+    try {
+      return jsonUtils.readFromJSON(shardPath(shardId).toString(), User.class);
+    } catch (JsonSyntaxException error) {
+      System.out.println("Ошибка загрузки пользователя " + login + ": " + error.getMessage());
+      return null;
+    }
+  }
+
+  @Override
+  public void add(User user) {
+    index.put(user.getLogin(), user.getId());
+    indexChanged = true;
+  }
+
+  // Готовит перезапись сегментов изменившихся пользователей и, если нужно, индекса.
+  // Индекс пишется после сегментов, чтобы не ссылаться на еще не записанные файлы
+  @Override
+  public WriteBatch prepareSave(Collection<User> changedUsers) {
+    WriteBatch batch = new WriteBatch();
+    for (User user : changedUsers) {
+      batch.putFile(
+          shardPath(user.getId()), jsonUtils.toJson(user).getBytes(StandardCharsets.UTF_8));
+    }
+
+    if (indexChanged) {
+      batch.putFile(
+          directory.resolve(INDEX_FILE), jsonUtils.toJson(index).getBytes(StandardCharsets.UTF_8));
+      indexChanged = false;
+    }
+    categories.prepareSave(batch);
+    return batch;
+  }
+
+  // Переносит пользователей из единого снимка JSON (вместе с его журналом) в сегменты.
+  // Выполняется один раз, пока индекс еще не создан
+  private void importLegacy() {
+    SnapshotUserStorage legacyStorage = new SnapshotUserStorage(legacyFilePath);
+    Set<String> logins = legacyStorage.loadLogins();
+    if (logins.isEmpty()) {
+      return;
+    }
+
+    for (String login : logins) {
+      User user = legacyStorage.load(login);
+      jsonUtils.writeToJSON(shardPath(user.getId()).toString(), user);
+      index.put(login, user.getId());
+    }
+    jsonUtils.writeToJSON(directory.resolve(INDEX_FILE).toString(), index);
+  }
+
+  private Path shardPath(String shardId) {
+    return directory.resolve(shardId + SHARD_SUFFIX);
+  }
+}
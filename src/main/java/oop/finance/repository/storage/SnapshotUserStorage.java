@@ -0,0 +1,146 @@
+package oop.finance.repository.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import oop.finance.model.Budget;
+import oop.finance.model.Transaction;
+import oop.finance.model.User;
+import oop.finance.model.Wallet;
+import oop.finance.model.event.WalletListener;
+import oop.finance.repository.journal.JournalRecord;
+import oop.finance.repository.journal.UserJournal;
+import oop.finance.repository.storage.format.JsonSnapshotFormat;
+import oop.finance.repository.storage.format.SnapshotFormat;
+
+/**
+ * Хранение всех пользователей в одном снимке с журналом изменений. Снимок загружается целиком в
+ * выбранном формате (JSON или двоичном), изменения пишутся в журнал, который периодически
+ * сворачивается в новый снимок
+ */
+public class SnapshotUserStorage implements UserStorage {
+  public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+  private static final String JOURNAL_SUFFIX = ".journal";
+  private static final String CATEGORIES_SUFFIX = ".categories";
+
+  private final Path filePath;
+  private final SnapshotFormat format;
+  private final UserJournal journal;
+  private final CategoryDictionaryFile categories;
+  private final int compactionThreshold;
+  private Map<String, User> users = new HashMap<>();
+
+  public SnapshotUserStorage(String filePath) {
+    this(filePath, DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  public SnapshotUserStorage(String filePath, int compactionThreshold) {
+    this(filePath, new JsonSnapshotFormat(), compactionThreshold);
+  }
+
+  public SnapshotUserStorage(String filePath, SnapshotFormat format, int compactionThreshold) {
+    this.filePath = Paths.get(filePath);
+    this.format = format;
+    this.compactionThreshold = compactionThreshold;
+    this.journal = new UserJournal(filePath + JOURNAL_SUFFIX);
+    this.categories = new CategoryDictionaryFile(Paths.get(filePath + CATEGORIES_SUFFIX));
+  }
+
+  // Загружает последний снимок и проигрывает поверх него журнал
+  @Override
+  public Set<String> loadLogins() {
+    categories.load();
+    users = loadSnapshot();
+    journal.replay(users);
+    users.values().forEach(User::markClean);
+    users.values().forEach(this::track);
+    return new HashSet<>(users.keySet());
+  }
+
+  @Override
+  public User load(String login) {
+    return users.get(login);
+  }
+
+  @Override
+  public void add(User user) {
+    users.put(user.getLogin(), user);
+    journal.append(JournalRecord.user(user));
+    track(user);
+  }
+
+  // Готовит к записи накопленные строки журнала, а при достижении порога - свертку в снимок
+  @Override
+  public WriteBatch prepareSave(Collection<User> changedUsers) {
+    List<String> lines = journal.drain();
+
+    if (journal.size() >= compactionThreshold) {
+      return prepareCompaction();
+    }
+
+    WriteBatch batch = new WriteBatch();
+    batch.appendJournal(journal, lines);
+    categories.prepareSave(batch);
+    return batch;
+  }
+
+  // Сворачивает журнал: записывает полный снимок в файл и очищает журнал
+  public void compact() {
+    journal.drain();
+    prepareCompaction().commit();
+  }
+
+  // Снимок сериализуется при записи пакета (в фоновом потоке, если он есть), а здесь фиксируется
+  // только список пользователей. Кошельки пишутся под своей блокировкой и могут оказаться новее
+  // момента свертки: записи журнала с версией не новее версии кошелька при загрузке пропускаются
+  private WriteBatch prepareCompaction() {
+    WriteBatch batch = new WriteBatch();
+    List<User> snapshot = new ArrayList<>(users.values());
+    batch.putFile(filePath, out -> format.write(snapshot, out));
+    batch.resetJournal(journal);
+    journal.resetSize();
+    categories.prepareSave(batch);
+    return batch;
+  }
+
+  private Map<String, User> loadSnapshot() {
+    try {
+      return format.read(filePath);
+    } catch (IOException error) {
+      System.out.println("Ошибка загрузки пользователей: " + error.getMessage());
+      System.out.println("Создаю новую базу пользователей...");
+      return new HashMap<>();
+    }
+  }
+
+  // Подписывает журнал на изменения кошелька пользователя
+  private void track(User user) {
+    user.getWallet().addListener(new JournalListener(user.getLogin()));
+  }
+
+  /** Слушатель, превращающий изменения кошелька в записи журнала */
+  private class JournalListener implements WalletListener {
+    private final String login;
+
+    JournalListener(String login) {
+      this.login = login;
+    }
+
+    @Override
+    public void onTransactionAdded(Wallet wallet, Transaction transaction) {
+      journal.append(JournalRecord.transaction(login, wallet.getVersion(), transaction));
+    }
+
+    @Override
+    public void onBudgetChanged(Wallet wallet, Budget budget, String oldCategory) {
+      journal.append(JournalRecord.budget(login, wallet.getVersion(), budget, oldCategory));
+    }
+  }
+}
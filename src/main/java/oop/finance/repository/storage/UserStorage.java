@@ -0,0 +1,24 @@
+package oop.finance.repository.storage;
+
+import java.util.Collection;
+import java.util.Set;
+import oop.finance.model.User;
+
+/**
+ * Формат хранения пользователей. Репозиторий при старте читает только индекс логинов, а сами
+ * пользователи с кошельками загружаются по требованию
+ */
+public interface UserStorage {
+  // Загружает индекс логинов всех пользователей
+  Set<String> loadLogins();
+
+  // Загружает пользователя с кошельком по логину, либо null, если его нет
+  User load(String login);
+
+  // Регистрирует нового пользователя в хранилище
+  void add(User user);
+
+  // Готовит изменения к записи: сериализует их в потоке вызывающего, не обращаясь к диску.
+  // Передаются только пользователи, изменившиеся с прошлого сохранения
+  WriteBatch prepareSave(Collection<User> changedUsers);
+}
@@ -0,0 +1,82 @@
+package oop.finance.repository.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import oop.finance.repository.journal.UserJournal;
+import oop.finance.utils.FileUtils;
+
+/**
+ * Подготовленная к записи порция изменений. Данные либо уже сериализованы, либо (полный снимок)
+ * сериализуются потоково прямо в файл при записи пакета в фоновом потоке. Несколько пакетов
+ * объединяются в один (group commit): файл, перезаписанный позже, вытесняет прежнее содержимое, а
+ * свертка журнала отменяет накопленные до нее строки журнала
+ */
+public class WriteBatch {
+  private final Map<Path, FileUtils.StreamWriter> files = new LinkedHashMap<>();
+  private final List<String> journalLines = new ArrayList<>();
+  private UserJournal journal;
+  private boolean resetJournal;
+
+  // Добавляет файл, который будет атомарно перезаписан
+  public void putFile(Path path, byte[] content) {
+    putFile(path, out -> out.write(content));
+  }
+
+  // Добавляет файл, содержимое которого сериализуется при записи пакета
+  public void putFile(Path path, FileUtils.StreamWriter content) {
+    // перемещаем файл в конец, чтобы сохранить порядок записи (например, сегменты до индекса)
+    files.remove(path);
+    files.put(path, content);
+  }
+
+  // Добавляет строки, которые будут дописаны в журнал
+  public void appendJournal(UserJournal targetJournal, List<String> lines) {
+    this.journal = targetJournal;
+    journalLines.addAll(lines);
+  }
+
+  // Отмечает, что журнал свернут в снимок и его прежнее содержимое больше не нужно
+  public void resetJournal(UserJournal targetJournal) {
+    this.journal = targetJournal;
+    this.resetJournal = true;
+    journalLines.clear();
+  }
+
+  // Объединяет со следующим по времени пакетом
+  public void merge(WriteBatch next) {
+    next.files.forEach(this::putFile);
+
+    if (next.resetJournal) {
+      resetJournal(next.journal);
+    }
+    if (next.journal != null) {
+      appendJournal(next.journal, next.journalLines);
+    }
+  }
+
+  public boolean isEmpty() {
+    return files.isEmpty() && journalLines.isEmpty() && !resetJournal;
+  }
+
+  // Записывает пакет на диск: сначала файлы снимков, затем журнал
+  public void commit() {
+    try {
+      for (Map.Entry<Path, FileUtils.StreamWriter> file : files.entrySet()) {
+        FileUtils.writeStreamAtomically(file.getKey(), file.getValue());
+      }
+    } catch (IOException error) {
+      throw new RuntimeException("Ошибка записи данных: " + error.getMessage());
+    }
+
+    if (journal != null) {
+      if (resetJournal) {
+        journal.deleteFile();
+      }
+      journal.writeLines(journalLines);
+    }
+  }
+}
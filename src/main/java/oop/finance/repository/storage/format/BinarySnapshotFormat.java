@@ -0,0 +1,364 @@
+package oop.finance.repository.storage.format;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import oop.finance.model.Budget;
+import oop.finance.model.BudgetPeriod;
+import oop.finance.model.CategorySketches;
+import oop.finance.model.TransactionStore;
+import oop.finance.model.User;
+import oop.finance.model.Wallet;
+import oop.finance.model.sketch.QuantileSketch;
+import oop.finance.model.sketch.TopAmounts;
+import oop.finance.utils.DateTimeUtils;
+
+/**
+ * Компактный двоичный снимок. Все строки (логины, категории, идентификаторы) вынесены в словарь и
+ * заменены номерами, а транзакции хранятся в секции строк фиксированной ширины: дата в
+ * миллисекундах, сумма, номер категории, флаги и UUID в виде двух long. Файл читается через
+ * отображение в память (FileChannel.map).
+ *
+ * <p>Версия 3: MAGIC, VERSION, словарь (count, [length, UTF-8]), пользователи (count, [user,
+ * wallet, budgets, transactions, sketches]); у бюджета хранится код периода. Даты хранятся с
+ * точностью до миллисекунды, транзакция без даты отмечается флагом. Снимки версии 2 (без периодов
+ * бюджетов) и 1 (без эскизов) читаются, эскизы их кошельков строятся по истории транзакций
+ */
+public class BinarySnapshotFormat implements SnapshotFormat {
+  public static final int MAGIC = 0x46494E42;
+  public static final int VERSION = 3;
+  private static final int VERSION_WITHOUT_PERIODS = 2;
+  private static final int VERSION_WITHOUT_SKETCHES = 1;
+  private static final int NULL_REF = -1;
+  private static final byte FLAG_INCOME = 1;
+  private static final byte FLAG_TEXT_ID = 2;
+  private static final byte FLAG_NO_DATE = 4;
+  private static final long NANOS_PER_MILLI = 1_000_000L;
+  // значение, которое прежние снимки писали для транзакции без даты вместо флага FLAG_NO_DATE
+  private static final long LEGACY_NO_DATE_MILLIS = Math.floorDiv(Long.MIN_VALUE, NANOS_PER_MILLI);
+
+  @Override
+  public Map<String, User> read(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return new HashMap<>();
+    }
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Двоичный снимок больше 2 ГБ не поддерживается");
+      }
+
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Файл не является двоичным снимком");
+      }
+      int version = buffer.getInt();
+      if (version < VERSION_WITHOUT_SKETCHES || version > VERSION) {
+        throw new IOException("Неподдерживаемая версия двоичного снимка: " + version);
+      }
+
+      String[] dictionary = readDictionary(buffer);
+      int userCount = buffer.getInt();
+      Map<String, User> users = new HashMap<>(userCount * 2);
+      for (int i = 0; i < userCount; i++) {
+        User user = readUser(buffer, dictionary, version);
+        users.put(user.getLogin(), user);
+      }
+      return users;
+    } catch (RuntimeException error) {
+      throw new IOException("Поврежденный двоичный снимок: " + error.getMessage(), error);
+    }
+  }
+
+  // Пользователи пишутся во временный файл, попутно пополняя словарь, затем в снимок идут словарь
+  // и содержимое временного файла. Поэтому снимок не собирается в памяти, а каждый кошелек
+  // читается один раз под своей блокировкой
+  @Override
+  public void write(Collection<User> users, OutputStream out) throws IOException {
+    Map<String, Integer> dictionary = new LinkedHashMap<>();
+    Path usersSection = Files.createTempFile("snapshot-users", ".bin");
+    try {
+      try (DataOutputStream section =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(usersSection)))) {
+        for (User user : users) {
+          writeUser(section, user, dictionary);
+        }
+      }
+
+      DataOutputStream header = new DataOutputStream(out);
+      header.writeInt(MAGIC);
+      header.writeInt(VERSION);
+      header.writeInt(dictionary.size());
+      for (String value : dictionary.keySet()) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        header.writeInt(encoded.length);
+        header.write(encoded);
+      }
+      header.writeInt(users.size());
+      header.flush();
+      Files.copy(usersSection, out);
+    } finally {
+      Files.deleteIfExists(usersSection);
+    }
+  }
+
+  private String[] readDictionary(ByteBuffer buffer) {
+    String[] dictionary = new String[buffer.getInt()];
+    for (int i = 0; i < dictionary.length; i++) {
+      byte[] encoded = new byte[buffer.getInt()];
+      buffer.get(encoded);
+      dictionary[i] = new String(encoded, StandardCharsets.UTF_8);
+    }
+    return dictionary;
+  }
+
+  private User readUser(ByteBuffer buffer, String[] dictionary, int formatVersion) {
+    String userId = lookup(dictionary, buffer.getInt());
+    long userCreatedAt = buffer.getLong();
+    String login = lookup(dictionary, buffer.getInt());
+    String password = lookup(dictionary, buffer.getInt());
+
+    String walletId = lookup(dictionary, buffer.getInt());
+    long walletCreatedAt = buffer.getLong();
+    double balance = buffer.getDouble();
+    long version = buffer.getLong();
+
+    int budgetCount = buffer.getInt();
+    Map<String, Budget> budgets = new HashMap<>();
+    for (int i = 0; i < budgetCount; i++) {
+      Budget budget = readBudget(buffer, dictionary, formatVersion);
+      budgets.put(budget.getCategory(), budget);
+    }
+
+    int transactionCount = buffer.getInt();
+    TransactionStore transactions = new TransactionStore(transactionCount);
+    for (int i = 0; i < transactionCount; i++) {
+      readTransaction(buffer, dictionary, transactions);
+    }
+    CategorySketches sketches =
+        formatVersion > VERSION_WITHOUT_SKETCHES
+            ? readSketches(buffer, dictionary, transactions)
+            : null;
+
+    Wallet wallet =
+        new Wallet(
+            walletId,
+            DateTimeUtils.fromEpochMillis(walletCreatedAt),
+            balance,
+            version,
+            transactions,
+            budgets,
+            sketches);
+    return new User(userId, DateTimeUtils.fromEpochMillis(userCreatedAt), login, password, wallet);
+  }
+
+  // Бюджет: id, createdAt, category, limit, spent и, начиная с версии 3, код периода
+  private Budget readBudget(ByteBuffer buffer, String[] dictionary, int formatVersion) {
+    String id = lookup(dictionary, buffer.getInt());
+    long createdAt = buffer.getLong();
+    String category = lookup(dictionary, buffer.getInt());
+    double limit = buffer.getDouble();
+    double spent = buffer.getDouble();
+    String period =
+        formatVersion > VERSION_WITHOUT_PERIODS ? lookup(dictionary, buffer.getInt()) : null;
+    return new Budget(
+        id,
+        DateTimeUtils.fromEpochMillis(createdAt),
+        category,
+        limit,
+        spent,
+        period != null ? BudgetPeriod.parse(period) : null);
+  }
+
+  // Строка секции транзакций: createdAt, amount, category, flags, id (два long). У транзакции без
+  // даты установлен флаг FLAG_NO_DATE, а createdAt не используется
+  private void readTransaction(ByteBuffer buffer, String[] dictionary, TransactionStore store) {
+    long createdAt = buffer.getLong();
+    double amount = buffer.getDouble();
+    String category = lookup(dictionary, buffer.getInt());
+    byte flags = buffer.get();
+    long idHigh = buffer.getLong();
+    long idLow = buffer.getLong();
+    boolean isIncome = (flags & FLAG_INCOME) != 0;
+    boolean hasDate = (flags & FLAG_NO_DATE) == 0 && createdAt != LEGACY_NO_DATE_MILLIS;
+
+    if ((flags & FLAG_TEXT_ID) != 0) {
+      store.add(
+          lookup(dictionary, (int) idHigh),
+          hasDate ? DateTimeUtils.fromEpochMillis(createdAt) : null,
+          amount,
+          category,
+          isIncome);
+    } else {
+      long epochNanos = hasDate ? createdAt * NANOS_PER_MILLI : Long.MIN_VALUE;
+      store.add(idHigh, idLow, epochNanos, amount, category, isIncome);
+    }
+  }
+
+  // Секция эскизов: k, top, эскизы расходов и доходов (count, [category, count, min, max,
+  // compactions, levels, [size, values]]), наибольшие расходы (count, [category, size, values])
+  private CategorySketches readSketches(
+      ByteBuffer buffer, String[] dictionary, TransactionStore transactions) {
+    CategorySketches sketches =
+        new CategorySketches(transactions, buffer.getInt(), buffer.getInt());
+    for (boolean isIncome : new boolean[] {false, true}) {
+      int sketchCount = buffer.getInt();
+      for (int i = 0; i < sketchCount; i++) {
+        String category = lookup(dictionary, buffer.getInt());
+        long count = buffer.getLong();
+        double min = buffer.getDouble();
+        double max = buffer.getDouble();
+        long compactions = buffer.getLong();
+        int levelCount = buffer.getInt();
+        List<double[]> levels = new ArrayList<>(levelCount);
+        for (int h = 0; h < levelCount; h++) {
+          levels.add(readValues(buffer));
+        }
+        sketches.putSketch(
+            category,
+            isIncome,
+            QuantileSketch.restore(sketches.getK(), count, min, max, compactions, levels));
+      }
+    }
+
+    int largestCount = buffer.getInt();
+    for (int i = 0; i < largestCount; i++) {
+      String category = lookup(dictionary, buffer.getInt());
+      sketches.putLargestExpenses(
+          category, TopAmounts.restore(sketches.getTopCapacity(), readValues(buffer)));
+    }
+    return sketches;
+  }
+
+  private double[] readValues(ByteBuffer buffer) {
+    double[] values = new double[buffer.getInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = buffer.getDouble();
+    }
+    return values;
+  }
+
+  private void writeUser(DataOutputStream out, User user, Map<String, Integer> dictionary)
+      throws IOException {
+    Wallet wallet = user.getWallet();
+    synchronized (wallet) {
+      writeWallet(out, user, wallet, dictionary);
+    }
+  }
+
+  private void writeWallet(
+      DataOutputStream out, User user, Wallet wallet, Map<String, Integer> dictionary)
+      throws IOException {
+    out.writeInt(ref(dictionary, user.getId()));
+    out.writeLong(DateTimeUtils.toEpochMillis(user.getCreatedAt()));
+    out.writeInt(ref(dictionary, user.getLogin()));
+    out.writeInt(ref(dictionary, user.getPassword()));
+
+    out.writeInt(ref(dictionary, wallet.getId()));
+    out.writeLong(DateTimeUtils.toEpochMillis(wallet.getCreatedAt()));
+    out.writeDouble(wallet.getBalance());
+    out.writeLong(wallet.getVersion());
+
+    out.writeInt(wallet.getBudgets().size());
+    for (Budget budget : wallet.getBudgets().values()) {
+      out.writeInt(ref(dictionary, budget.getId()));
+      out.writeLong(DateTimeUtils.toEpochMillis(budget.getCreatedAt()));
+      out.writeInt(ref(dictionary, budget.getCategory()));
+      out.writeDouble(budget.getLimit());
+      out.writeDouble(budget.getTotalSpent());
+      out.writeInt(ref(dictionary, budget.isPeriodic() ? budget.getPeriod().getCode() : null));
+    }
+
+    TransactionStore transactions = wallet.getTransactionStore();
+    out.writeInt(transactions.size());
+    for (int row = 0; row < transactions.size(); row++) {
+      writeTransaction(out, transactions, row, dictionary);
+    }
+    writeSketches(out, wallet.getSketches(), dictionary);
+  }
+
+  private void writeSketches(
+      DataOutputStream out, CategorySketches sketches, Map<String, Integer> dictionary)
+      throws IOException {
+    out.writeInt(sketches.getK());
+    out.writeInt(sketches.getTopCapacity());
+    for (boolean isIncome : new boolean[] {false, true}) {
+      Map<String, QuantileSketch> byCategory = sketches.getSketches(isIncome);
+      out.writeInt(byCategory.size());
+      for (Map.Entry<String, QuantileSketch> entry : byCategory.entrySet()) {
+        QuantileSketch sketch = entry.getValue();
+        out.writeInt(ref(dictionary, entry.getKey()));
+        out.writeLong(sketch.getCount());
+        out.writeDouble(sketch.getMin());
+        out.writeDouble(sketch.getMax());
+        out.writeLong(sketch.getCompactions());
+        out.writeInt(sketch.getLevelCount());
+        for (int h = 0; h < sketch.getLevelCount(); h++) {
+          writeValues(out, sketch.getLevel(h));
+        }
+      }
+    }
+
+    out.writeInt(sketches.getLargestExpenses().size());
+    for (Map.Entry<String, TopAmounts> entry : sketches.getLargestExpenses().entrySet()) {
+      out.writeInt(ref(dictionary, entry.getKey()));
+      writeValues(out, entry.getValue().values());
+    }
+  }
+
+  private void writeValues(DataOutputStream out, double[] values) throws IOException {
+    out.writeInt(values.length);
+    for (double value : values) {
+      out.writeDouble(value);
+    }
+  }
+
+  private void writeTransaction(
+      DataOutputStream out, TransactionStore transactions, int row, Map<String, Integer> dictionary)
+      throws IOException {
+    byte flags = transactions.isIncome(row) ? FLAG_INCOME : 0;
+    long epochNanos = transactions.getTimestamp(row);
+    if (epochNanos == Long.MIN_VALUE) {
+      flags |= FLAG_NO_DATE;
+    }
+
+    out.writeLong(epochNanos == Long.MIN_VALUE ? 0 : Math.floorDiv(epochNanos, NANOS_PER_MILLI));
+    out.writeDouble(transactions.getAmount(row));
+    out.writeInt(ref(dictionary, transactions.getCategory(row)));
+    if (transactions.hasUuid(row)) {
+      out.writeByte(flags);
+      out.writeLong(transactions.getUuidHigh(row));
+      out.writeLong(transactions.getUuidLow(row));
+    } else {
+      out.writeByte(flags | FLAG_TEXT_ID);
+      out.writeLong(ref(dictionary, transactions.getId(row)));
+      out.writeLong(0);
+    }
+  }
+
+  // Номер строки в словаре снимка; новая строка получает следующий номер
+  private int ref(Map<String, Integer> dictionary, String value) {
+    if (value == null) {
+      return NULL_REF;
+    }
+    Integer ref = dictionary.putIfAbsent(value, dictionary.size());
+    return ref != null ? ref : dictionary.size() - 1;
+  }
+
+  private String lookup(String[] dictionary, int ref) {
+    return ref == NULL_REF ? null : dictionary[ref];
+  }
+}
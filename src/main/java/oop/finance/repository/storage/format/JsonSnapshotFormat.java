@@ -0,0 +1,62 @@
+package oop.finance.repository.storage.format;
+
+import com.google.gson.JsonSyntaxException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import oop.finance.model.User;
+import oop.finance.utils.JsonUtils;
+
+/** Снимок в формате JSON (data.json). Читается и пишется потоково, по одному пользователю */
+public class JsonSnapshotFormat implements SnapshotFormat {
+  private static final long PROGRESS_MIN_BYTES = 16L * 1024 * 1024;
+  private static final int PROGRESS_PERCENT = 100;
+  private static final int PROGRESS_STEP = 10;
+
+  private final JsonUtils jsonUtils = new JsonUtils();
+  private int lastReportedPercent;
+
+  @Override
+  public Map<String, User> read(Path path) throws IOException {
+    Map<String, User> users = new HashMap<>();
+    if (!Files.exists(path)) {
+      return users;
+    }
+
+    try {
+      lastReportedPercent = 0;
+      jsonUtils.readEntriesFromJSON(path.toString(), User.class, users::put, this::reportProgress);
+      return users;
+    } catch (JsonSyntaxException error) {
+      throw new IOException(error.getMessage(), error);
+    }
+  }
+
+  @Override
+  public void write(Collection<User> users, OutputStream out) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    jsonUtils.writeEntriesToJSON(writer, User.class, users, User::getLogin);
+    writer.flush();
+  }
+
+  // Выводит прогресс загрузки больших файлов с шагом в 10%
+  private void reportProgress(long bytesRead, long totalBytes) {
+    if (totalBytes < PROGRESS_MIN_BYTES) {
+      return;
+    }
+
+    int percent = (int) (bytesRead * PROGRESS_PERCENT / totalBytes);
+    if (percent / PROGRESS_STEP > lastReportedPercent / PROGRESS_STEP) {
+      lastReportedPercent = percent;
+      System.out.println("Загрузка пользователей: " + percent + "%");
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package oop.finance.repository.storage.format;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import oop.finance.model.User;
+import oop.finance.repository.storage.SnapshotUserStorage;
+import oop.finance.utils.FileUtils;
+
+/**
+ * Конвертер снимков между JSON и двоичным форматом. Исходный снимок читается вместе с его журналом,
+ * поэтому результат содержит все сохраненные изменения. JSON остается форматом импорта и экспорта
+ *
+ * <p>Запуск: {@code mvn exec:java -Dexec.mainClass="oop.finance.repository.storage.format.
+ * SnapshotConverter" -Dexec.args="json-to-binary data.json data.bin"}
+ */
+public final class SnapshotConverter {
+  private static final String JSON_TO_BINARY = "json-to-binary";
+  private static final String BINARY_TO_JSON = "binary-to-json";
+  private static final int ARGS_COUNT = 3;
+
+  private SnapshotConverter() {
+    // запрет генерации экземпляров
+  }
+
+  // Конвертирует снимок из JSON в двоичный формат
+  public static int jsonToBinary(String jsonPath, String binaryPath) throws IOException {
+    return convert(jsonPath, new JsonSnapshotFormat(), binaryPath, new BinarySnapshotFormat());
+  }
+
+  // Конвертирует снимок из двоичного формата в JSON
+  public static int binaryToJson(String binaryPath, String jsonPath) throws IOException {
+    return convert(binaryPath, new BinarySnapshotFormat(), jsonPath, new JsonSnapshotFormat());
+  }
+
+  // Читает снимок с журналом в исходном формате и записывает в целевом. Возвращает число
+  // перенесенных пользователей
+  public static int convert(
+      String sourcePath,
+      SnapshotFormat sourceFormat,
+      String targetPath,
+      SnapshotFormat targetFormat)
+      throws IOException {
+    SnapshotUserStorage source =
+        new SnapshotUserStorage(
+            sourcePath, sourceFormat, SnapshotUserStorage.DEFAULT_COMPACTION_THRESHOLD);
+
+    Map<String, User> users = new HashMap<>();
+    for (String login : source.loadLogins()) {
+      users.put(login, source.load(login));
+    }
+
+    FileUtils.writeStreamAtomically(
+        Paths.get(targetPath), out -> targetFormat.write(users.values(), out));
+    return users.size();
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != ARGS_COUNT) {
+      System.out.println(
+          "Использование: SnapshotConverter json-to-binary|binary-to-json <откуда> <куда>");
+      return;
+    }
+
+    int count;
+    if (JSON_TO_BINARY.equals(args[0])) {
+      count = jsonToBinary(args[1], args[2]);
+    } else if (BINARY_TO_JSON.equals(args[0])) {
+      count = binaryToJson(args[1], args[2]);
+    } else {
+      System.out.println("Неизвестное направление конвертации: " + args[0]);
+      return;
+    }
+
+    System.out.println("Сконвертировано пользователей: " + count);
+  }
+}
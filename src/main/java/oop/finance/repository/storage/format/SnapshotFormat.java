@@ -0,0 +1,18 @@
+package oop.finance.repository.storage.format;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import oop.finance.model.User;
+
+/** Формат файла снимка пользователей: как снимок читается целиком и как сериализуется */
+public interface SnapshotFormat {
+  // Читает снимок. Отсутствующий файл означает пустую базу
+  Map<String, User> read(Path path) throws IOException;
+
+  // Потоково сериализует пользователей в содержимое файла снимка. Кошелек каждого пользователя
+  // читается под его блокировкой, поэтому запись может идти параллельно с изменениями кошельков
+  void write(Collection<User> users, OutputStream out) throws IOException;
+}
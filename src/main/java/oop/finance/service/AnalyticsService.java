@@ -0,0 +1,219 @@
+package oop.finance.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import oop.finance.model.Budget;
+import oop.finance.model.CategoryDictionary;
+import oop.finance.model.SystemStatistics;
+import oop.finance.model.TransactionStore;
+import oop.finance.model.User;
+import oop.finance.repository.UserRepository;
+
+/**
+ * Сервис статистики по всем пользователям системы. Пользователи обходятся одним потоком из
+ * репозитория без копирования в список; при числе пользователей не меньше порога поток
+ * параллельный. Каждый рабочий поток копит собственный частичный итог: массивы сумм и количеств по
+ * номерам категорий (берутся из нарастающих итогов хранилища, без промежуточных коллекций на
+ * пользователя) и кучу пользователей с наибольшими расходами. Частичные итоги затем сливаются
+ */
+public class AnalyticsService {
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 1_000;
+  public static final int DEFAULT_TOP_SPENDERS = 10;
+  private static final int EXPENSE = 0;
+  private static final int INCOME = 1;
+  private static final int SIDES = 2;
+  // в куче первым лежит худший из отобранных: меньшие расходы, при равенстве - больший логин
+  private static final Comparator<Spender> WORST_FIRST =
+      Comparator.comparingDouble((Spender spender) -> spender.expense)
+          .thenComparing(spender -> spender.login, Comparator.reverseOrder());
+
+  private final UserRepository userRepository;
+  // число пользователей, начиная с которого обход выполняется параллельно
+  private final int parallelThreshold;
+
+  public AnalyticsService(UserRepository userRepository) {
+    this(userRepository, DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  public AnalyticsService(UserRepository userRepository, int parallelThreshold) {
+    this.userRepository = userRepository;
+    this.parallelThreshold = parallelThreshold;
+  }
+
+  // Собирает статистику по всем пользователям с topSpenders пользователями с наибольшими расходами
+  public SystemStatistics collect(int topSpenders) {
+    Stream<User> users = userRepository.stream();
+    if (userRepository.count() >= parallelThreshold) {
+      users = users.parallel();
+    }
+    return users
+        .collect(() -> new Partial(topSpenders), Partial::add, Partial::merge)
+        .toStatistics();
+  }
+
+  // Собирает статистику по всем пользователям с DEFAULT_TOP_SPENDERS наибольшими расходами
+  public SystemStatistics collect() {
+    return collect(DEFAULT_TOP_SPENDERS);
+  }
+
+  // Суммы расходов всех пользователей по категориям
+  public Map<String, Double> getExpensesByCategory() {
+    return collect(0).getExpensesByCategory();
+  }
+
+  // Суммы доходов всех пользователей по категориям
+  public Map<String, Double> getIncomeByCategory() {
+    return collect(0).getIncomeByCategory();
+  }
+
+  // Логины и расходы count пользователей с наибольшими расходами, по убыванию расходов
+  public Map<String, Double> getTopSpenders(int count) {
+    return collect(count).getTopSpenders();
+  }
+
+  // Количество пользователей, у которых превышен хотя бы один бюджет
+  public int getUsersOverBudget() {
+    return collect(0).getUsersOverBudget();
+  }
+
+  /** Пользователь и сумма его расходов */
+  private static final class Spender {
+    private final String login;
+    private final double expense;
+
+    Spender(String login, double expense) {
+      this.login = login;
+      this.expense = expense;
+    }
+  }
+
+  /** Частичный итог одного рабочего потока */
+  private static final class Partial {
+    private final int topCount;
+    private final PriorityQueue<Spender> spenders = new PriorityQueue<>(WORST_FIRST);
+    // суммы и количества по номеру категории + 1 (ячейка 0 - без категории): [0] - расходы, [1] -
+    // доходы
+    private final double[][] sums = new double[SIDES][0];
+    private final long[][] counts = new long[SIDES][0];
+    private final double[] totals = new double[SIDES];
+    private int userCount;
+    private int usersOverBudget;
+
+    Partial(int topCount) {
+      this.topCount = topCount;
+    }
+
+    void add(User user) {
+      userCount++;
+      TransactionStore store = user.getWallet().getTransactionStore();
+      for (int side = EXPENSE; side < SIDES; side++) {
+        boolean isIncome = side == INCOME;
+        totals[side] += store.sum(isIncome);
+        // только категории, встречающиеся у пользователя с этим типом, и транзакции без категории
+        BitSet used = store.getCategories(isIncome);
+        for (int id = used.nextSetBit(0); id >= 0; id = used.nextSetBit(id + 1)) {
+          addCategory(store, side, id);
+        }
+        addCategory(store, side, CategoryDictionary.NO_CATEGORY);
+      }
+      offer(new Spender(user.getLogin(), store.sum(false)));
+      if (isOverBudget(user)) {
+        usersOverBudget++;
+      }
+    }
+
+    private void addCategory(TransactionStore store, int side, int id) {
+      boolean isIncome = side == INCOME;
+      int count = store.count(isIncome, id);
+      if (count > 0) {
+        // локальный номер категории кошелька переводится в номер общего словаря
+        int slot = store.globalCategoryId(id) + 1;
+        ensureSlots(slot + 1);
+        sums[side][slot] += store.sum(isIncome, id);
+        counts[side][slot] += count;
+      }
+    }
+
+    void merge(Partial other) {
+      userCount += other.userCount;
+      usersOverBudget += other.usersOverBudget;
+      ensureSlots(other.sums[EXPENSE].length);
+      for (int side = EXPENSE; side < SIDES; side++) {
+        totals[side] += other.totals[side];
+        for (int slot = 0; slot < other.sums[side].length; slot++) {
+          sums[side][slot] += other.sums[side][slot];
+          counts[side][slot] += other.counts[side][slot];
+        }
+      }
+      other.spenders.forEach(this::offer);
+    }
+
+    SystemStatistics toStatistics() {
+      List<Spender> top =
+          spenders.stream().sorted(WORST_FIRST.reversed()).collect(Collectors.toList());
+      Map<String, Double> topSpenders = new LinkedHashMap<>();
+      for (Spender spender : top) {
+        topSpenders.put(spender.login, spender.expense);
+      }
+      return new SystemStatistics(
+          userCount,
+          totals[INCOME],
+          totals[EXPENSE],
+          byCategory(INCOME),
+          byCategory(EXPENSE),
+          topSpenders,
+          usersOverBudget);
+    }
+
+    // Оставляет в куче topCount пользователей с наибольшими расходами
+    private void offer(Spender spender) {
+      if (topCount <= 0) {
+        return;
+      }
+      if (spenders.size() < topCount) {
+        spenders.add(spender);
+      } else if (WORST_FIRST.compare(spender, spenders.peek()) > 0) {
+        spenders.poll();
+        spenders.add(spender);
+      }
+    }
+
+    // Суммы по категориям, в которых есть транзакции (ключ null - транзакции без категории)
+    private Map<String, Double> byCategory(int side) {
+      Map<String, Double> result = new HashMap<>();
+      for (int slot = 0; slot < sums[side].length; slot++) {
+        if (counts[side][slot] > 0) {
+          result.put(CategoryDictionary.global().nameOf(slot - 1), sums[side][slot]);
+        }
+      }
+      return result;
+    }
+
+    private void ensureSlots(int slots) {
+      if (slots > sums[EXPENSE].length) {
+        int length = Math.max(slots, sums[EXPENSE].length * 2);
+        for (int side = EXPENSE; side < SIDES; side++) {
+          sums[side] = Arrays.copyOf(sums[side], length);
+          counts[side] = Arrays.copyOf(counts[side], length);
+        }
+      }
+    }
+
+    private static boolean isOverBudget(User user) {
+      for (Budget budget : user.getWallet().getBudgets().values()) {
+        if (budget.isExceeded()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
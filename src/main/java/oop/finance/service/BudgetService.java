@@ -1,9 +1,8 @@
 package oop.finance.service;
 
-import java.util.Objects;
 import oop.finance.exception.InvalidCredentialsException;
 import oop.finance.model.Budget;
-import oop.finance.model.Transaction;
+import oop.finance.model.BudgetPeriod;
 import oop.finance.model.User;
 import oop.finance.service.base.BaseService;
 
@@ -13,27 +12,24 @@ import oop.finance.service.base.BaseService;
 public class BudgetService extends BaseService {
   // Устанавливает новый бюджет c указанной категорией и лимитом
   public void setBudget(User user, String category, double limit) {
+    setBudget(user, category, limit, null);
+  }
+
+  // Устанавливает бюджет на период (null - на все время). Расходы текущего периода кошелек
+  // заполняет из дневных итогов истории категории
+  public void setBudget(User user, String category, double limit, BudgetPeriod period) {
     validateNotNull(category, "Поле категория");
     validatePositive(limit, "Поле лимит");
 
-    Budget budget = new Budget(category, limit);
-    double sent = getExpensesSumByCategory(user, category);
+    Budget budget = new Budget(category, limit, period);
+    // расходы категории берутся из итогов кошелька, поэтому стоимость не зависит от истории
+    double sent = user.getWallet().getExpenses(category);
     if (sent > 0) {
       budget.addExpense(sent);
     }
     user.getWallet().setBudget(budget);
   }
 
-  // Рассчитывает сумму расходов по указанной категории
-  private double getExpensesSumByCategory(User user, String category) {
-    return user.getWallet().getTransactions().stream()
-        .filter(
-            transaction ->
-                !transaction.isIncome() && Objects.equals(transaction.getCategory(), category))
-        .mapToDouble(Transaction::getAmount)
-        .sum();
-  }
-
   // Возвращает остаток бюджета для указанной категории
   public double getBudgetRemaining(User user, String category) {
     validateNotNull(category, "Поле категория");
@@ -54,9 +50,11 @@ public class BudgetService extends BaseService {
     }
 
     budget.setLimit(limit);
+    user.getWallet().setBudget(budget);
   }
 
-  // Изменяет название категории бюджета
+  // Изменяет название категории бюджета. Бюджет начинает учитывать расходы новой категории, поэтому
+  // траты за все время, как и траты периода, берутся из ее истории
   public void updateBudget(User user, String category, String newCategory) {
     validateNotNull(category, "Поле категория");
     validateNotNull(newCategory, "Поле новая категория");
@@ -67,7 +65,8 @@ public class BudgetService extends BaseService {
       throw new InvalidCredentialsException("Бюджет по заданной категории не найден!");
     }
 
-    Budget newBudget = new Budget(newCategory, budget.getLimit(), budget.getSpent());
+    double spent = user.getWallet().getExpenses(newCategory);
+    Budget newBudget = new Budget(newCategory, budget.getLimit(), spent, budget.getPeriod());
     user.getWallet().setBudget(newBudget, category);
   }
 }
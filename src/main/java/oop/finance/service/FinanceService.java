@@ -1,11 +1,18 @@
 package oop.finance.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import oop.finance.exception.InvalidCredentialsException;
+import oop.finance.model.QueryPlan;
 import oop.finance.model.StatisticsQuery;
+import oop.finance.model.StatisticsSummary;
 import oop.finance.model.Transaction;
+import oop.finance.model.TransactionCursor;
+import oop.finance.model.TransactionPage;
 import oop.finance.model.User;
 import oop.finance.service.base.BaseService;
 import oop.finance.utils.DateTimeUtils;
@@ -15,6 +22,32 @@ import oop.finance.utils.DateTimeUtils;
  * транзакциями и статистическими данными
  */
 public class FinanceService extends BaseService {
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 1_000_000;
+  public static final int DEFAULT_CACHE_SIZE = 256;
+  private static final double MEDIAN = 0.5;
+
+  // число просматриваемых транзакций, начиная с которого статистика считается параллельно
+  private final int parallelThreshold;
+  private final QueryCache cache;
+
+  public FinanceService() {
+    this(DEFAULT_PARALLEL_THRESHOLD, DEFAULT_CACHE_SIZE);
+  }
+
+  public FinanceService(int parallelThreshold) {
+    this(parallelThreshold, DEFAULT_CACHE_SIZE);
+  }
+
+  public FinanceService(int parallelThreshold, int cacheSize) {
+    this.parallelThreshold = parallelThreshold;
+    this.cache = new QueryCache(cacheSize);
+  }
+
+  // Кэш результатов статистики (счетчики попаданий и промахов)
+  public QueryCache getCache() {
+    return cache;
+  }
+
   // Добавляет операцию дохода для пользователя
   public void addIncome(User user, String category, double amount) {
     validateNotNull(category, "Поле категория");
@@ -48,21 +81,57 @@ public class FinanceService extends BaseService {
     userTo.getWallet().addTransaction(transactionTo);
   }
 
-  // Универсальный метод для расчета общей суммы транзакций по заданному запросу
+  // Универсальный метод для расчета общей суммы транзакций по заданному запросу. Результат берется
+  // из кэша, пока кошелек не изменился; иначе запрос компилируется в план, который сам выбирает
+  // источник данных: нарастающие итоги, итоги по дням или проход по транзакциям
   public double calculateTotal(User user, StatisticsQuery query) {
-    return user.getWallet().getTransactions().stream()
-        .filter(query.build())
-        .mapToDouble(Transaction::getAmount)
-        .sum();
+    return cache.get(user.getWallet(), "total", query, () -> compile(user, query).total());
   }
 
-  // Группирует транзакции по категориям согласно заданному запросу
+  // Группирует транзакции по категориям согласно заданному запросу. Возвращается копия, которую
+  // можно изменять, не затрагивая кэш
   public Map<String, Double> groupByCategory(User user, StatisticsQuery query) {
-    return user.getWallet().getTransactions().stream()
-        .filter(query.build())
-        .collect(
-            Collectors.groupingBy(
-                Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
+    Map<String, Double> result =
+        cache.get(
+            user.getWallet(),
+            "group",
+            query,
+            () -> Collections.unmodifiableMap(compile(user, query).groupByCategory()));
+    return new HashMap<>(result);
+  }
+
+  private QueryPlan compile(User user, StatisticsQuery query) {
+    return query.compile(user.getWallet().getTransactionStore(), parallelThreshold);
+  }
+
+  // Сводная статистика по заданному запросу: итоги, суммы и количества по категориям для доходов
+  // и расходов, собранные за один проход
+  public StatisticsSummary summarize(User user, StatisticsQuery query) {
+    return cache.get(user.getWallet(), "summary", query, () -> compile(user, query).summarize());
+  }
+
+  // Сводная статистика по всем операциям
+  public StatisticsSummary getStatistics(User user) {
+    return summarize(user, StatisticsQuery.create());
+  }
+
+  // Сводная статистика по выбранным категориям
+  public StatisticsSummary getStatistics(User user, String[] categories) {
+    validateNotEmpty(categories, "Значение категории");
+
+    return summarize(user, StatisticsQuery.create().withCategories(categories));
+  }
+
+  // Сводная статистика за период
+  public StatisticsSummary getStatistics(User user, String dateFromStr, String dateToStr) {
+    LocalDateTime dateFrom = DateTimeUtils.parseStringDate(dateFromStr);
+    LocalDateTime dateTo = DateTimeUtils.parseStringDate(dateToStr);
+
+    if (dateTo.isBefore(dateFrom)) {
+      throw new InvalidCredentialsException("Конечная дата не может быть раньше начальной!");
+    }
+
+    return summarize(user, StatisticsQuery.create().withPeriod(dateFrom, dateTo));
   }
 
   // Метод для получения общей статистики доходов
@@ -160,4 +229,66 @@ public class FinanceService extends BaseService {
     return groupByCategory(
         user, StatisticsQuery.create().withType(false).withPeriod(dateFrom, dateTo));
   }
+
+  // Открывает курсор для обхода транзакций, подходящих под запрос, в хронологическом порядке.
+  // token - токен продолжения предыдущей страницы или null
+  public TransactionCursor openCursor(
+      User user, StatisticsQuery query, TransactionCursor.Order order, String token) {
+    validateNotNull(query, "Поле запрос");
+    validateNotNull(order, "Поле порядок");
+    return new TransactionCursor(user.getWallet().getTransactionStore(), query, order, token);
+  }
+
+  // Страница из не более чем pageSize транзакций, подходящих под запрос, после позиции из токена
+  public TransactionPage getTransactionPage(
+      User user, StatisticsQuery query, TransactionCursor.Order order, int pageSize, String token) {
+    validatePositive(pageSize, "Поле размер страницы");
+    return openCursor(user, query, order, token).nextPage(pageSize);
+  }
+
+  // Квантиль сумм расходов категории по эскизу кошелька: rank от 0 до 1 (0.5 - медиана, 0.95 -
+  // 95-й перцентиль). Возвращает 0, если расходов по категории нет
+  public double getExpenseQuantile(User user, String category, double rank) {
+    validateNotNull(category, "Поле категория");
+    validateRank(rank);
+    return valueOrZero(user.getWallet().getSketches().quantile(category, false, rank));
+  }
+
+  // Квантиль сумм доходов категории по эскизу кошелька
+  public double getIncomeQuantile(User user, String category, double rank) {
+    validateNotNull(category, "Поле категория");
+    validateRank(rank);
+    return valueOrZero(user.getWallet().getSketches().quantile(category, true, rank));
+  }
+
+  // Квантиль сумм расходов по всем категориям (эскизы категорий сливаются)
+  public double getExpenseQuantile(User user, double rank) {
+    validateRank(rank);
+    return valueOrZero(user.getWallet().getSketches().quantile(false, rank));
+  }
+
+  // Медиана сумм расходов категории
+  public double getMedianExpense(User user, String category) {
+    return getExpenseQuantile(user, category, MEDIAN);
+  }
+
+  // Наибольшие расходы категории по убыванию (не больше TopAmounts.DEFAULT_CAPACITY)
+  public List<Double> getLargestExpenses(User user, String category) {
+    validateNotNull(category, "Поле категория");
+    List<Double> largest = new ArrayList<>();
+    for (double amount : user.getWallet().getSketches().largestExpenses(category)) {
+      largest.add(amount);
+    }
+    return largest;
+  }
+
+  private void validateRank(double rank) {
+    if (!(rank >= 0 && rank <= 1)) {
+      throw new InvalidCredentialsException("Поле ранг должно быть в пределах от 0 до 1!");
+    }
+  }
+
+  private static double valueOrZero(double value) {
+    return Double.isNaN(value) ? 0 : value;
+  }
 }
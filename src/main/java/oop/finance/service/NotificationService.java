@@ -1,94 +1,299 @@
 package oop.finance.service;
 
+import java.time.LocalDate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import oop.finance.constants.BaseConstants;
 import oop.finance.model.Budget;
+import oop.finance.model.CategoryDictionary;
+import oop.finance.model.Notification;
+import oop.finance.model.NotificationRule;
+import oop.finance.model.NotificationRule.Comparison;
+import oop.finance.model.NotificationRule.Metric;
+import oop.finance.model.NotificationRule.Scope;
+import oop.finance.model.Transaction;
+import oop.finance.model.TransactionStore;
 import oop.finance.model.User;
+import oop.finance.model.Wallet;
+import oop.finance.model.event.WalletListener;
+import oop.finance.service.notification.NotificationDispatcher;
+import oop.finance.service.notification.RuleSet;
 
-/** Сервис уведомлений для мониторинга финансового состояния */
+/**
+ * Сервис уведомлений для мониторинга финансового состояния. Сервис подписывается на события
+ * кошелька и после каждой транзакции или изменения бюджета проверяет только правила затронутой
+ * категории и кошелька. Правила заданы данными (NotificationRule): к стандартным правилам
+ * пользователь может добавить свои, и все они компилируются в один RuleSet, который считает каждый
+ * показатель кошелька один раз на проверку. Уведомление формируется лишь при переходе состояния и
+ * копится в очереди пользователя до показа, поэтому проверка без изменений не выполняет вычислений.
+ *
+ * <p>Если задан диспетчер, уведомления вместо очереди передаются ему и доставляются получателям в
+ * фоновых потоках; поток, изменивший кошелек, при этом не ждет получателей
+ */
 public class NotificationService {
-  private final FinanceService financeService;
+  // стандартные правила: от 80% до 100% и превышение бюджета (ровно 100% - без уведомления),
+  // нулевой, отрицательный и низкий баланс, превышение расходов над доходами
+  public static final List<NotificationRule> DEFAULT_RULES =
+      List.of(
+          new NotificationRule(
+              "budget:WARNING",
+              Metric.BUDGET_USAGE,
+              Comparison.AT_LEAST,
+              BaseConstants.MEDIUM_PERCENT,
+              BaseConstants.MAX_PERCENT,
+              "Бюджет категории %1$s использован на %2$.1f%% (осталось: %5$.2f)"),
+          new NotificationRule(
+              "budget:EXCEEDED",
+              Metric.BUDGET_USAGE,
+              Comparison.ABOVE,
+              BaseConstants.MAX_PERCENT,
+              "Превышен бюджет категории %1$s! Перерасход: %6$.2f"),
+          new NotificationRule(
+              "balance:zero", Metric.BALANCE, Comparison.EQUAL, 0, "Ваш баланс равен нулю"),
+          new NotificationRule(
+              "balance:negative",
+              Metric.BALANCE,
+              Comparison.BELOW,
+              0,
+              "Отрицательный баланс: %4$.2f"),
+          new NotificationRule(
+              "balance:low",
+              Metric.BALANCE_TO_INCOME,
+              Comparison.BELOW,
+              BaseConstants.MIN_PERCENT,
+              "Низкий баланс: %4$.2f (менее 10%% от общего дохода)"),
+          new NotificationRule(
+              "expenses:exceeding",
+              Metric.EXPENSE_SURPLUS,
+              Comparison.ABOVE,
+              0,
+              "Расходы превышают доходы на %2$.2f"));
+  private static final RuleSet DEFAULT_RULE_SET = RuleSet.compile(DEFAULT_RULES);
+  private static final String NO_CATEGORY_NAME = "без категории";
 
-  public NotificationService(FinanceService financeService) {
-    this.financeService = financeService;
+  // наблюдатели за кошельками по логину пользователя
+  private final Map<String, WalletWatcher> watchers = new ConcurrentHashMap<>();
+  // скомпилированные правила пользователей, у которых есть собственные правила
+  private final Map<String, RuleSet> ruleSets = new ConcurrentHashMap<>();
+  private final NotificationDispatcher dispatcher;
+
+  public NotificationService() {
+    this(null);
+  }
+
+  // dispatcher - асинхронная доставка уведомлений или null для показа в меню через очередь
+  public NotificationService(NotificationDispatcher dispatcher) {
+    this.dispatcher = dispatcher;
   }
 
-  // Проверяет все возможные уведомления для пользователя
-  public List<String> checkNotifications(User user) {
-    List<String> notifications = new ArrayList<>();
+  // Забирает накопленные уведомления пользователя. При первом обращении подписывается на кошелек
+  // и ставит в очередь уже действующие предупреждения. При доставке через диспетчер очередь пуста
+  public List<String> pollNotifications(User user) {
+    return watch(user).drain();
+  }
 
-    notifications.addAll(checkBudgetNotifications(user));
-    notifications.addAll(checkBalanceNotifications(user));
-    notifications.addAll(checkFinancialHealthNotifications(user));
+  // Задает собственные правила пользователя (в дополнение к стандартным). Правила сразу
+  // компилируются; значения показателей, накопленные прежними правилами, сохраняются
+  public void setRules(String login, List<NotificationRule> rules) {
+    List<NotificationRule> all = new ArrayList<>(DEFAULT_RULES);
+    all.addAll(rules);
+    RuleSet ruleSet = RuleSet.compile(all);
+    ruleSets.put(login, ruleSet);
 
-    return notifications;
+    WalletWatcher watcher = watchers.get(login);
+    if (watcher != null) {
+      watcher.setRules(ruleSet);
+    }
   }
 
-  // Проверяет уведомления, связанные с бюджетами
-  private List<String> checkBudgetNotifications(User user) {
-    List<String> notifications = new ArrayList<>();
-
-    for (Budget budget : user.getWallet().getBudgetsList()) {
-      if (budget != null) {
-        double usagePercentage = budget.getUsagePercentage();
-
-        // Уведомление о 80% лимита
-        if (usagePercentage >= BaseConstants.MEDIUM_PERCENT
-            && usagePercentage < BaseConstants.MAX_PERCENT) {
-          notifications.add(
-              String.format(
-                  "Бюджет категории %s использован на %.1f%% (осталось: %.2f)",
-                  budget.getCategory(), usagePercentage, budget.getRemaining()));
-        }
+  // Собственные правила пользователя
+  public List<NotificationRule> getRules(String login) {
+    RuleSet ruleSet = ruleSets.get(login);
+    if (ruleSet == null) {
+      return Collections.emptyList();
+    }
+    List<NotificationRule> rules = ruleSet.getRules();
+    return rules.subList(DEFAULT_RULES.size(), rules.size());
+  }
 
-        // Уведомление о превышении лимита
-        if (budget.isExceeded()) {
-          notifications.add(
-              String.format(
-                  "Превышен бюджет категории %s! Перерасход: %.2f",
-                  budget.getCategory(), Math.abs(budget.getRemaining())));
+  // Наблюдатель за текущим кошельком пользователя
+  private WalletWatcher watch(User user) {
+    WalletWatcher watcher = watchers.get(user.getLogin());
+    if (watcher != null && watcher.wallet == user.getWallet()) {
+      return watcher;
+    }
+    // кошелек пользователя мог быть загружен заново - подписываемся на актуальный
+    return watchers.compute(
+        user.getLogin(),
+        (login, current) ->
+            current != null && current.wallet == user.getWallet()
+                ? current
+                : new WalletWatcher(
+                    login, user.getWallet(), ruleSets.getOrDefault(login, DEFAULT_RULE_SET)));
+  }
+
+  /**
+   * Состояние правил для одного кошелька и очередь сработавших уведомлений. Наблюдатель же считает
+   * показатели кошелька для RuleSet
+   */
+  private final class WalletWatcher
+      implements WalletListener, RuleSet.MetricSource, RuleSet.Listener {
+    private final String login;
+    private final Wallet wallet;
+    private final Queue<String> pending = new ArrayDeque<>();
+    private RuleSet rules;
+    // значения показателей при прошлой проверке: кошелька и по категориям
+    private double[] walletState;
+    private final Map<String, double[]> categoryStates = new HashMap<>();
+    // сумма проверяемой транзакции расхода
+    private double expenseAmount;
+
+    WalletWatcher(String login, Wallet wallet, RuleSet rules) {
+      this.login = login;
+      this.wallet = wallet;
+      this.rules = rules;
+      synchronized (this) {
+        walletState = rules.newState();
+        for (Budget budget : wallet.getBudgetsList()) {
+          evaluateCategory(budget.getCategory());
         }
+        rules.evaluate(Scope.WALLET, null, this, walletState, this);
       }
+      wallet.addListener(this);
     }
 
-    return notifications;
-  }
+    @Override
+    public synchronized void onTransactionAdded(Wallet source, Transaction transaction) {
+      if (!transaction.isIncome()) {
+        expenseAmount = transaction.getAmount();
+        rules.evaluate(Scope.TRANSACTION, transaction.getCategory(), this, null, this);
+        evaluateCategory(transaction.getCategory());
+      }
+      rules.evaluate(Scope.WALLET, null, this, walletState, this);
+    }
 
-  // Проверяет уведомления, связанные с балансом кошелька
-  private List<String> checkBalanceNotifications(User user) {
-    List<String> notifications = new ArrayList<>();
-    double balance = user.getWallet().getBalance();
+    @Override
+    public synchronized void onBudgetChanged(Wallet source, Budget budget, String oldCategory) {
+      if (oldCategory != null) {
+        categoryStates.remove(oldCategory);
+      }
+      evaluateCategory(budget.getCategory());
+    }
 
-    if (balance == 0) {
-      notifications.add("Ваш баланс равен нулю");
+    synchronized List<String> drain() {
+      if (pending.isEmpty()) {
+        return Collections.emptyList();
+      }
+      List<String> notifications = new ArrayList<>(pending);
+      pending.clear();
+      return notifications;
     }
 
-    if (balance < 0) {
-      notifications.add(String.format("Отрицательный баланс: %.2f", balance));
+    // Подменяет правила, сохраняя значения показателей, на которые ссылаются и новые правила
+    synchronized void setRules(RuleSet ruleSet) {
+      walletState = ruleSet.migrateState(rules, walletState);
+      categoryStates.replaceAll((category, state) -> ruleSet.migrateState(rules, state));
+      rules = ruleSet;
     }
 
-    double totalIncome = financeService.getTotalIncome(user);
-    if (totalIncome > 0 && balance < (totalIncome * BaseConstants.MIN_PERCENT)) {
-      notifications.add(
-          String.format("Низкий баланс: %.2f (менее 10%% от общего дохода)", balance));
+    private void evaluateCategory(String category) {
+      if (category == null || !rules.covers(Scope.CATEGORY, category)) {
+        return;
+      }
+      double[] state = categoryStates.computeIfAbsent(category, key -> rules.newState());
+      rules.evaluate(Scope.CATEGORY, category, this, state, this);
     }
 
-    return notifications;
-  }
+    @Override
+    public double value(Metric metric, int windowDays, String category) {
+      TransactionStore store = wallet.getTransactionStore();
+      switch (metric) {
+        case BALANCE:
+          return wallet.getBalance();
+        case BALANCE_TO_INCOME:
+          return store.sum(true) > 0 ? wallet.getBalance() / store.sum(true) : Double.NaN;
+        case EXPENSE_SURPLUS:
+          return store.sum(false) - store.sum(true);
+        case BUDGET_USAGE:
+          return budgetUsage(wallet.getBudget(category));
+        case BUDGET_PACING:
+          return budgetPacing(wallet.getBudget(category));
+        case CATEGORY_VELOCITY:
+          long today = LocalDate.now().toEpochDay();
+          return expensesForDays(category, today - windowDays + 1, today);
+        default:
+          return expenseAmount;
+      }
+    }
 
-  // Проверяет уведомления об общем финансовом здоровье
-  private List<String> checkFinancialHealthNotifications(User user) {
-    List<String> notifications = new ArrayList<>();
+    // Использование бюджета в процентах; бюджет с нулевым лимитом превышен любым расходом
+    private double budgetUsage(Budget budget) {
+      if (budget == null) {
+        return Double.NaN;
+      }
+      if (budget.getLimit() > 0) {
+        return budget.getUsagePercentage();
+      }
+      return budget.getSpent() > 0 ? Double.POSITIVE_INFINITY : 0;
+    }
 
-    if (financeService.isTotalExceeding(user)) {
-      double totalIncome = financeService.getTotalIncome(user);
-      double totalExpenses = financeService.getTotalExpense(user);
-      double difference = totalExpenses - totalIncome;
+    // Доля лимита, израсходованная с начала периода бюджета (для бюджета без периода - с начала
+    // месяца), относительно прошедшей доли периода (в %). Расходы периодического бюджета берутся
+    // из его окна, поэтому проверка не дороже, чем у бюджета без периода
+    private double budgetPacing(Budget budget) {
+      if (budget == null || budget.getLimit() <= 0) {
+        return Double.NaN;
+      }
+      LocalDate today = LocalDate.now();
+      double spent;
+      double elapsed;
+      if (budget.isPeriodic()) {
+        spent = budget.getSpent();
+        elapsed = budget.getPeriod().elapsedShare(today.toEpochDay());
+      } else {
+        spent =
+            expensesForDays(
+                budget.getCategory(), today.withDayOfMonth(1).toEpochDay(), today.toEpochDay());
+        elapsed = (double) today.getDayOfMonth() / today.lengthOfMonth();
+      }
+      return spent / budget.getLimit() / elapsed * BaseConstants.MAX_PERCENT;
+    }
 
-      notifications.add(String.format("Расходы превышают доходы на %.2f", difference));
+    private double expensesForDays(String category, long fromDay, long toDay) {
+      TransactionStore store = wallet.getTransactionStore();
+      int categoryId = store.categoryIdOf(category);
+      if (categoryId == CategoryDictionary.NO_CATEGORY) {
+        return 0;
+      }
+      return store.sumDays(false, categoryId, fromDay, toDay);
     }
 
-    return notifications;
+    @Override
+    public void fire(NotificationRule rule, String category, double value) {
+      Budget budget = category != null ? wallet.getBudget(category) : null;
+      double remaining = budget != null ? budget.getRemaining() : 0;
+      String message =
+          rule.format(
+              category != null ? category : NO_CATEGORY_NAME,
+              value,
+              wallet.getBalance(),
+              remaining,
+              -remaining);
+      String key = category != null ? rule.getId() + ":" + category : rule.getId();
+
+      if (dispatcher != null) {
+        // каждое срабатывание правила по транзакции - отдельное событие, оно не объединяется
+        boolean coalescing = rule.getMetric().getScope() != Scope.TRANSACTION;
+        dispatcher.publish(new Notification(login, key, message, coalescing));
+      } else {
+        pending.add(message);
+      }
+    }
   }
 }
@@ -0,0 +1,162 @@
+package oop.finance.service;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import oop.finance.model.StatisticsQuery;
+import oop.finance.model.Wallet;
+
+/**
+ * Ограниченный кэш результатов запросов статистики с вытеснением давно не использованных записей
+ * (LRU). Ключ - идентификатор кошелька, версия кошелька, число транзакций, вид результата и
+ * нормализованный запрос. Любое изменение кошелька меняет версию или размер хранилища, поэтому
+ * устаревший результат никогда не совпадет с ключом нового запроса. Записи для прежних состояний
+ * кошелька удаляются, как только сохраняется результат для нового, а ключ не ссылается на сам
+ * кошелек, так что кэш не удерживает в памяти кошельки вышедших пользователей
+ */
+public class QueryCache {
+  private static final int INITIAL_CAPACITY = 16;
+  private static final float LOAD_FACTOR = 0.75f;
+
+  private final int capacity;
+  private final Map<Key, Object> entries;
+  private long hits;
+  private long misses;
+
+  public QueryCache(int capacity) {
+    this.capacity = capacity;
+    this.entries =
+        new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+            return size() > QueryCache.this.capacity;
+          }
+        };
+  }
+
+  // Возвращает сохраненный результат или вычисляет и запоминает новый
+  @SuppressWarnings("unchecked")
+  public <T> T get(Wallet wallet, String kind, StatisticsQuery query, Supplier<T> compute) {
+    if (capacity <= 0) {
+      return compute.get();
+    }
+
+    Key key = new Key(wallet, kind, query);
+    synchronized (this) {
+      Object cached = entries.get(key);
+      if (cached != null) {
+        hits++;
+        return (T) cached;
+      }
+      misses++;
+    }
+
+    T result = compute.get();
+    synchronized (this) {
+      if (evictOlder(key)) {
+        entries.put(key, result);
+      }
+    }
+    return result;
+  }
+
+  // Количество запросов, результат которых был взят из кэша
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  // Количество запросов, результат которых пришлось вычислять
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  // Текущее количество записей
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  // Удаляет все записи
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  // Удаляет записи кошелька для состояний старше, чем у key. Возвращает false, если в кэше уже есть
+  // запись для более нового состояния (результат вычислен по устаревшему кошельку)
+  private boolean evictOlder(Key key) {
+    Iterator<Key> iterator = entries.keySet().iterator();
+    while (iterator.hasNext()) {
+      Key cached = iterator.next();
+      if (!Objects.equals(cached.walletId, key.walletId)) {
+        continue;
+      }
+      if (cached.isOlderThan(key)) {
+        iterator.remove();
+      } else if (key.isOlderThan(cached)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Ключ записи: состояние кошелька и нормализованные условия запроса */
+  private static final class Key {
+    private final String walletId;
+    private final long version;
+    private final int size;
+    private final String kind;
+    private final boolean contradictory;
+    private final Boolean type;
+    private final Set<String> categories;
+    private final long fromNanos;
+    private final long toNanos;
+
+    Key(Wallet wallet, String kind, StatisticsQuery query) {
+      this.walletId = wallet.getId();
+      this.version = wallet.getVersion();
+      this.size = wallet.getTransactionStore().size();
+      this.kind = kind;
+      // все заведомо пустые запросы равны между собой
+      this.contradictory = query.isContradictory();
+      this.type = contradictory ? null : query.getType();
+      Set<String> selected = query.getCategories();
+      this.categories = contradictory || selected == null ? null : new HashSet<>(selected);
+      this.fromNanos = contradictory ? 0 : query.getFromNanos();
+      this.toNanos = contradictory ? 0 : query.getToNanos();
+    }
+
+    // Версия и размер хранилища только растут, поэтому состояние с меньшим из них - прежнее
+    boolean isOlderThan(Key other) {
+      return version < other.version || size < other.size;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return Objects.equals(walletId, key.walletId)
+          && version == key.version
+          && size == key.size
+          && contradictory == key.contradictory
+          && fromNanos == key.fromNanos
+          && toNanos == key.toNanos
+          && kind.equals(key.kind)
+          && Objects.equals(type, key.type)
+          && Objects.equals(categories, key.categories);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(
+          walletId, version, size, kind, contradictory, type, categories, fromNanos, toNanos);
+    }
+  }
+}
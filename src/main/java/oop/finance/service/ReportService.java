@@ -1,6 +1,8 @@
 package oop.finance.service;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
@@ -15,9 +17,10 @@ public class ReportService {
   public String generateReport(User user, String filePath) {
     try {
       Report report = new Report(user);
-      String content = report.generateCsv();
-
-      Files.write(Paths.get(filePath), content.getBytes());
+      // отчет пишется в файл построчно, без сборки всей таблицы в памяти
+      try (Writer out = Files.newBufferedWriter(Paths.get(filePath), Charset.defaultCharset())) {
+        report.writeCsv(out);
+      }
       return filePath;
     } catch (IOException error) {
       throw new RuntimeException("Ошибка при сохранении отчета: " + error.getMessage());
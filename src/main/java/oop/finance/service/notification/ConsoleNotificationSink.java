@@ -0,0 +1,35 @@
+package oop.finance.service.notification;
+
+import java.io.PrintStream;
+import java.util.List;
+import oop.finance.model.Notification;
+
+/** Вывод уведомлений в консоль желтым цветом, как в меню приложения */
+public class ConsoleNotificationSink implements NotificationSink {
+  private final PrintStream out;
+
+  public ConsoleNotificationSink() {
+    this(System.out);
+  }
+
+  public ConsoleNotificationSink(PrintStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public String getName() {
+    return "console";
+  }
+
+  @Override
+  public void write(List<Notification> batch) {
+    StringBuilder text = new StringBuilder();
+    for (Notification notification : batch) {
+      text.append("\u26A0\uFE0F\u001B[33m").append(notification.getMessage()).append("\u001B[0m");
+      text.append(System.lineSeparator());
+    }
+    // весь пакет выводится одной операцией, чтобы не перемешиваться с выводом меню
+    out.print(text);
+    out.flush();
+  }
+}
@@ -0,0 +1,41 @@
+package oop.finance.service.notification;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import oop.finance.model.Notification;
+
+/** Запись уведомлений в локальный файл, по строке на уведомление. Файл дописывается */
+public class FileNotificationSink implements NotificationSink {
+  private final BufferedWriter writer;
+
+  public FileNotificationSink(Path path) throws IOException {
+    this.writer =
+        Files.newBufferedWriter(
+            path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  @Override
+  public String getName() {
+    return "file";
+  }
+
+  @Override
+  public void write(List<Notification> batch) throws IOException {
+    for (Notification notification : batch) {
+      writer.write(notification.toString());
+      writer.newLine();
+    }
+    // один сброс буфера на пакет
+    writer.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+}
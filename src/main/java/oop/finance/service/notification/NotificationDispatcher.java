@@ -0,0 +1,223 @@
+package oop.finance.service.notification;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import oop.finance.model.Notification;
+
+/**
+ * Асинхронная доставка уведомлений получателям. У каждого получателя своя ограниченная очередь и
+ * свой фоновый поток, поэтому медленный получатель не задерживает ни остальных, ни вызывающий
+ * поток: при заполненной очереди уведомление отбрасывается согласно политике Backpressure.
+ *
+ * <p>Поток получателя забирает из очереди все накопившиеся уведомления (не больше размера пакета) и
+ * доставляет их одной записью. Повторные уведомления с тем же ключом объединяются: внутри пакета
+ * остается последнее, а уведомление, уже доставленное в течение окна объединения, не повторяется
+ */
+public class NotificationDispatcher implements AutoCloseable {
+  public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+  public static final int DEFAULT_BATCH_SIZE = 64;
+  public static final long DEFAULT_COALESCE_WINDOW_MILLIS = 60_000;
+  private static final long POLL_INTERVAL_MILLIS = 100;
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+  /** Поведение при заполненной очереди получателя */
+  public enum Backpressure {
+    // отбросить новое уведомление
+    DROP_NEWEST,
+    // вытеснить самое старое уведомление из очереди
+    DROP_OLDEST
+  }
+
+  private final List<SinkWorker> workers = new ArrayList<>();
+  private final Backpressure backpressure;
+  private final long coalesceWindowMillis;
+  private final int batchSize;
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private volatile boolean closed;
+
+  public NotificationDispatcher(List<NotificationSink> sinks) {
+    this(
+        sinks,
+        DEFAULT_QUEUE_CAPACITY,
+        Backpressure.DROP_OLDEST,
+        DEFAULT_COALESCE_WINDOW_MILLIS,
+        DEFAULT_BATCH_SIZE);
+  }
+
+  public NotificationDispatcher(
+      List<NotificationSink> sinks,
+      int queueCapacity,
+      Backpressure backpressure,
+      long coalesceWindowMillis,
+      int batchSize) {
+    this.backpressure = backpressure;
+    this.coalesceWindowMillis = coalesceWindowMillis;
+    this.batchSize = Math.max(1, batchSize);
+    for (NotificationSink sink : sinks) {
+      workers.add(new SinkWorker(sink, Math.max(1, queueCapacity)));
+    }
+    workers.forEach(worker -> worker.thread.start());
+  }
+
+  // Ставит уведомление в очереди всех получателей, никогда не блокируя вызывающий поток
+  public void publish(Notification notification) {
+    if (closed) {
+      dropped.incrementAndGet();
+      return;
+    }
+    for (SinkWorker worker : workers) {
+      worker.offer(notification);
+    }
+  }
+
+  // Количество уведомлений, отброшенных из-за заполненных очередей
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  // Количество уведомлений, не доставленных как повторные
+  public long getCoalesced() {
+    return coalesced.get();
+  }
+
+  // Доставляет уже принятые уведомления и закрывает получателей
+  @Override
+  public void close() {
+    closed = true;
+    for (SinkWorker worker : workers) {
+      try {
+        worker.thread.join(SHUTDOWN_TIMEOUT_MILLIS);
+      } catch (InterruptedException error) {
+        Thread.currentThread().interrupt();
+      }
+      try {
+        worker.sink.close();
+      } catch (Exception error) {
+        System.out.println(
+            "Ошибка закрытия получателя уведомлений " + worker.sink.getName() + ": " + error);
+      }
+    }
+  }
+
+  /** Очередь и поток доставки одного получателя */
+  private final class SinkWorker implements Runnable {
+    private final NotificationSink sink;
+    private final BlockingQueue<Notification> queue;
+    private final Thread thread;
+    // время последней доставки по ключу объединения
+    private final Map<String, Long> lastDelivered = new HashMap<>();
+    private long lastPruned;
+
+    SinkWorker(NotificationSink sink, int queueCapacity) {
+      this.sink = sink;
+      this.queue = new ArrayBlockingQueue<>(queueCapacity);
+      this.thread = new Thread(this, "notification-" + sink.getName());
+      thread.setDaemon(true);
+    }
+
+    void offer(Notification notification) {
+      if (queue.offer(notification)) {
+        return;
+      }
+      if (backpressure == Backpressure.DROP_NEWEST) {
+        dropped.incrementAndGet();
+        return;
+      }
+      while (!queue.offer(notification)) {
+        if (queue.poll() != null) {
+          dropped.incrementAndGet();
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      List<Notification> batch = new ArrayList<>(batchSize);
+      while (true) {
+        Notification first;
+        try {
+          first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException error) {
+          return;
+        }
+        if (first == null) {
+          // после закрытия поток завершается, только когда очередь опустела
+          if (closed) {
+            return;
+          }
+          continue;
+        }
+
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        deliver(coalesce(batch));
+        batch.clear();
+      }
+    }
+
+    private void deliver(List<Notification> notifications) {
+      if (notifications.isEmpty()) {
+        return;
+      }
+      try {
+        sink.write(notifications);
+      } catch (IOException | RuntimeException error) {
+        System.out.println(
+            "Ошибка доставки уведомлений " + sink.getName() + ": " + error.getMessage());
+      }
+    }
+
+    // Оставляет в пакете последнее уведомление каждого ключа (на месте первого), если этот ключ
+    // не доставлялся в течение окна объединения. Необъединяемые уведомления доставляются все
+    private List<Notification> coalesce(List<Notification> batch) {
+      List<Notification> latest = new ArrayList<>(batch.size());
+      Map<String, Integer> positions = new HashMap<>();
+      for (Notification notification : batch) {
+        if (!notification.isCoalescing()) {
+          latest.add(notification);
+          continue;
+        }
+        Integer position = positions.putIfAbsent(notification.getCoalescingKey(), latest.size());
+        if (position == null) {
+          latest.add(notification);
+        } else {
+          latest.set(position, notification);
+        }
+      }
+
+      long now = System.currentTimeMillis();
+      pruneDelivered(now);
+      List<Notification> notifications = new ArrayList<>(latest.size());
+      for (Notification notification : latest) {
+        if (!notification.isCoalescing()) {
+          notifications.add(notification);
+          continue;
+        }
+        Long delivered = lastDelivered.get(notification.getCoalescingKey());
+        if (delivered == null || now - delivered >= coalesceWindowMillis) {
+          lastDelivered.put(notification.getCoalescingKey(), now);
+          notifications.add(notification);
+        }
+      }
+      coalesced.addAndGet(batch.size() - notifications.size());
+      return notifications;
+    }
+
+    // Раз в окно объединения забывает ключи, которые доставлялись раньше начала окна
+    private void pruneDelivered(long now) {
+      if (now - lastPruned < coalesceWindowMillis) {
+        return;
+      }
+      lastDelivered.values().removeIf(delivered -> now - delivered >= coalesceWindowMillis);
+      lastPruned = now;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package oop.finance.service.notification;
+
+import java.io.IOException;
+import java.util.List;
+import oop.finance.model.Notification;
+
+/**
+ * Получатель уведомлений. Вызывается из фонового потока диспетчера и получает уведомления пакетами,
+ * поэтому может записывать их одной операцией
+ */
+public interface NotificationSink extends AutoCloseable {
+  // Имя получателя для потока доставки и сообщений об ошибках
+  String getName();
+
+  // Доставляет пакет уведомлений
+  void write(List<Notification> batch) throws IOException;
+
+  @Override
+  default void close() throws IOException {
+    // по умолчанию освобождать нечего
+  }
+}
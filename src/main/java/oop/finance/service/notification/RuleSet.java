@@ -0,0 +1,349 @@
+package oop.finance.service.notification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import oop.finance.model.NotificationRule;
+import oop.finance.model.NotificationRule.Comparison;
+import oop.finance.model.NotificationRule.Metric;
+import oop.finance.model.NotificationRule.Scope;
+
+/**
+ * Скомпилированный набор правил уведомлений. Правила с одним показателем, окном и категорией
+ * собираются в группу с отсортированными порогами, поэтому проверка группы - двоичный поиск, а
+ * значение каждого показателя считается один раз за проверку, сколько бы правил на него ни
+ * ссылалось. Стоимость проверки зависит от числа групп затронутой категории, а не от числа правил.
+ *
+ * <p>Состояние проверки (значения показателей при прошлой проверке) хранит вызывающий код в массиве
+ * по слотам показателей. Правило срабатывает, когда его условие начинает выполняться; в группе за
+ * одну проверку срабатывает не больше одного правила на направление - самое строгое (например, при
+ * переходе от 50% сразу к 120% бюджета только правило о превышении). Верхняя граница правила на
+ * рост входит в группу отдельным порогом без правила, поэтому значение за границей не считается
+ * выполнением этого правила
+ */
+public final class RuleSet {
+  private static final String ANY_CATEGORY = "*";
+  private static final Group[] NO_GROUPS = new Group[0];
+
+  /** Источник значений показателей */
+  public interface MetricSource {
+    // Значение показателя для категории (null для показателей кошелька); NaN - не определено
+    double value(Metric metric, int windowDays, String category);
+  }
+
+  /** Получатель сработавших правил */
+  public interface Listener {
+    void fire(NotificationRule rule, String category, double value);
+  }
+
+  private final List<NotificationRule> rules;
+  // показатели (метрика и окно), на которые ссылаются правила; позиция - номер слота
+  private final List<String> slotKeys = new ArrayList<>();
+  private final List<Metric> slotMetrics = new ArrayList<>();
+  private final List<Integer> slotWindows = new ArrayList<>();
+  private final Map<Scope, Map<String, Group[]>> groupsByCategory = new EnumMap<>(Scope.class);
+  private final Map<Scope, Group[]> anyCategoryGroups = new EnumMap<>(Scope.class);
+
+  private RuleSet(List<NotificationRule> rules) {
+    this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+  }
+
+  // Компилирует правила; порядок правил определяет порядок уведомлений при одной проверке
+  public static RuleSet compile(List<NotificationRule> rules) {
+    RuleSet set = new RuleSet(rules);
+    Map<String, List<NotificationRule>> grouped = new LinkedHashMap<>();
+    for (NotificationRule rule : rules) {
+      rule.validate();
+      String category = rule.getCategory() != null ? rule.getCategory() : ANY_CATEGORY;
+      grouped.computeIfAbsent(slotKey(rule) + ":" + category, key -> new ArrayList<>()).add(rule);
+    }
+
+    Map<Scope, Map<String, List<Group>>> byCategory = new EnumMap<>(Scope.class);
+    Map<Scope, List<Group>> anyCategory = new EnumMap<>(Scope.class);
+    for (List<NotificationRule> members : grouped.values()) {
+      NotificationRule first = members.get(0);
+      Group group = new Group(set.slotOf(first), members);
+      Scope scope = first.getMetric().getScope();
+      if (first.getCategory() == null) {
+        anyCategory.computeIfAbsent(scope, key -> new ArrayList<>()).add(group);
+      } else {
+        byCategory
+            .computeIfAbsent(scope, key -> new HashMap<>())
+            .computeIfAbsent(first.getCategory(), key -> new ArrayList<>())
+            .add(group);
+      }
+    }
+
+    anyCategory.forEach((scope, groups) -> set.anyCategoryGroups.put(scope, toArray(groups)));
+    byCategory.forEach(
+        (scope, categories) -> {
+          Map<String, Group[]> compiled = new HashMap<>();
+          categories.forEach((category, groups) -> compiled.put(category, toArray(groups)));
+          set.groupsByCategory.put(scope, compiled);
+        });
+    return set;
+  }
+
+  // Исходные правила набора
+  public List<NotificationRule> getRules() {
+    return rules;
+  }
+
+  // Пустое состояние проверки: значения всех показателей неизвестны
+  public double[] newState() {
+    double[] state = new double[slotKeys.size()];
+    Arrays.fill(state, Double.NaN);
+    return state;
+  }
+
+  // Переносит состояние, накопленное прежним набором правил, на слоты этого набора
+  public double[] migrateState(RuleSet previous, double[] state) {
+    double[] migrated = newState();
+    for (int slot = 0; slot < migrated.length; slot++) {
+      int old = previous.slotKeys.indexOf(slotKeys.get(slot));
+      if (old >= 0) {
+        migrated[slot] = state[old];
+      }
+    }
+    return migrated;
+  }
+
+  // Есть ли правила области для категории (null для кошелька и транзакций без категории)
+  public boolean covers(Scope scope, String category) {
+    return anyCategoryGroups.containsKey(scope) || specificGroups(scope, category).length > 0;
+  }
+
+  // Проверяет правила области для категории. state - значения показателей при прошлой проверке,
+  // обновляется на месте; для показателей транзакции не хранится (null)
+  public void evaluate(
+      Scope scope, String category, MetricSource source, double[] state, Listener listener) {
+    Group[] specific = specificGroups(scope, category);
+    Group[] any = anyCategoryGroups.getOrDefault(scope, NO_GROUPS);
+    if (specific.length == 0 && any.length == 0) {
+      return;
+    }
+
+    // каждый показатель считается один раз для всех групп
+    Evaluation evaluation = new Evaluation(category, source, state, listener);
+    for (Group group : specific) {
+      evaluation.check(group);
+    }
+    for (Group group : any) {
+      evaluation.check(group);
+    }
+    evaluation.commit();
+  }
+
+  /** Одна проверка: значения показателей, посчитанные для групп, и прежнее состояние */
+  private final class Evaluation {
+    private final String category;
+    private final MetricSource source;
+    private final double[] state;
+    private final Listener listener;
+    private final double[] current = new double[slotKeys.size()];
+    private final boolean[] computed = new boolean[slotKeys.size()];
+
+    Evaluation(String category, MetricSource source, double[] state, Listener listener) {
+      this.category = category;
+      this.source = source;
+      this.state = state;
+      this.listener = listener;
+    }
+
+    void check(Group group) {
+      int slot = group.slot;
+      if (!computed[slot]) {
+        current[slot] = source.value(slotMetrics.get(slot), slotWindows.get(slot), category);
+        computed[slot] = true;
+      }
+      double value = current[slot];
+      double previous = state != null ? state[slot] : Double.NaN;
+
+      NotificationRule risen = group.risen(previous, value);
+      if (risen != null) {
+        listener.fire(risen, category, value);
+      }
+      int falling = group.fallingCount(value);
+      if (falling > 0 && group.fallingCount(previous) < falling) {
+        listener.fire(group.falling[falling - 1], category, value);
+      }
+      NotificationRule equal = group.equalTo(value);
+      if (equal != null && previous != value) {
+        listener.fire(equal, category, value);
+      }
+    }
+
+    // Запоминает посчитанные значения для следующей проверки
+    void commit() {
+      if (state == null) {
+        return;
+      }
+      for (int slot = 0; slot < current.length; slot++) {
+        if (computed[slot]) {
+          state[slot] = current[slot];
+        }
+      }
+    }
+  }
+
+  private Group[] specificGroups(Scope scope, String category) {
+    Map<String, Group[]> categories = groupsByCategory.get(scope);
+    if (categories == null || category == null) {
+      return NO_GROUPS;
+    }
+    return categories.getOrDefault(category, NO_GROUPS);
+  }
+
+  private int slotOf(NotificationRule rule) {
+    String key = slotKey(rule);
+    int slot = slotKeys.indexOf(key);
+    if (slot < 0) {
+      slot = slotKeys.size();
+      slotKeys.add(key);
+      slotMetrics.add(rule.getMetric());
+      slotWindows.add(rule.getWindowDays());
+    }
+    return slot;
+  }
+
+  private static String slotKey(NotificationRule rule) {
+    return rule.getMetric() + ":" + rule.getWindowDays();
+  }
+
+  private static Group[] toArray(List<Group> groups) {
+    return groups.toArray(new Group[0]);
+  }
+
+  /**
+   * Правила одного показателя и категории. Условия на рост (AT_LEAST, ABOVE) отсортированы от
+   * слабых к строгим, поэтому выполняется префикс массива; верхние границы правил лежат среди них
+   * как пороги AT_LEAST без правила (null). Так же отсортированы условия на снижение (BELOW) по
+   * убыванию порога. Равенства ищутся двоичным поиском
+   */
+  private static final class Group {
+    private final int slot;
+    private final NotificationRule[] rising;
+    private final double[] risingThresholds;
+    private final boolean[] risingStrict;
+    private final NotificationRule[] falling;
+    private final double[] fallingThresholds;
+    private final NotificationRule[] equal;
+    private final double[] equalThresholds;
+
+    Group(int slot, List<NotificationRule> members) {
+      this.slot = slot;
+      List<Rising> up = new ArrayList<>();
+      List<NotificationRule> down = new ArrayList<>();
+      List<NotificationRule> same = new ArrayList<>();
+      for (NotificationRule rule : members) {
+        switch (rule.getComparison()) {
+          case AT_LEAST:
+          case ABOVE:
+            up.add(new Rising(rule.getThreshold(), rule.getComparison() == Comparison.ABOVE, rule));
+            if (rule.getUpperBound() != null) {
+              up.add(new Rising(rule.getUpperBound(), false, null));
+            }
+            break;
+          case BELOW:
+            down.add(rule);
+            break;
+          default:
+            same.add(rule);
+        }
+      }
+      up.sort(
+          Comparator.comparingDouble((Rising entry) -> entry.threshold)
+              .thenComparing(entry -> entry.strict));
+      down.sort(Comparator.comparingDouble(NotificationRule::getThreshold).reversed());
+      same.sort(Comparator.comparingDouble(NotificationRule::getThreshold));
+
+      rising = new NotificationRule[up.size()];
+      risingThresholds = new double[rising.length];
+      risingStrict = new boolean[rising.length];
+      for (int i = 0; i < rising.length; i++) {
+        rising[i] = up.get(i).rule;
+        risingThresholds[i] = up.get(i).threshold;
+        risingStrict[i] = up.get(i).strict;
+      }
+      falling = down.toArray(new NotificationRule[0]);
+      fallingThresholds = thresholds(falling);
+      equal = same.toArray(new NotificationRule[0]);
+      equalThresholds = thresholds(equal);
+    }
+
+    // Самое строгое правило на рост, условие которого начало выполняться при переходе от previous
+    // к value и чья верхняя граница не пройдена; null, если такого нет
+    NotificationRule risen(double previous, double value) {
+      int before = risingCount(previous);
+      for (int i = risingCount(value) - 1; i >= before; i--) {
+        if (rising[i] != null && rising[i].isBelowUpperBound(value)) {
+          return rising[i];
+        }
+      }
+      return null;
+    }
+
+    // Количество выполненных условий на рост (неопределенное значение NaN не выполняет ни одного)
+    int risingCount(double value) {
+      int low = 0;
+      int high = rising.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        double threshold = risingThresholds[middle];
+        if (risingStrict[middle] ? value > threshold : value >= threshold) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    // Количество выполненных условий на снижение
+    int fallingCount(double value) {
+      int low = 0;
+      int high = falling.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (value < fallingThresholds[middle]) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    NotificationRule equalTo(double value) {
+      int index = Arrays.binarySearch(equalThresholds, value);
+      return index >= 0 ? equal[index] : null;
+    }
+
+    /** Порог условия на рост при компиляции группы; rule - null для верхней границы */
+    private static final class Rising {
+      private final double threshold;
+      private final boolean strict;
+      private final NotificationRule rule;
+
+      Rising(double threshold, boolean strict, NotificationRule rule) {
+        this.threshold = threshold;
+        this.strict = strict;
+        this.rule = rule;
+      }
+    }
+
+    private static double[] thresholds(NotificationRule[] rules) {
+      double[] thresholds = new double[rules.length];
+      for (int i = 0; i < rules.length; i++) {
+        thresholds[i] = rules[i].getThreshold();
+      }
+      return thresholds;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+package oop.finance.service.notification;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import oop.finance.model.Notification;
+
+/**
+ * Отправка уведомлений в сервис оповещений по TCP, по строке на уведомление. Соединение открывается
+ * при первой отправке. Запись пакета ограничена сроком: если сервис перестал читать, соединение
+ * закрывается по таймеру и заблокированная запись завершается ошибкой. После ошибки соединение
+ * переоткрывается и пакет отправляется еще раз
+ */
+public class SocketNotificationSink implements NotificationSink {
+  public static final int CONNECT_TIMEOUT_MILLIS = 1000;
+  public static final int WRITE_TIMEOUT_MILLIS = 2000;
+  // попыток отправки пакета (первая и после переподключения)
+  private static final int ATTEMPTS = 2;
+
+  private final String host;
+  private final int port;
+  private final ScheduledExecutorService deadlines;
+  // закрывается и потоком таймера записи
+  private volatile Socket socket;
+  private BufferedWriter writer;
+
+  public SocketNotificationSink(String host, int port) {
+    this.host = host;
+    this.port = port;
+    this.deadlines =
+        Executors.newSingleThreadScheduledExecutor(
+            task -> {
+              Thread thread = new Thread(task, "notification-socket-deadline");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public String getName() {
+    return "socket";
+  }
+
+  @Override
+  public void write(List<Notification> batch) throws IOException {
+    IOException failure = null;
+    for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+      try {
+        send(batch);
+        return;
+      } catch (IOException error) {
+        disconnect();
+        failure = error;
+      }
+    }
+    throw failure;
+  }
+
+  @Override
+  public void close() throws IOException {
+    deadlines.shutdownNow();
+    disconnect();
+  }
+
+  private void send(List<Notification> batch) throws IOException {
+    if (writer == null) {
+      connect();
+    }
+    Socket current = socket;
+    ScheduledFuture<?> deadline =
+        deadlines.schedule(
+            () -> closeQuietly(current), WRITE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    try {
+      for (Notification notification : batch) {
+        writer.write(notification.toString());
+        writer.newLine();
+      }
+      writer.flush();
+    } finally {
+      deadline.cancel(false);
+    }
+  }
+
+  private void connect() throws IOException {
+    Socket opened = new Socket();
+    try {
+      opened.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+      // ответы сервиса не читаются, но чтение (если появится) тоже не должно зависать
+      opened.setSoTimeout(WRITE_TIMEOUT_MILLIS);
+    } catch (IOException error) {
+      closeQuietly(opened);
+      throw error;
+    }
+    socket = opened;
+    writer =
+        new BufferedWriter(
+            new OutputStreamWriter(opened.getOutputStream(), StandardCharsets.UTF_8));
+  }
+
+  private void disconnect() {
+    writer = null;
+    if (socket != null) {
+      closeQuietly(socket);
+      socket = null;
+    }
+  }
+
+  private static void closeQuietly(Socket target) {
+    try {
+      target.close();
+    } catch (IOException error) {
+      System.out.println("Ошибка закрытия соединения с сервисом оповещений: " + error.getMessage());
+    }
+  }
+}
@@ -1,7 +1,9 @@
 package oop.finance.utils;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import oop.finance.exception.InvalidCredentialsException;
@@ -11,6 +13,49 @@ public class DateTimeUtils {
   public static final String DATE_TIME_FORMAT = "dd.MM.yyyy HH:mm";
   public static final String DATE_TIME_FORMAT_REPORT = "yyyy-MM-dd_HH-mm-ss";
   public static final String DATE_FORMAT = "dd.MM.yyyy";
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+  public static final long NANOS_PER_DAY = 86_400L * NANOS_PER_SECOND;
+
+  // Переводит дату в миллисекунды от начала эпохи (дата рассматривается как UTC, без пояса)
+  public static long toEpochMillis(LocalDateTime dateTime) {
+    return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  // Обратное преобразование миллисекунд от начала эпохи в дату
+  public static LocalDateTime fromEpochMillis(long epochMillis) {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+  }
+
+  // Переводит дату в наносекунды от начала эпохи (UTC). Значения вне диапазона 1677-2262 годов
+  // не помещаются в long и приводятся к ближайшей границе (подходит для границ периодов запроса)
+  public static long toEpochNanos(LocalDateTime dateTime) {
+    try {
+      return toEpochNanosExact(dateTime);
+    } catch (ArithmeticException error) {
+      return dateTime.toEpochSecond(ZoneOffset.UTC) < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+  }
+
+  // Переводит дату в наносекунды от начала эпохи (UTC) без приведения к границе: для дат вне
+  // диапазона 1677-2262 годов бросает ArithmeticException
+  public static long toEpochNanosExact(LocalDateTime dateTime) {
+    long seconds = dateTime.toEpochSecond(ZoneOffset.UTC);
+    long nanos = dateTime.getNano();
+    if (seconds < 0 && nanos > 0) {
+      // у самых ранних дат произведение секунд выходит за long раньше, чем прибавятся наносекунды
+      seconds++;
+      nanos -= NANOS_PER_SECOND;
+    }
+    return Math.addExact(Math.multiplyExact(seconds, NANOS_PER_SECOND), nanos);
+  }
+
+  // Обратное преобразование наносекунд от начала эпохи в дату
+  public static LocalDateTime fromEpochNanos(long epochNanos) {
+    return LocalDateTime.ofEpochSecond(
+        Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+        (int) Math.floorMod(epochNanos, NANOS_PER_SECOND),
+        ZoneOffset.UTC);
+  }
 
   public static LocalDateTime parseStringDate(String str) {
     try {
@@ -0,0 +1,153 @@
+package oop.finance.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Утилитарный класс для надежной записи файлов. Файл сначала пишется во временный, сбрасывается на
+ * диск (fsync) и только потом атомарно подменяет исходный, поэтому сбой во время записи не портит
+ * данные
+ */
+public final class FileUtils {
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final int TAIL_BLOCK_SIZE = 4096;
+
+  /** Запись содержимого файла в переданный поток */
+  @FunctionalInterface
+  public interface ContentWriter {
+    void write(Writer writer) throws IOException;
+  }
+
+  /** Запись двоичного содержимого файла в переданный поток */
+  @FunctionalInterface
+  public interface StreamWriter {
+    void write(OutputStream out) throws IOException;
+  }
+
+  private FileUtils() {
+    // запрет генерации экземпляров
+  }
+
+  // Атомарно заменяет содержимое файла переданными байтами
+  public static void writeAtomically(Path path, byte[] content) throws IOException {
+    Path temp = prepareTemp(path);
+    try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+      out.write(content);
+      out.getFD().sync();
+    }
+    replace(temp, path);
+  }
+
+  // Атомарно заменяет содержимое файла данными, которые streamWriter пишет прямо во временный
+  // файл, поэтому содержимое целиком в памяти не собирается
+  public static void writeStreamAtomically(Path path, StreamWriter streamWriter)
+      throws IOException {
+    Path temp = prepareTemp(path);
+    try (FileOutputStream out = new FileOutputStream(temp.toFile());
+        OutputStream buffered = new BufferedOutputStream(out)) {
+      streamWriter.write(buffered);
+      buffered.flush();
+      out.getFD().sync();
+    }
+    replace(temp, path);
+  }
+
+  // Атомарно заменяет содержимое файла: временный файл, fsync, переименование
+  public static void writeAtomically(Path path, ContentWriter contentWriter) throws IOException {
+    Path temp = prepareTemp(path);
+    try (FileOutputStream out = new FileOutputStream(temp.toFile());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+      contentWriter.write(writer);
+      writer.flush();
+      out.getFD().sync();
+    }
+    replace(temp, path);
+  }
+
+  private static Path prepareTemp(Path path) throws IOException {
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    return path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+  }
+
+  private static void replace(Path temp, Path path) throws IOException {
+    try {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException error) {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  // Дописывает строки в конец файла и сбрасывает их на диск
+  public static void appendLines(Path path, List<String> lines) throws IOException {
+    if (lines.isEmpty()) {
+      return;
+    }
+
+    try (FileOutputStream out = new FileOutputStream(path.toFile(), true);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+      for (String line : lines) {
+        writer.write(line);
+        writer.write(System.lineSeparator());
+      }
+      writer.flush();
+      out.getFD().sync();
+    }
+  }
+
+  // Отрезает оборванную последнюю строку (без перевода строки), оставшуюся после сбоя во время
+  // дописывания, чтобы следующие строки не склеились с ней. Возвращает true, если файл обрезан
+  public static boolean truncateTornLine(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return false;
+    }
+
+    try (FileChannel channel =
+        FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+      long end = channel.size();
+      ByteBuffer block = ByteBuffer.allocate(TAIL_BLOCK_SIZE);
+      long position = end;
+      while (position > 0) {
+        int length = (int) Math.min(TAIL_BLOCK_SIZE, position);
+        position -= length;
+        block.clear().limit(length);
+        while (block.hasRemaining()) {
+          if (channel.read(block, position + block.position()) < 0) {
+            break;
+          }
+        }
+        for (int i = length - 1; i >= 0; i--) {
+          if (block.get(i) == '\n') {
+            return truncate(channel, position + i + 1, end);
+          }
+        }
+      }
+      return truncate(channel, 0, end);
+    }
+  }
+
+  private static boolean truncate(FileChannel channel, long size, long end) throws IOException {
+    if (size == end) {
+      return false;
+    }
+    channel.truncate(size);
+    channel.force(true);
+    return true;
+  }
+}
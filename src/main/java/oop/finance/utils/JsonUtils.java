@@ -2,41 +2,156 @@ package oop.finance.utils;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
 import java.lang.reflect.Type;
-import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import oop.finance.utils.adapter.ModelAdapters;
 
 /**
  * Утилитарный класс для работы с JSON данными. Предоставляет методы для сериализации и
  * десериализации JSON
  */
 public class JsonUtils {
+  private static final int STREAM_BUFFER_SIZE = 64 * 1024;
   private final Gson gson;
+  private final Gson compactGson;
 
   public JsonUtils() {
     GsonBuilder gsonBuilder = new GsonBuilder();
-    gsonBuilder.registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter());
+    ModelAdapters.register(gsonBuilder);
+    this.compactGson = gsonBuilder.create();
     this.gson = gsonBuilder.setPrettyPrinting().create();
   }
 
   // Десериализует json в переданный класс
   public <T> T readFromJSON(String filePath, Type type) throws JsonSyntaxException {
-    try (FileReader reader = new FileReader(filePath)) {
+    try (FileReader reader = new FileReader(filePath, StandardCharsets.UTF_8)) {
       return gson.fromJson(reader, type);
     } catch (IOException | JsonSyntaxException error) {
       throw new JsonSyntaxException("Некорректные JSON данные!");
     }
   }
 
-  // Cериализует объект в JSON
+  // Потоково читает JSON-объект вида {ключ: значение}. Значения создаются по одному и сразу
+  // передаются обработчику, поэтому в памяти не держится ничего, кроме текущего значения
+  public <T> void readEntriesFromJSON(
+      String filePath,
+      Class<T> valueType,
+      BiConsumer<String, T> consumer,
+      ProgressListener progress)
+      throws JsonSyntaxException {
+    File file = new File(filePath);
+    long totalBytes = file.length();
+    TypeAdapter<T> adapter = gson.getAdapter(valueType);
+
+    try (CountingInputStream input =
+            new CountingInputStream(
+                new BufferedInputStream(new FileInputStream(file), STREAM_BUFFER_SIZE));
+        JsonReader reader = new JsonReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+      if (totalBytes == 0 || reader.peek() == JsonToken.NULL) {
+        return;
+      }
+
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String key = reader.nextName();
+        consumer.accept(key, adapter.read(reader));
+        if (progress != null) {
+          progress.onProgress(input.getCount(), totalBytes);
+        }
+      }
+      reader.endObject();
+    } catch (IOException | IllegalStateException | JsonSyntaxException error) {
+      throw new JsonSyntaxException("Некорректные JSON данные!");
+    }
+  }
+
+  // Потоково пишет JSON-объект вида {ключ: значение}: значения сериализуются по одному прямо в
+  // writer, поэтому документ целиком в памяти не собирается
+  public <T> void writeEntriesToJSON(
+      Writer writer, Class<T> valueType, Collection<T> values, Function<T, String> keyOf)
+      throws IOException {
+    TypeAdapter<T> adapter = gson.getAdapter(valueType);
+    JsonWriter jsonWriter = gson.newJsonWriter(writer);
+    jsonWriter.beginObject();
+    for (T value : values) {
+      jsonWriter.name(keyOf.apply(value));
+      adapter.write(jsonWriter, value);
+    }
+    jsonWriter.endObject();
+    jsonWriter.flush();
+  }
+
+  // Cериализует объект в JSON. Файл заменяется атомарно, поэтому сбой не портит прежние данные
   public <T> void writeToJSON(String filePath, T obj) throws JsonSyntaxException {
-    try (FileWriter writer = new FileWriter(filePath)) {
-      gson.toJson(obj, writer);
-    } catch (IOException | JsonSyntaxException error) {
+    try {
+      FileUtils.writeAtomically(Paths.get(filePath), writer -> gson.toJson(obj, writer));
+    } catch (IOException | JsonIOException | JsonSyntaxException error) {
       throw new JsonSyntaxException("Некорректные JSON данные!");
     }
   }
+
+  // Cериализует объект в строку JSON (для отложенной записи)
+  public String toJson(Object obj) {
+    return gson.toJson(obj);
+  }
+
+  // Сериализует объект в однострочный JSON (для построчных форматов, например журнала)
+  public String toJsonLine(Object obj) {
+    return compactGson.toJson(obj);
+  }
+
+  // Десериализует однострочный JSON в переданный класс
+  public <T> T fromJsonLine(String json, Class<T> type) throws JsonSyntaxException {
+    return compactGson.fromJson(json, type);
+  }
+
+  /** Поток, считающий количество прочитанных байт для отображения прогресса */
+  private static class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int result = super.read();
+      if (result != -1) {
+        count++;
+      }
+      return result;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int result = super.read(buffer, offset, length);
+      if (result > 0) {
+        count += result;
+      }
+      return result;
+    }
+
+    long getCount() {
+      return count;
+    }
+  }
 }
@@ -1,31 +1,156 @@
 package oop.finance.utils;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
-import java.lang.reflect.Type;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
-/** Кастомный класс для правильного парсинга LocalDate переменных в Gson */
-public class LocalDateTimeAdapter
-    implements JsonSerializer<LocalDateTime>, JsonDeserializer<LocalDateTime> {
+/**
+ * Потоковый адаптер Gson для LocalDateTime. Дата пишется и читается в формате ISO_LOCAL_DATE_TIME
+ * напрямую через JsonWriter/JsonReader, без промежуточного дерева JsonElement. Для самого частого
+ * вида даты (yyyy-MM-ddTHH:mm:ss с долями секунды) разбор и форматирование выполняются вручную
+ */
+public class LocalDateTimeAdapter extends TypeAdapter<LocalDateTime> {
   private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+  private static final int MAX_FAST_YEAR = 9999;
+  private static final int YEAR_END = 4;
+  private static final int MONTH_END = 7;
+  private static final int DAY_END = 10;
+  private static final int HOUR_END = 13;
+  private static final int MINUTE_END = 16;
+  private static final int SECONDS_LENGTH = 19;
+  private static final int NANO_DIGITS = 9;
+  private static final int DECIMAL = 10;
+  private static final int THOUSAND = 1000;
 
   @Override
-  public JsonElement serialize(
-      LocalDateTime localDateTime, Type typeOfSrc, JsonSerializationContext context) {
-    return new JsonPrimitive(FORMATTER.format(localDateTime));
+  public void write(JsonWriter out, LocalDateTime value) throws IOException {
+    if (value == null) {
+      out.nullValue();
+      return;
+    }
+    out.value(format(value));
   }
 
   @Override
-  public LocalDateTime deserialize(
-      JsonElement json, Type typeOfT, JsonDeserializationContext context)
-      throws JsonParseException {
-    return LocalDateTime.parse(json.getAsString(), FORMATTER);
+  public LocalDateTime read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return parse(in.nextString());
+  }
+
+  // Форматирует дату так же, как ISO_LOCAL_DATE_TIME, но без форматтера для годов 0..9999
+  public static String format(LocalDateTime value) {
+    int year = value.getYear();
+    if (year < 0 || year > MAX_FAST_YEAR) {
+      return FORMATTER.format(value);
+    }
+
+    StringBuilder builder = new StringBuilder(SECONDS_LENGTH + 1 + NANO_DIGITS);
+    appendDigits(builder, year, THOUSAND);
+    builder.append('-');
+    appendDigits(builder, value.getMonthValue(), DECIMAL);
+    builder.append('-');
+    appendDigits(builder, value.getDayOfMonth(), DECIMAL);
+    builder.append('T');
+    appendDigits(builder, value.getHour(), DECIMAL);
+    builder.append(':');
+    appendDigits(builder, value.getMinute(), DECIMAL);
+    builder.append(':');
+    appendDigits(builder, value.getSecond(), DECIMAL);
+
+    int nano = value.getNano();
+    if (nano != 0) {
+      // как и ISO_LOCAL_DATE_TIME, выводим доли секунды без завершающих нулей
+      int digits = NANO_DIGITS;
+      while (nano % DECIMAL == 0) {
+        nano /= DECIMAL;
+        digits--;
+      }
+      builder.append('.');
+      int divisor = 1;
+      for (int i = 1; i < digits; i++) {
+        divisor *= DECIMAL;
+      }
+      appendDigits(builder, nano, divisor);
+    }
+    return builder.toString();
+  }
+
+  // Разбирает дату в формате ISO_LOCAL_DATE_TIME, необычные варианты отдаются форматтеру
+  public static LocalDateTime parse(String text) {
+    try {
+      LocalDateTime fast = parseFast(text);
+      return fast != null ? fast : LocalDateTime.parse(text, FORMATTER);
+    } catch (DateTimeException error) {
+      throw new JsonSyntaxException("Некорректная дата: " + text, error);
+    }
+  }
+
+  private static LocalDateTime parseFast(String text) {
+    int length = text.length();
+    if (length < SECONDS_LENGTH
+        || text.charAt(YEAR_END) != '-'
+        || text.charAt(MONTH_END) != '-'
+        || text.charAt(DAY_END) != 'T'
+        || text.charAt(HOUR_END) != ':'
+        || text.charAt(MINUTE_END) != ':') {
+      return null;
+    }
+
+    int year = digits(text, 0, YEAR_END);
+    int month = digits(text, YEAR_END + 1, MONTH_END);
+    int day = digits(text, MONTH_END + 1, DAY_END);
+    int hour = digits(text, DAY_END + 1, HOUR_END);
+    int minute = digits(text, HOUR_END + 1, MINUTE_END);
+    int second = digits(text, MINUTE_END + 1, SECONDS_LENGTH);
+    if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+      return null;
+    }
+
+    int nano = 0;
+    if (length > SECONDS_LENGTH) {
+      int fractionDigits = length - SECONDS_LENGTH - 1;
+      if (text.charAt(SECONDS_LENGTH) != '.'
+          || fractionDigits < 1
+          || fractionDigits > NANO_DIGITS) {
+        return null;
+      }
+      nano = digits(text, SECONDS_LENGTH + 1, length);
+      if (nano < 0) {
+        return null;
+      }
+      for (int i = fractionDigits; i < NANO_DIGITS; i++) {
+        nano *= DECIMAL;
+      }
+    }
+    return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+  }
+
+  // Число из десятичных цифр в диапазоне [from, to), либо -1 при постороннем символе
+  private static int digits(String text, int from, int to) {
+    int result = 0;
+    for (int i = from; i < to; i++) {
+      int digit = text.charAt(i) - '0';
+      if (digit < 0 || digit > DECIMAL - 1) {
+        return -1;
+      }
+      result = result * DECIMAL + digit;
+    }
+    return result;
+  }
+
+  // Дописывает число с ведущими нулями: divisor задает старший разряд (100 - три цифры)
+  private static void appendDigits(StringBuilder builder, int value, int divisor) {
+    for (int d = divisor; d > 0; d /= DECIMAL) {
+      builder.append((char) ('0' + value / d % DECIMAL));
+    }
   }
 }
@@ -0,0 +1,8 @@
+package oop.finance.utils;
+
+/** Слушатель прогресса длительных операций чтения (например, загрузки большого файла данных) */
+@FunctionalInterface
+public interface ProgressListener {
+  // Вызывается по мере чтения: сколько байт прочитано из общего количества
+  void onProgress(long bytesRead, long totalBytes);
+}
@@ -0,0 +1,81 @@
+package oop.finance.utils.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import oop.finance.model.Budget;
+import oop.finance.model.BudgetPeriod;
+import oop.finance.utils.LocalDateTimeAdapter;
+
+/** Потоковый адаптер Gson для бюджета */
+public class BudgetAdapter extends TypeAdapter<Budget> {
+  private final LocalDateTimeAdapter dateAdapter = new LocalDateTimeAdapter();
+
+  @Override
+  public void write(JsonWriter out, Budget budget) throws IOException {
+    if (budget == null) {
+      out.nullValue();
+      return;
+    }
+
+    out.beginObject();
+    if (budget.getCategory() != null) {
+      out.name("category").value(budget.getCategory());
+    }
+    out.name("limit").value(budget.getLimit());
+    out.name("spent").value(budget.getTotalSpent());
+    if (budget.isPeriodic()) {
+      out.name("period").value(budget.getPeriod().getCode());
+    }
+    ModelAdapters.writeEntity(out, dateAdapter, budget.getId(), budget.getCreatedAt());
+    out.endObject();
+  }
+
+  @Override
+  public Budget read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+
+    String id = null;
+    LocalDateTime createdAt = null;
+    String category = null;
+    double limit = 0;
+    double spent = 0;
+    BudgetPeriod period = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "id":
+          id = ModelAdapters.nextString(in);
+          break;
+        case "createdAt":
+          createdAt = dateAdapter.read(in);
+          break;
+        case "category":
+          category = ModelAdapters.nextString(in);
+          break;
+        case "limit":
+          limit = in.nextDouble();
+          break;
+        case "spent":
+          spent = in.nextDouble();
+          break;
+        case "period":
+          String code = ModelAdapters.nextString(in);
+          period = code != null ? BudgetPeriod.parse(code) : null;
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new Budget(id, createdAt, category, limit, spent, period);
+  }
+}
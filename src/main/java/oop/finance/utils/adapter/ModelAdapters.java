@@ -0,0 +1,55 @@
+package oop.finance.utils.adapter;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import oop.finance.model.Budget;
+import oop.finance.model.Transaction;
+import oop.finance.model.User;
+import oop.finance.model.Wallet;
+import oop.finance.utils.LocalDateTimeAdapter;
+
+/**
+ * Регистрация потоковых адаптеров моделей в Gson. С ними загрузка и сохранение обходятся без
+ * рефлексии и промежуточного дерева JsonElement
+ */
+public final class ModelAdapters {
+  private ModelAdapters() {
+    // запрет генерации экземпляров
+  }
+
+  // Регистрирует адаптеры дат и всех моделей пакета oop.finance.model
+  public static GsonBuilder register(GsonBuilder builder) {
+    return builder
+        .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+        .registerTypeAdapter(Transaction.class, new TransactionAdapter())
+        .registerTypeAdapter(Budget.class, new BudgetAdapter())
+        .registerTypeAdapter(Wallet.class, new WalletAdapter())
+        .registerTypeAdapter(User.class, new UserAdapter());
+  }
+
+  // Пишет поля BaseEntity в конце объекта, как это делает рефлексивная сериализация Gson
+  static void writeEntity(
+      JsonWriter out, LocalDateTimeAdapter dateAdapter, String id, LocalDateTime createdAt)
+      throws IOException {
+    if (id != null) {
+      out.name("id").value(id);
+    }
+    if (createdAt != null) {
+      out.name("createdAt");
+      dateAdapter.write(out, createdAt);
+    }
+  }
+
+  // Читает строку с учетом null
+  static String nextString(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return in.nextString();
+  }
+}
@@ -0,0 +1,223 @@
+package oop.finance.utils.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import oop.finance.model.CategorySketches;
+import oop.finance.model.TransactionStore;
+import oop.finance.model.sketch.QuantileSketch;
+import oop.finance.model.sketch.TopAmounts;
+
+/**
+ * Потоковый адаптер Gson для эскизов кошелька. Эскизы квантилей пишутся списками по типам
+ * транзакций (уровни эскиза - массивы значений), наибольшие расходы - отобранными суммами.
+ * Категория без названия (транзакции без категории) пишется без поля category
+ */
+public class SketchAdapter extends TypeAdapter<CategorySketches> {
+  @Override
+  public void write(JsonWriter out, CategorySketches sketches) throws IOException {
+    if (sketches == null) {
+      out.nullValue();
+      return;
+    }
+
+    out.beginObject();
+    out.name("k").value(sketches.getK());
+    out.name("top").value(sketches.getTopCapacity());
+    out.name("expenses");
+    writeSketches(out, sketches.getSketches(false));
+    out.name("incomes");
+    writeSketches(out, sketches.getSketches(true));
+
+    out.name("largest").beginArray();
+    for (Map.Entry<String, TopAmounts> entry : sketches.getLargestExpenses().entrySet()) {
+      out.beginObject();
+      writeCategory(out, entry.getKey());
+      out.name("amounts");
+      writeValues(out, entry.getValue().values());
+      out.endObject();
+    }
+    out.endArray();
+    out.endObject();
+  }
+
+  // Эскизы вне кошелька получают собственное хранилище для номеров категорий
+  @Override
+  public CategorySketches read(JsonReader in) throws IOException {
+    return read(in, new TransactionStore());
+  }
+
+  // Читает эскизы кошелька; ключи - локальные номера категорий его хранилища transactions
+  public CategorySketches read(JsonReader in, TransactionStore transactions) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+
+    int k = QuantileSketch.DEFAULT_K;
+    int top = TopAmounts.DEFAULT_CAPACITY;
+    CategorySketches sketches = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      String name = in.nextName();
+      // размеры эскизов пишутся первыми
+      if (sketches == null && !"k".equals(name) && !"top".equals(name)) {
+        sketches = new CategorySketches(transactions, k, top);
+      }
+      switch (name) {
+        case "k":
+          k = in.nextInt();
+          break;
+        case "top":
+          top = in.nextInt();
+          break;
+        case "expenses":
+          readSketches(in, sketches, false);
+          break;
+        case "incomes":
+          readSketches(in, sketches, true);
+          break;
+        case "largest":
+          readLargest(in, sketches);
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return sketches != null ? sketches : new CategorySketches(transactions, k, top);
+  }
+
+  private void writeSketches(JsonWriter out, Map<String, QuantileSketch> sketches)
+      throws IOException {
+    out.beginArray();
+    for (Map.Entry<String, QuantileSketch> entry : sketches.entrySet()) {
+      QuantileSketch sketch = entry.getValue();
+      out.beginObject();
+      writeCategory(out, entry.getKey());
+      out.name("count").value(sketch.getCount());
+      out.name("min").value(sketch.getMin());
+      out.name("max").value(sketch.getMax());
+      out.name("compactions").value(sketch.getCompactions());
+      out.name("levels").beginArray();
+      for (int h = 0; h < sketch.getLevelCount(); h++) {
+        writeValues(out, sketch.getLevel(h));
+      }
+      out.endArray();
+      out.endObject();
+    }
+    out.endArray();
+  }
+
+  private void readSketches(JsonReader in, CategorySketches sketches, boolean isIncome)
+      throws IOException {
+    in.beginArray();
+    while (in.hasNext()) {
+      String category = null;
+      long count = 0;
+      double min = 0;
+      double max = 0;
+      long compactions = 0;
+      List<double[]> levels = new ArrayList<>();
+
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "category":
+            category = ModelAdapters.nextString(in);
+            break;
+          case "count":
+            count = in.nextLong();
+            break;
+          case "min":
+            min = in.nextDouble();
+            break;
+          case "max":
+            max = in.nextDouble();
+            break;
+          case "compactions":
+            compactions = in.nextLong();
+            break;
+          case "levels":
+            in.beginArray();
+            while (in.hasNext()) {
+              levels.add(readValues(in));
+            }
+            in.endArray();
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+
+      sketches.putSketch(
+          category,
+          isIncome,
+          QuantileSketch.restore(sketches.getK(), count, min, max, compactions, levels));
+    }
+    in.endArray();
+  }
+
+  private void readLargest(JsonReader in, CategorySketches sketches) throws IOException {
+    in.beginArray();
+    while (in.hasNext()) {
+      String category = null;
+      double[] amounts = new double[0];
+
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "category":
+            category = ModelAdapters.nextString(in);
+            break;
+          case "amounts":
+            amounts = readValues(in);
+            break;
+          default:
+            in.skipValue();
+        }
+      }
+      in.endObject();
+
+      sketches.putLargestExpenses(category, TopAmounts.restore(sketches.getTopCapacity(), amounts));
+    }
+    in.endArray();
+  }
+
+  private void writeCategory(JsonWriter out, String category) throws IOException {
+    if (category != null) {
+      out.name("category").value(category);
+    }
+  }
+
+  private void writeValues(JsonWriter out, double[] values) throws IOException {
+    out.beginArray();
+    for (double value : values) {
+      out.value(value);
+    }
+    out.endArray();
+  }
+
+  private double[] readValues(JsonReader in) throws IOException {
+    double[] values = new double[QuantileSketch.DEFAULT_K];
+    int size = 0;
+    in.beginArray();
+    while (in.hasNext()) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, 2 * size);
+      }
+      values[size++] = in.nextDouble();
+    }
+    in.endArray();
+    return Arrays.copyOf(values, size);
+  }
+}
@@ -0,0 +1,72 @@
+package oop.finance.utils.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import oop.finance.model.Transaction;
+import oop.finance.utils.LocalDateTimeAdapter;
+
+/** Потоковый адаптер Gson для транзакции. Поля пишутся в том же порядке, что и при рефлексии */
+public class TransactionAdapter extends TypeAdapter<Transaction> {
+  private final LocalDateTimeAdapter dateAdapter = new LocalDateTimeAdapter();
+
+  @Override
+  public void write(JsonWriter out, Transaction transaction) throws IOException {
+    if (transaction == null) {
+      out.nullValue();
+      return;
+    }
+
+    out.beginObject();
+    if (transaction.getCategory() != null) {
+      out.name("category").value(transaction.getCategory());
+    }
+    out.name("amount").value(transaction.getAmount());
+    out.name("isIncome").value(transaction.isIncome());
+    ModelAdapters.writeEntity(out, dateAdapter, transaction.getId(), transaction.getCreatedAt());
+    out.endObject();
+  }
+
+  @Override
+  public Transaction read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+
+    String id = null;
+    LocalDateTime createdAt = null;
+    String category = null;
+    double amount = 0;
+    boolean isIncome = false;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "id":
+          id = ModelAdapters.nextString(in);
+          break;
+        case "createdAt":
+          createdAt = dateAdapter.read(in);
+          break;
+        case "category":
+          category = ModelAdapters.nextString(in);
+          break;
+        case "amount":
+          amount = in.nextDouble();
+          break;
+        case "isIncome":
+          isIncome = in.nextBoolean();
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new Transaction(id, createdAt, amount, category, isIncome);
+  }
+}
@@ -0,0 +1,79 @@
+package oop.finance.utils.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import oop.finance.model.User;
+import oop.finance.model.Wallet;
+import oop.finance.utils.LocalDateTimeAdapter;
+
+/** Потоковый адаптер Gson для пользователя вместе с его кошельком */
+public class UserAdapter extends TypeAdapter<User> {
+  private final LocalDateTimeAdapter dateAdapter = new LocalDateTimeAdapter();
+  private final WalletAdapter walletAdapter = new WalletAdapter();
+
+  @Override
+  public void write(JsonWriter out, User user) throws IOException {
+    if (user == null) {
+      out.nullValue();
+      return;
+    }
+
+    out.beginObject();
+    if (user.getLogin() != null) {
+      out.name("login").value(user.getLogin());
+    }
+    if (user.getPassword() != null) {
+      out.name("password").value(user.getPassword());
+    }
+    if (user.getWallet() != null) {
+      out.name("wallet");
+      walletAdapter.write(out, user.getWallet());
+    }
+    ModelAdapters.writeEntity(out, dateAdapter, user.getId(), user.getCreatedAt());
+    out.endObject();
+  }
+
+  @Override
+  public User read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+
+    String id = null;
+    LocalDateTime createdAt = null;
+    String login = null;
+    String password = null;
+    Wallet wallet = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "id":
+          id = ModelAdapters.nextString(in);
+          break;
+        case "createdAt":
+          createdAt = dateAdapter.read(in);
+          break;
+        case "login":
+          login = ModelAdapters.nextString(in);
+          break;
+        case "password":
+          password = ModelAdapters.nextString(in);
+          break;
+        case "wallet":
+          wallet = walletAdapter.read(in);
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new User(id, createdAt, login, password, wallet);
+  }
+}
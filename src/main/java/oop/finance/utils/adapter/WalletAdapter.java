@@ -0,0 +1,140 @@
+package oop.finance.utils.adapter;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import oop.finance.model.Budget;
+import oop.finance.model.CategorySketches;
+import oop.finance.model.TransactionStore;
+import oop.finance.model.Wallet;
+import oop.finance.utils.LocalDateTimeAdapter;
+
+/**
+ * Потоковый адаптер Gson для кошелька. Транзакции, бюджеты и эскизы пишутся и читаются вложенными
+ * адаптерами по одному, без промежуточного дерева JSON
+ */
+public class WalletAdapter extends TypeAdapter<Wallet> {
+  private final LocalDateTimeAdapter dateAdapter = new LocalDateTimeAdapter();
+  private final TransactionAdapter transactionAdapter = new TransactionAdapter();
+  private final BudgetAdapter budgetAdapter = new BudgetAdapter();
+  private final SketchAdapter sketchAdapter = new SketchAdapter();
+
+  @Override
+  public void write(JsonWriter out, Wallet wallet) throws IOException {
+    if (wallet == null) {
+      out.nullValue();
+      return;
+    }
+    // снимок может писаться в фоновом потоке: кошелек не должен меняться во время записи
+    synchronized (wallet) {
+      writeWallet(out, wallet);
+    }
+  }
+
+  private void writeWallet(JsonWriter out, Wallet wallet) throws IOException {
+    out.beginObject();
+    out.name("balance").value(wallet.getBalance());
+
+    TransactionStore transactions = wallet.getTransactionStore();
+    out.name("transactions").beginArray();
+    for (int row = 0; row < transactions.size(); row++) {
+      transactionAdapter.write(out, transactions.get(row));
+    }
+    out.endArray();
+
+    out.name("budgets").beginObject();
+    for (Map.Entry<String, Budget> entry : wallet.getBudgets().entrySet()) {
+      out.name(entry.getKey());
+      budgetAdapter.write(out, entry.getValue());
+    }
+    out.endObject();
+
+    out.name("sketches");
+    sketchAdapter.write(out, wallet.getSketches());
+
+    out.name("version").value(wallet.getVersion());
+    ModelAdapters.writeEntity(out, dateAdapter, wallet.getId(), wallet.getCreatedAt());
+    out.endObject();
+  }
+
+  @Override
+  public Wallet read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+
+    String id = null;
+    LocalDateTime createdAt = null;
+    double balance = 0;
+    long version = 0;
+    TransactionStore transactions = new TransactionStore();
+    Map<String, Budget> budgets = new HashMap<>();
+    // кошельки, сохраненные до появления эскизов, получат их по истории транзакций
+    CategorySketches sketches = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "id":
+          id = ModelAdapters.nextString(in);
+          break;
+        case "createdAt":
+          createdAt = dateAdapter.read(in);
+          break;
+        case "balance":
+          balance = in.nextDouble();
+          break;
+        case "version":
+          version = in.nextLong();
+          break;
+        case "transactions":
+          readTransactions(in, transactions);
+          break;
+        case "budgets":
+          readBudgets(in, budgets);
+          break;
+        case "sketches":
+          sketches = sketchAdapter.read(in, transactions);
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new Wallet(id, createdAt, balance, version, transactions, budgets, sketches);
+  }
+
+  private void readTransactions(JsonReader in, TransactionStore transactions) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return;
+    }
+
+    in.beginArray();
+    while (in.hasNext()) {
+      transactions.add(transactionAdapter.read(in));
+    }
+    in.endArray();
+  }
+
+  private void readBudgets(JsonReader in, Map<String, Budget> budgets) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return;
+    }
+
+    in.beginObject();
+    while (in.hasNext()) {
+      String category = in.nextName();
+      budgets.put(category, budgetAdapter.read(in));
+    }
+    in.endObject();
+  }
+}
@@ -0,0 +1,104 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import oop.finance.model.Budget;
+import oop.finance.model.SystemStatistics;
+import oop.finance.model.User;
+import oop.finance.repository.UserRepository;
+import oop.finance.repository.storage.SnapshotUserStorage;
+import oop.finance.service.AnalyticsService;
+import oop.finance.service.FinanceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnalyticsServiceTest {
+  @TempDir Path tempDir;
+  private UserRepository repository;
+  private FinanceService financeService;
+  private final String FOOD = "Еда";
+  private final String SALARY = "Зарплата";
+  private final int USERS = 50;
+
+  @BeforeEach
+  void setUp() {
+    repository = new UserRepository(tempDir.resolve("users.json").toString());
+    financeService = new FinanceService();
+    for (int i = 0; i < USERS; i++) {
+      User user = new User("user" + i, "password");
+      repository.add(user);
+      financeService.addIncome(user, SALARY, 1000 + i);
+      financeService.addExpense(user, FOOD, 10.0 * (i % 7 + 1));
+      financeService.addExpense(user, "Такси", i + 0.5);
+      if (i % 10 == 0) {
+        user.getWallet().setBudget(new Budget(FOOD, 15));
+        financeService.addExpense(user, FOOD, 20);
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Параллельная статистика по всем пользователям должна совпадать с обходом по одному")
+  void testCollectMatchesPerUserStatistics() {
+    SystemStatistics parallel = new AnalyticsService(repository, 1).collect();
+    SystemStatistics sequential = new AnalyticsService(repository, Integer.MAX_VALUE).collect();
+
+    double income = 0;
+    double expense = 0;
+    double food = 0;
+    for (User user : repository.list()) {
+      income += financeService.getTotalIncome(user);
+      expense += financeService.getTotalExpense(user);
+      food += financeService.getExpensesByCategory(user).get(FOOD);
+    }
+    for (SystemStatistics statistics : List.of(parallel, sequential)) {
+      assertEquals(USERS, statistics.getUserCount());
+      assertEquals(income, statistics.getTotalIncome(), 1e-6);
+      assertEquals(expense, statistics.getTotalExpense(), 1e-6);
+      assertEquals(food, statistics.getExpensesByCategory().get(FOOD), 1e-6);
+      assertEquals(income, statistics.getIncomeByCategory().get(SALARY), 1e-6);
+      assertEquals(2, statistics.getExpensesByCategory().size());
+    }
+  }
+
+  @Test
+  @DisplayName("Должны находиться пользователи с наибольшими расходами и с превышенным бюджетом")
+  void testTopSpendersAndBudgets() {
+    AnalyticsService analyticsService = new AnalyticsService(repository, 1);
+
+    Map<String, Double> top = analyticsService.getTopSpenders(3);
+    assertEquals(List.of("user40", "user48", "user41"), List.copyOf(top.keySet()));
+    assertEquals(60 + 20 + 40.5, top.get("user40"));
+    assertEquals(5, analyticsService.getUsersOverBudget());
+    assertTrue(analyticsService.getTopSpenders(0).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Обход всех пользователей не должен оставлять их в кэше репозитория")
+  void testStreamDoesNotCacheUsers() {
+    repository.saveAll();
+    AtomicInteger loads = new AtomicInteger();
+    SnapshotUserStorage storage =
+        new SnapshotUserStorage(tempDir.resolve("users.json").toString()) {
+          @Override
+          public User load(String login) {
+            loads.incrementAndGet();
+            return super.load(login);
+          }
+        };
+    UserRepository reloaded = new UserRepository(storage);
+    AnalyticsService analyticsService = new AnalyticsService(reloaded, 1);
+
+    assertEquals(USERS, analyticsService.collect().getUserCount());
+    assertEquals(USERS, analyticsService.collect().getUserCount());
+    assertEquals(2 * USERS, loads.get());
+
+    reloaded.findByLogin("user1");
+    reloaded.stream().count();
+    assertEquals(3 * USERS, loads.get());
+  }
+}
@@ -1,7 +1,13 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import oop.finance.exception.InvalidCredentialsException;
 import oop.finance.model.Budget;
+import oop.finance.model.BudgetPeriod;
+import oop.finance.model.SpendingWindow;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -72,4 +78,91 @@ class BudgetTest {
           budget.setLimit(TEST_NEGATIVE);
         });
   }
+
+  @Test
+  @DisplayName("Скользящее окно должно учитывать только расходы последних N дней")
+  void testRollingSpendingWindow() {
+    long day = LocalDate.of(2024, 3, 10).toEpochDay();
+    SpendingWindow window = new SpendingWindow(BudgetPeriod.rollingDays(7), day);
+    window.add(day, TEST_EXPENSE);
+    window.add(day + 3, TEST_EXPENSE);
+    window.add(day + 6, TEST_EXPENSE);
+    assertEquals(TEST_EXPENSE * 3, window.total(day + 6));
+
+    // день day выпадает из окна, расход задним числом внутри окна учитывается
+    assertEquals(TEST_EXPENSE * 2, window.total(day + 7));
+    window.add(day + 2, TEST_EXPENSE);
+    assertEquals(TEST_EXPENSE * 3, window.total(day + 7));
+    // расход раньше начала окна не учитывается
+    window.add(day, TEST_EXPENSE);
+    assertEquals(TEST_EXPENSE * 3, window.total(day + 7));
+
+    assertEquals(TEST_EXPENSE, window.total(day + 12));
+    // после долгого перерыва окно пусто
+    assertEquals(0, window.total(day + 1000));
+    window.add(day + 1000, TEST_EXPENSE);
+    assertEquals(TEST_EXPENSE, window.total(day + 1000));
+  }
+
+  @Test
+  @DisplayName("Календарные периоды должны начинаться заново с нового месяца и недели")
+  void testCalendarSpendingWindow() {
+    long lastOfJanuary = LocalDate.of(2024, 1, 31).toEpochDay();
+    SpendingWindow month = new SpendingWindow(BudgetPeriod.month(), lastOfJanuary - 1);
+    month.add(lastOfJanuary - 1, TEST_EXPENSE);
+    month.add(lastOfJanuary, TEST_EXPENSE);
+    assertEquals(TEST_EXPENSE * 2, month.total(lastOfJanuary));
+    assertEquals(0, month.total(lastOfJanuary + 1));
+    month.add(lastOfJanuary + 2, TEST_EXPENSE);
+    assertEquals(TEST_EXPENSE, month.total(lastOfJanuary + 28));
+
+    // 2024-03-10 - воскресенье, следующий день начинает новую неделю
+    long sunday = LocalDate.of(2024, 3, 10).toEpochDay();
+    SpendingWindow week = new SpendingWindow(BudgetPeriod.week(), sunday - 6);
+    week.add(sunday - 6, TEST_EXPENSE);
+    week.add(sunday, TEST_EXPENSE);
+    assertEquals(TEST_EXPENSE * 2, week.total(sunday));
+    assertEquals(0, week.total(sunday + 1));
+  }
+
+  @Test
+  @DisplayName("Периодический бюджет должен сравнивать с лимитом только расходы периода")
+  void testPeriodicBudget() {
+    Clock clock = Clock.fixed(Instant.parse("2024-03-15T12:00:00Z"), ZoneOffset.UTC);
+    Budget weekly = new Budget(TEST_CATEGORY, TEST_AMOUNT, BudgetPeriod.rollingDays(7), clock);
+    long today = LocalDate.now(clock).toEpochDay();
+    weekly.addExpense(TEST_AMOUNT, today - 10);
+    weekly.addExpense(TEST_EXPENSE, today);
+
+    assertEquals(TEST_EXPENSE, weekly.getSpent());
+    assertEquals(TEST_AMOUNT + TEST_EXPENSE, weekly.getTotalSpent());
+    assertEquals(TEST_AMOUNT - TEST_EXPENSE, weekly.getRemaining());
+    assertFalse(weekly.isExceeded());
+    assertEquals(BudgetPeriod.rollingDays(7), BudgetPeriod.parse(weekly.getPeriod().getCode()));
+    assertThrows(InvalidCredentialsException.class, () -> BudgetPeriod.parse("days:0"));
+  }
+
+  @Test
+  @DisplayName("Расход будущей датой не должен сдвигать период бюджета")
+  void testFutureDatedExpense() {
+    Clock clock = Clock.fixed(Instant.parse("2024-03-15T12:00:00Z"), ZoneOffset.UTC);
+    Budget monthly = new Budget(TEST_CATEGORY, TEST_AMOUNT, BudgetPeriod.month(), clock);
+    long today = LocalDate.now(clock).toEpochDay();
+    monthly.addExpense(TEST_EXPENSE, today);
+    // 2024-04-04: следующий месяц
+    monthly.addExpense(TEST_AMOUNT, today + 20);
+    monthly.addExpense(TEST_EXPENSE, today - 1);
+
+    assertEquals(TEST_EXPENSE * 2, monthly.getSpent());
+    assertEquals(TEST_AMOUNT + TEST_EXPENSE * 2, monthly.getTotalSpent());
+    assertFalse(monthly.isExceeded());
+
+    // отложенный расход учитывается, когда наступает его день
+    SpendingWindow window = new SpendingWindow(BudgetPeriod.month(), today);
+    window.add(today, TEST_EXPENSE);
+    window.add(today + 20, TEST_AMOUNT);
+    assertEquals(TEST_EXPENSE, window.total(today));
+    assertEquals(0, window.total(today + 19));
+    assertEquals(TEST_AMOUNT, window.total(today + 20));
+  }
 }
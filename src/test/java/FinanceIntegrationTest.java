@@ -1,6 +1,7 @@
 import static org.junit.jupiter.api.Assertions.*;
 
 import oop.finance.model.Budget;
+import oop.finance.model.BudgetPeriod;
 import oop.finance.model.User;
 import oop.finance.repository.UserRepository;
 import oop.finance.service.AuthService;
@@ -83,6 +84,31 @@ class FinanceIntegrationTest {
     assertEquals(AMOUNT_MIN - AMOUNT_MEDIUM, shoppingBudget.getRemaining());
   }
 
+  @Test
+  @DisplayName("Переименованный бюджет должен учитывать расходы новой категории")
+  void testRenameBudgetCategory() {
+    authService.register(USER1, USER1);
+    authService.authenticate(USER1, USER1);
+    User user = authService.getCurrentUser();
+    financeService.addIncome(user, SALARY, AMOUNT_MAX);
+    financeService.addExpense(user, FOOD, AMOUNT_MIN);
+    financeService.addExpense(user, TAXI, AMOUNT_MEDIUM);
+    budgetService.setBudget(user, FOOD, AMOUNT_MEDIUM, BudgetPeriod.rollingDays(7));
+    budgetService.setBudget(user, SALARY, AMOUNT_MEDIUM);
+
+    budgetService.updateBudget(user, FOOD, TAXI);
+    Budget periodic = user.getWallet().getBudget(TAXI);
+    assertNull(user.getWallet().getBudget(FOOD));
+    assertEquals(AMOUNT_MEDIUM, periodic.getTotalSpent());
+    assertEquals(AMOUNT_MEDIUM, periodic.getSpent());
+
+    // бюджет без периода тоже пересчитывается по новой категории
+    budgetService.updateBudget(user, SALARY, FOOD);
+    assertEquals(AMOUNT_MIN, user.getWallet().getBudget(FOOD).getSpent());
+    financeService.addExpense(user, FOOD, AMOUNT_MIN);
+    assertEquals(2 * AMOUNT_MIN, user.getWallet().getBudget(FOOD).getTotalSpent());
+  }
+
   @Test
   @DisplayName("Кейс перевода между юзерами")
   void testTransferBetweenUsers() {
@@ -1,8 +1,30 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import oop.finance.exception.InvalidCredentialsException;
+import oop.finance.model.QueryPlan;
+import oop.finance.model.StatisticsQuery;
+import oop.finance.model.StatisticsSummary;
+import oop.finance.model.Transaction;
+import oop.finance.model.TransactionCursor;
+import oop.finance.model.TransactionPage;
+import oop.finance.model.TransactionStore;
 import oop.finance.model.User;
+import oop.finance.model.Wallet;
+import oop.finance.model.kernel.SumKernel;
+import oop.finance.model.sketch.QuantileSketch;
+import oop.finance.model.sketch.TopAmounts;
 import oop.finance.service.FinanceService;
+import oop.finance.service.QueryCache;
+import oop.finance.utils.DateTimeUtils;
+import oop.finance.utils.JsonUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -80,4 +102,347 @@ class FinanceServiceTest {
 
     assertTrue(financeService.isTotalExceeding(user));
   }
+
+  @Test
+  @DisplayName("Итоги без периода должны совпадать с полным проходом и после загрузки")
+  void testTotalsMatchScanAfterLoad() {
+    financeService.addIncome(user, TEST_STRING, TEST_AMOUNT);
+    financeService.addExpense(user, TEST_CATEGORY, TEST_EXPENSE);
+    financeService.addExpense(user, TEST_STRING, TEST_EXPENSE);
+    // период заставляет сервис пройти по всем транзакциям, а не брать нарастающие итоги
+    StatisticsQuery scan =
+        StatisticsQuery.create()
+            .withType(false)
+            .withPeriod(LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2100, 1, 1, 0, 0));
+
+    JsonUtils jsonUtils = new JsonUtils();
+    User restored = jsonUtils.fromJsonLine(jsonUtils.toJsonLine(user), User.class);
+    assertEquals(
+        financeService.groupByCategory(user, scan), financeService.getExpensesByCategory(restored));
+    assertEquals(TEST_EXPENSE * 2, financeService.getTotalExpense(restored));
+    assertEquals(
+        TEST_EXPENSE, financeService.getTotalExpense(restored, new String[] {TEST_CATEGORY}));
+    assertEquals(TEST_AMOUNT, financeService.getTotalIncome(restored));
+  }
+
+  @Test
+  @DisplayName("Статистика за период должна учитывать транзакции, добавленные задним числом")
+  void testPeriodWithBackdatedTransactions() {
+    Wallet wallet = user.getWallet();
+    wallet.addTransaction(new Transaction(null, date(10), TEST_AMOUNT, TEST_STRING, true));
+    wallet.addTransaction(new Transaction(null, date(20), TEST_EXPENSE, TEST_CATEGORY, false));
+    // импортированные записи задним числом
+    wallet.addTransaction(new Transaction(null, date(5), TEST_EXPENSE, TEST_CATEGORY, false));
+    wallet.addTransaction(new Transaction(null, date(15), TEST_AMOUNT, TEST_CATEGORY, false));
+
+    StatisticsQuery period = StatisticsQuery.create().withType(false).withPeriod(date(5), date(15));
+    assertEquals(TEST_EXPENSE + TEST_AMOUNT, financeService.calculateTotal(user, period));
+    assertEquals(
+        TEST_EXPENSE + TEST_AMOUNT,
+        financeService.getExpensesByCategory(user, "05.01.2025", "15.01.2025").get(TEST_CATEGORY));
+    assertEquals(TEST_AMOUNT, financeService.getTotalIncome(user, "01.01.2025", "10.01.2025"));
+  }
+
+  @Test
+  @DisplayName("Статистика за период по итогам дней и месяцев должна совпадать с перебором")
+  void testPeriodRollupsMatchScan() {
+    String[] categories = {TEST_STRING, TEST_CATEGORY, "Такси"};
+    LocalDateTime start = LocalDateTime.of(2023, 6, 15, 9, 30);
+    Wallet wallet = user.getWallet();
+    // сначала нечетные, затем четные в обратном порядке, чтобы часть записей шла задним числом
+    for (int pass = 0; pass < 2; pass++) {
+      for (int step = 0; step < 300; step++) {
+        int i = pass == 0 ? 2 * step + 1 : 598 - 2 * step;
+        wallet.addTransaction(
+            new Transaction(
+                null,
+                start.plusHours(37L * i),
+                (i % 7 + 1) * 100.0,
+                categories[i % 3],
+                i % 4 != 0));
+      }
+    }
+
+    LocalDateTime[][] periods = {
+      {LocalDateTime.of(2023, 7, 1, 0, 0), LocalDateTime.of(2024, 3, 1, 0, 0)},
+      {LocalDateTime.of(2023, 6, 20, 13, 5), LocalDateTime.of(2023, 6, 29, 22, 0)},
+      {LocalDateTime.of(2022, 1, 1, 0, 0), LocalDateTime.of(2030, 1, 1, 0, 0)},
+      {LocalDateTime.of(2024, 2, 3, 0, 0), LocalDateTime.of(2024, 2, 3, 0, 0)},
+      {start.plusHours(37L * 100), start.plusHours(37L * 400)}
+    };
+    for (LocalDateTime[] period : periods) {
+      for (boolean isIncome : new boolean[] {true, false}) {
+        StatisticsQuery query = StatisticsQuery.create().withType(isIncome);
+        query.withPeriod(period[0], period[1]);
+        Map<String, Double> expected = new HashMap<>();
+        wallet.getTransactions().stream()
+            .filter(query.build())
+            .forEach(t -> expected.merge(t.getCategory(), t.getAmount(), Double::sum));
+
+        assertEquals(expected, financeService.groupByCategory(user, query));
+        assertEquals(
+            expected.values().stream().mapToDouble(Double::doubleValue).sum(),
+            financeService.calculateTotal(user, query));
+        query.withCategories(new String[] {TEST_CATEGORY});
+        assertEquals(
+            expected.getOrDefault(TEST_CATEGORY, 0.0), financeService.calculateTotal(user, query));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("План запроса должен выбирать способ доступа к данным по условиям запроса")
+  void testQueryPlanAccessPath() {
+    financeService.addIncome(user, TEST_STRING, TEST_AMOUNT);
+    financeService.addExpense(user, TEST_CATEGORY, TEST_EXPENSE);
+    TransactionStore store = user.getWallet().getTransactionStore();
+    LocalDateTime now = LocalDateTime.now();
+
+    assertEquals(
+        QueryPlan.AccessPath.AGGREGATES,
+        StatisticsQuery.create().withType(false).compile(store).getAccessPath());
+    assertEquals(
+        QueryPlan.AccessPath.EMPTY,
+        StatisticsQuery.create().withType(false).withType(true).compile(store).getAccessPath());
+    assertEquals(
+        QueryPlan.AccessPath.AGGREGATES, StatisticsQuery.create().compile(store).getAccessPath());
+    assertEquals(
+        QueryPlan.AccessPath.ROLLUPS,
+        StatisticsQuery.create()
+            .withType(true)
+            .withPeriod(now.minusDays(3), now.plusDays(3))
+            .compile(store)
+            .getAccessPath());
+    QueryPlan byTime =
+        StatisticsQuery.create()
+            .withCategories(new String[] {TEST_CATEGORY})
+            .withPeriod(now.minusHours(1), now.plusHours(1))
+            .compile(store);
+    assertEquals(QueryPlan.AccessPath.TIME_INDEX, byTime.getAccessPath());
+    assertEquals(TEST_EXPENSE, byTime.total());
+    assertEquals(Map.of(TEST_CATEGORY, TEST_EXPENSE), byTime.groupByCategory());
+  }
+
+  @Test
+  @DisplayName("Сводная статистика должна совпадать с отдельными запросами")
+  void testStatisticsSummary() {
+    financeService.addIncome(user, TEST_STRING, TEST_AMOUNT);
+    financeService.addIncome(user, TEST_CATEGORY, TEST_EXPENSE);
+    financeService.addExpense(user, TEST_CATEGORY, TEST_EXPENSE);
+    financeService.addExpense(user, TEST_CATEGORY, TEST_AMOUNT);
+    user.getWallet().addTransaction(new Transaction(TEST_EXPENSE, null, false));
+
+    StatisticsSummary summary = financeService.getStatistics(user);
+    assertEquals(financeService.getTotalIncome(user), summary.getTotalIncome());
+    assertEquals(financeService.getTotalExpense(user), summary.getTotalExpense());
+    assertEquals(financeService.getIncomeByCategory(user), summary.getIncomeByCategory());
+    assertEquals(financeService.getExpensesByCategory(user), summary.getExpensesByCategory());
+    assertEquals(2, summary.getIncomeCount());
+    assertEquals(3, summary.getExpenseCount());
+    assertEquals(2, summary.getExpenseCountByCategory().get(TEST_CATEGORY));
+    assertTrue(summary.isExpenseExceeding());
+
+    StatisticsSummary byCategory = financeService.getStatistics(user, new String[] {TEST_CATEGORY});
+    assertEquals(TEST_EXPENSE, byCategory.getTotalIncome());
+    assertEquals(TEST_EXPENSE + TEST_AMOUNT, byCategory.getTotalExpense());
+
+    String today =
+        LocalDateTime.now().format(DateTimeFormatter.ofPattern(DateTimeUtils.DATE_FORMAT));
+    StatisticsSummary byPeriod = financeService.getStatistics(user, "01.01.2000", today);
+    assertEquals(0, byPeriod.getIncomeCount() + byPeriod.getExpenseCount());
+    assertThrows(
+        InvalidCredentialsException.class,
+        () -> financeService.getStatistics(user, today, "01.01.2000"));
+  }
+
+  @Test
+  @DisplayName("Параллельный подсчет статистики должен совпадать с последовательным до бита")
+  void testParallelStatisticsMatchSequential() {
+    String[] categories = {TEST_STRING, TEST_CATEGORY, "Такси", null};
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    TransactionStore store = user.getWallet().getTransactionStore();
+    for (int i = 0; i < 100_000; i++) {
+      store.add(null, start.plusSeconds(i), 0.1 * (i % 97) + 1e-7, categories[i % 4], i % 5 == 0);
+    }
+    // период задан одной границей, поэтому план просматривает транзакции
+    StatisticsQuery query = StatisticsQuery.create().withPeriod(null, start.plusDays(30));
+    FinanceService parallel = new FinanceService(1);
+    FinanceService sequential = new FinanceService(Integer.MAX_VALUE);
+
+    assertEquals(QueryPlan.AccessPath.TIME_INDEX, query.compile(store).getAccessPath());
+    assertEquals(sequential.calculateTotal(user, query), parallel.calculateTotal(user, query));
+    assertEquals(sequential.groupByCategory(user, query), parallel.groupByCategory(user, query));
+    StatisticsSummary expected = sequential.summarize(user, query);
+    StatisticsSummary actual = parallel.summarize(user, query);
+    assertEquals(expected.getIncomeByCategory(), actual.getIncomeByCategory());
+    assertEquals(expected.getExpensesByCategory(), actual.getExpensesByCategory());
+    assertEquals(100_000, actual.getIncomeCount() + actual.getExpenseCount());
+  }
+
+  @Test
+  @DisplayName("Кэш статистики не должен возвращать результаты для измененного кошелька")
+  void testQueryCache() {
+    FinanceService service = new FinanceService(FinanceService.DEFAULT_PARALLEL_THRESHOLD, 2);
+    QueryCache cache = service.getCache();
+    service.addIncome(user, TEST_STRING, TEST_AMOUNT);
+
+    assertEquals(TEST_AMOUNT, service.getTotalIncome(user));
+    assertEquals(TEST_AMOUNT, service.getTotalIncome(user));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+
+    // порядок категорий в запросе не важен
+    service.getIncomeByCategory(user, new String[] {TEST_STRING, TEST_CATEGORY});
+    service.getIncomeByCategory(user, new String[] {TEST_CATEGORY, TEST_STRING}).clear();
+    assertEquals(2, cache.getHits());
+    assertEquals(
+        Map.of(TEST_STRING, TEST_AMOUNT),
+        service.getIncomeByCategory(user, new String[] {TEST_STRING}));
+
+    service.addIncome(user, TEST_STRING, TEST_EXPENSE);
+    assertEquals(TEST_AMOUNT + TEST_EXPENSE, service.getTotalIncome(user));
+    user.getWallet().getTransactionStore().add(new Transaction(TEST_EXPENSE, TEST_STRING, true));
+    assertEquals(TEST_AMOUNT + 2 * TEST_EXPENSE, service.getTotalIncome(user));
+    assertEquals(2, cache.getHits());
+    // записи для прежних состояний кошелька вытеснены
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  @DisplayName("Векторное и скалярное ядра суммирования должны давать одинаковый результат")
+  void testSumKernels() {
+    TransactionStore store = user.getWallet().getTransactionStore();
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    for (int i = 0; i < 10_003; i++) {
+      LocalDateTime createdAt = start.plusMinutes(i * 7L % 10_000);
+      store.add(null, createdAt, 0.1 * (i % 13) + 1e-9, TEST_STRING, i % 3 == 0);
+    }
+    // одна граница периода: общая сумма считается сплошным проходом по колонкам
+    LocalDateTime to = start.plusMinutes(9000);
+    StatisticsQuery query = StatisticsQuery.create().withPeriod(null, to);
+    double vector =
+        QueryPlan.compile(query, store, Integer.MAX_VALUE, SumKernel.preferred()).total();
+    double scalar = QueryPlan.compile(query, store, Integer.MAX_VALUE, SumKernel.scalar()).total();
+    double byIndex = QueryPlan.compile(query, store, Integer.MAX_VALUE, null).total();
+
+    assertEquals("vector", SumKernel.preferred().name());
+    assertEquals(scalar, vector);
+    assertEquals(byIndex, vector, 1e-9);
+    double income =
+        financeService.calculateTotal(
+            user, StatisticsQuery.create().withType(true).withPeriod(null, to));
+    double expense =
+        financeService.calculateTotal(
+            user, StatisticsQuery.create().withType(false).withPeriod(null, to));
+    assertEquals(byIndex, income + expense, 1e-9);
+  }
+
+  @Test
+  @DisplayName("Медиана, перцентили и крупнейшие расходы должны считаться по эскизам категорий")
+  void testExpenseQuantiles() {
+    int count = 50_000;
+    List<Integer> amounts = new ArrayList<>();
+    for (int i = 1; i <= count; i++) {
+      amounts.add(i);
+    }
+    Collections.shuffle(amounts, new Random(42));
+    for (int amount : amounts) {
+      financeService.addExpense(user, TEST_CATEGORY, amount);
+    }
+    financeService.addExpense(user, TEST_STRING, TEST_EXPENSE);
+
+    // ошибка ранга эскиза - доли процента истории
+    double tolerance = count * 0.01;
+    assertEquals(count / 2.0, financeService.getMedianExpense(user, TEST_CATEGORY), tolerance);
+    assertEquals(
+        count * 0.95, financeService.getExpenseQuantile(user, TEST_CATEGORY, 0.95), tolerance);
+    assertEquals(1, financeService.getExpenseQuantile(user, TEST_CATEGORY, 0));
+    assertEquals(count, financeService.getExpenseQuantile(user, TEST_CATEGORY, 1));
+    assertEquals(count / 2.0, financeService.getExpenseQuantile(user, 0.5), tolerance);
+    assertEquals(TEST_EXPENSE, financeService.getMedianExpense(user, TEST_STRING));
+    assertEquals(0, financeService.getIncomeQuantile(user, TEST_CATEGORY, 0.5));
+
+    List<Double> largest = financeService.getLargestExpenses(user, TEST_CATEGORY);
+    assertEquals(TopAmounts.DEFAULT_CAPACITY, largest.size());
+    assertEquals(count, largest.get(0));
+    assertEquals(count - TopAmounts.DEFAULT_CAPACITY + 1, largest.get(largest.size() - 1));
+    assertTrue(financeService.getLargestExpenses(user, "нет такой").isEmpty());
+
+    // память эскизов не зависит от размера истории
+    assertTrue(user.getWallet().getSketches().getRetained() < 10 * QuantileSketch.DEFAULT_K);
+    assertThrows(
+        InvalidCredentialsException.class,
+        () -> financeService.getExpenseQuantile(user, TEST_CATEGORY, 1.5));
+  }
+
+  @Test
+  @DisplayName("Постраничный обход по токену должен выдавать каждую подходящую транзакцию один раз")
+  void testTransactionPagination() {
+    TransactionStore store = user.getWallet().getTransactionStore();
+    LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+    int count = 1000;
+    for (int i = 0; i < count; i++) {
+      // часть транзакций добавлена «задним числом» и с одинаковым временем
+      store.add(null, start.plusMinutes(i * 37L % 500), i + 1, TEST_CATEGORY, i % 3 == 0);
+    }
+    StatisticsQuery query =
+        StatisticsQuery.create()
+            .withType(false)
+            .withPeriod(start.plusMinutes(50), start.plusMinutes(450));
+    List<Double> expected = new ArrayList<>();
+    for (int position = 0; position < store.size(); position++) {
+      int row = store.rowAtTime(position);
+      if (query.matches(store, row)) {
+        expected.add(store.getAmount(row));
+      }
+    }
+
+    for (TransactionCursor.Order order : TransactionCursor.Order.values()) {
+      List<Double> amounts = new ArrayList<>();
+      String token = null;
+      do {
+        TransactionPage page = financeService.getTransactionPage(user, query, order, 37, token);
+        assertTrue(page.getTransactions().size() <= 37);
+        page.getTransactions().forEach(transaction -> amounts.add(transaction.getAmount()));
+        token = page.getNextToken();
+      } while (token != null);
+
+      List<Double> ordered = new ArrayList<>(expected);
+      if (order == TransactionCursor.Order.NEWEST_FIRST) {
+        Collections.reverse(ordered);
+      }
+      assertEquals(ordered, amounts);
+    }
+
+    // транзакция «задним числом» после выданной страницы попадает в продолжение, повторов нет
+    TransactionPage first =
+        financeService.getTransactionPage(
+            user, query, TransactionCursor.Order.OLDEST_FIRST, 100, null);
+    store.add(null, start.plusMinutes(449), -1, TEST_CATEGORY, false);
+    store.add(null, start.plusMinutes(50), -2, TEST_CATEGORY, false);
+    TransactionPage rest =
+        financeService.getTransactionPage(
+            user, query, TransactionCursor.Order.OLDEST_FIRST, count, first.getNextToken());
+    assertFalse(rest.hasNext());
+    assertEquals(expected.size() - 100 + 1, rest.getTransactions().size());
+    assertTrue(
+        rest.getTransactions().stream().anyMatch(transaction -> transaction.getAmount() == -1));
+    assertTrue(
+        rest.getTransactions().stream().noneMatch(transaction -> transaction.getAmount() == -2));
+
+    assertThrows(
+        InvalidCredentialsException.class,
+        () ->
+            financeService.getTransactionPage(
+                user, query, TransactionCursor.Order.NEWEST_FIRST, 10, first.getNextToken()));
+    assertThrows(
+        InvalidCredentialsException.class,
+        () ->
+            financeService.getTransactionPage(
+                user, query, TransactionCursor.Order.OLDEST_FIRST, 10, "не токен"));
+  }
+
+  private LocalDateTime date(int day) {
+    return LocalDateTime.of(2025, 1, day, 0, 0);
+  }
 }
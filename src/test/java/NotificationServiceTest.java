@@ -0,0 +1,366 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import oop.finance.exception.InvalidCredentialsException;
+import oop.finance.model.Notification;
+import oop.finance.model.NotificationRule;
+import oop.finance.model.NotificationRule.Comparison;
+import oop.finance.model.NotificationRule.Metric;
+import oop.finance.model.User;
+import oop.finance.service.BudgetService;
+import oop.finance.service.FinanceService;
+import oop.finance.service.NotificationService;
+import oop.finance.service.notification.NotificationDispatcher;
+import oop.finance.service.notification.NotificationSink;
+import oop.finance.service.notification.SocketNotificationSink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class NotificationServiceTest {
+  private NotificationService notificationService;
+  private FinanceService financeService;
+  private BudgetService budgetService;
+  private User user;
+  private final String FOOD = "Еда";
+  private final String SALARY = "Зарплата";
+
+  @BeforeEach
+  void setUp() {
+    notificationService = new NotificationService();
+    financeService = new FinanceService();
+    budgetService = new BudgetService();
+    user = new User("testUser", "password");
+  }
+
+  @Test
+  @DisplayName("Уведомление должно появляться один раз при пересечении порога бюджета")
+  void testBudgetThresholdCrossing() {
+    financeService.addIncome(user, SALARY, 10000);
+    budgetService.setBudget(user, FOOD, 1000);
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+
+    financeService.addExpense(user, FOOD, 500);
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+
+    financeService.addExpense(user, FOOD, 350);
+    List<String> notifications = notificationService.pollNotifications(user);
+    assertEquals(
+        List.of("Бюджет категории Еда использован на 85,0% (осталось: 150,00)"),
+        localize(notifications));
+    // повторная проверка без изменений и расход внутри того же уровня уведомлений не дают
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+    financeService.addExpense(user, FOOD, 50);
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+
+    financeService.addExpense(user, FOOD, 200);
+    notifications = notificationService.pollNotifications(user);
+    assertEquals(1, notifications.size());
+    assertTrue(notifications.get(0).startsWith("Превышен бюджет категории Еда!"));
+
+    // после увеличения лимита порог можно пересечь снова
+    budgetService.updateBudget(user, FOOD, 5000);
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+    budgetService.updateBudget(user, FOOD, 1000);
+    notifications = notificationService.pollNotifications(user);
+    assertEquals(1, notifications.size());
+    assertTrue(notifications.get(0).startsWith("Превышен бюджет категории Еда!"));
+  }
+
+  @Test
+  @DisplayName("Уведомления о балансе должны срабатывать только при смене состояния")
+  void testBalanceTransitions() {
+    assertEquals(List.of("Ваш баланс равен нулю"), notificationService.pollNotifications(user));
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+
+    financeService.addIncome(user, SALARY, 1000);
+    financeService.addExpense(user, FOOD, 950);
+    List<String> notifications = notificationService.pollNotifications(user);
+    assertEquals(1, notifications.size());
+    assertTrue(notifications.get(0).startsWith("Низкий баланс"));
+
+    financeService.addExpense(user, FOOD, 100);
+    notifications = notificationService.pollNotifications(user);
+    assertEquals(2, notifications.size());
+    assertTrue(notifications.get(0).startsWith("Отрицательный баланс"));
+    assertTrue(notifications.get(1).startsWith("Расходы превышают доходы"));
+
+    financeService.addExpense(user, FOOD, 10);
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+  }
+
+  @Test
+  @DisplayName("Собственные правила пользователя должны срабатывать при пересечении порогов")
+  void testCustomRules() {
+    List<NotificationRule> rules = new ArrayList<>();
+    // много правил по другим категориям не должны влиять на результат
+    for (int i = 0; i < 300; i++) {
+      rules.add(
+          new NotificationRule(
+              "velocity" + i,
+              Metric.CATEGORY_VELOCITY,
+              Comparison.AT_LEAST,
+              i,
+              "Категория " + i,
+              7,
+              "Расходы %1$s: %2$.2f"));
+    }
+    rules.add(
+        new NotificationRule(
+            "large",
+            Metric.EXPENSE_AMOUNT,
+            Comparison.AT_LEAST,
+            1000,
+            "Крупный расход (%1$s): %2$.0f"));
+    rules.add(
+        new NotificationRule(
+            "food:velocity",
+            Metric.CATEGORY_VELOCITY,
+            Comparison.ABOVE,
+            500,
+            FOOD,
+            7,
+            "Расходы на %1$s за неделю: %2$.0f"));
+    notificationService.setRules(user.getLogin(), rules);
+    assertEquals(rules, notificationService.getRules(user.getLogin()));
+
+    financeService.addIncome(user, SALARY, 100000);
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+
+    financeService.addExpense(user, FOOD, 300);
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+    financeService.addExpense(user, FOOD, 300);
+    assertEquals(
+        List.of("Расходы на Еда за неделю: 600"), notificationService.pollNotifications(user));
+    financeService.addExpense(user, FOOD, 100);
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+
+    // правило крупного расхода срабатывает на каждую подходящую транзакцию
+    financeService.addExpense(user, "Такси", 1500);
+    financeService.addExpense(user, "Такси", 2000);
+    assertEquals(
+        List.of("Крупный расход (Такси): 1500", "Крупный расход (Такси): 2000"),
+        notificationService.pollNotifications(user));
+
+    assertThrows(
+        InvalidCredentialsException.class,
+        () ->
+            notificationService.setRules(
+                user.getLogin(),
+                List.of(
+                    new NotificationRule(
+                        "broken", Metric.BALANCE, Comparison.BELOW, 0, "Баланс %7$d"))));
+  }
+
+  @Test
+  @DisplayName("Диспетчер должен доставлять уведомления пакетами, объединяя повторные")
+  void testDispatcherCoalescesRepeatedNotifications() {
+    RecordingSink sink = new RecordingSink();
+    NotificationDispatcher dispatcher =
+        new NotificationDispatcher(
+            List.of(sink), 100, NotificationDispatcher.Backpressure.DROP_NEWEST, 60_000, 10);
+    NotificationService service = new NotificationService(dispatcher);
+    financeService.addIncome(user, SALARY, 10000);
+    budgetService.setBudget(user, FOOD, 1000);
+    assertTrue(service.pollNotifications(user).isEmpty());
+
+    // бюджет трижды пересекает порог в пределах окна объединения
+    financeService.addExpense(user, FOOD, 900);
+    for (int i = 0; i < 2; i++) {
+      budgetService.updateBudget(user, FOOD, 5000);
+      budgetService.updateBudget(user, FOOD, 1000);
+    }
+    financeService.addExpense(user, FOOD, 200);
+    assertTrue(service.pollNotifications(user).isEmpty());
+    dispatcher.close();
+
+    List<String> keys = new ArrayList<>();
+    for (List<Notification> batch : sink.batches) {
+      assertTrue(batch.size() <= 10);
+      batch.forEach(notification -> keys.add(notification.getKey()));
+    }
+    assertEquals(List.of("budget:WARNING:Еда", "budget:EXCEEDED:Еда"), keys);
+    assertEquals(2, dispatcher.getCoalesced());
+  }
+
+  @Test
+  @DisplayName("Уведомления об отдельных транзакциях не должны объединяться")
+  void testDispatcherKeepsTransactionNotifications() {
+    RecordingSink sink = new RecordingSink();
+    NotificationDispatcher dispatcher =
+        new NotificationDispatcher(
+            List.of(sink), 100, NotificationDispatcher.Backpressure.DROP_NEWEST, 60_000, 10);
+    NotificationService service = new NotificationService(dispatcher);
+    service.setRules(
+        user.getLogin(),
+        List.of(
+            new NotificationRule(
+                "large", Metric.EXPENSE_AMOUNT, Comparison.AT_LEAST, 1000, "Крупный расход")));
+    financeService.addIncome(user, SALARY, 100000);
+    service.pollNotifications(user);
+
+    for (int i = 0; i < 3; i++) {
+      financeService.addExpense(user, "Такси", 1500);
+    }
+    dispatcher.close();
+
+    List<Notification> delivered = new ArrayList<>();
+    sink.batches.forEach(delivered::addAll);
+    assertEquals(3, delivered.size());
+    assertEquals(0, dispatcher.getCoalesced());
+  }
+
+  @Test
+  @DisplayName("Запись в зависший сервис оповещений должна прерываться по сроку с переподключением")
+  void testSocketSinkWriteDeadline() throws IOException {
+    try (ServerSocket server = new ServerSocket(0)) {
+      // сервис принимает соединения, но ничего не читает
+      List<Socket> accepted = new CopyOnWriteArrayList<>();
+      Thread acceptor =
+          new Thread(
+              () -> {
+                try {
+                  while (true) {
+                    accepted.add(server.accept());
+                  }
+                } catch (IOException error) {
+                  // сервер закрыт
+                }
+              });
+      acceptor.setDaemon(true);
+      acceptor.start();
+
+      SocketNotificationSink sink = new SocketNotificationSink("localhost", server.getLocalPort());
+      String message = "x".repeat(1 << 20);
+      List<Notification> batch = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        batch.add(new Notification(user.getLogin(), "key" + i, message));
+      }
+      long start = System.nanoTime();
+      assertThrows(IOException.class, () -> sink.write(batch));
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      sink.close();
+
+      assertTrue(elapsedMillis < 4 * SocketNotificationSink.WRITE_TIMEOUT_MILLIS);
+      assertEquals(2, accepted.size());
+      for (Socket socket : accepted) {
+        socket.close();
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Медленный получатель не должен блокировать изменения кошелька")
+  void testDispatcherBackpressure() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    RecordingSink slow = new RecordingSink(release);
+    NotificationDispatcher dispatcher =
+        new NotificationDispatcher(
+            List.of(slow), 4, NotificationDispatcher.Backpressure.DROP_OLDEST, 0, 1);
+    NotificationService service = new NotificationService(dispatcher);
+    service.pollNotifications(user);
+    assertTrue(slow.started.await(5, TimeUnit.SECONDS));
+
+    // получатель занят первым уведомлением, очередь вмещает только 4 следующих
+    for (int i = 0; i < 20; i++) {
+      budgetService.setBudget(user, "Категория " + i, 1);
+      financeService.addExpense(user, "Категория " + i, 2);
+    }
+    assertTrue(dispatcher.getDropped() > 0);
+    release.countDown();
+    dispatcher.close();
+
+    List<Notification> delivered = new ArrayList<>();
+    slow.batches.forEach(delivered::addAll);
+    assertEquals(5, delivered.size());
+    // при вытеснении старых уведомлений последнее превышение бюджета доставлено
+    assertEquals(
+        "budget:EXCEEDED:Категория 19",
+        delivered.stream()
+            .filter(notification -> notification.getKey().startsWith("budget"))
+            .reduce((first, second) -> second)
+            .orElseThrow()
+            .getKey());
+  }
+
+  /** Получатель, запоминающий пакеты; может ждать разрешения перед первой записью */
+  private static class RecordingSink implements NotificationSink {
+    private final List<List<Notification>> batches = new ArrayList<>();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release;
+
+    RecordingSink() {
+      this(new CountDownLatch(0));
+    }
+
+    RecordingSink(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public String getName() {
+      return "recording";
+    }
+
+    @Override
+    public void write(List<Notification> batch) {
+      started.countDown();
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException error) {
+        Thread.currentThread().interrupt();
+      }
+      batches.add(new ArrayList<>(batch));
+    }
+  }
+
+  // Приводит десятичный разделитель к запятой независимо от локали
+  @Test
+  @DisplayName(
+      "Предупреждение о бюджете должно действовать от 80% до 100%, превышение - после 100%")
+  void testBudgetUsageEdges() {
+    financeService.addIncome(user, SALARY, 10000);
+    budgetService.setBudget(user, FOOD, 1000);
+    String other = "Транспорт";
+    budgetService.setBudget(user, other, 1000);
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+
+    // ровно 80%
+    financeService.addExpense(user, FOOD, 800);
+    assertEquals(
+        List.of("Бюджет категории Еда использован на 80,0% (осталось: 200,00)"),
+        localize(notificationService.pollNotifications(user)));
+    // ровно 100% - ни предупреждения, ни превышения
+    financeService.addExpense(user, FOOD, 200);
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+    financeService.addExpense(user, FOOD, 1);
+    List<String> notifications = notificationService.pollNotifications(user);
+    assertEquals(1, notifications.size());
+    assertTrue(notifications.get(0).startsWith("Превышен бюджет категории Еда!"));
+
+    // переход сразу к 100% не дает предупреждения
+    financeService.addExpense(user, other, 1000);
+    assertTrue(notificationService.pollNotifications(user).isEmpty());
+    financeService.addExpense(user, other, 1);
+    notifications = notificationService.pollNotifications(user);
+    assertEquals(1, notifications.size());
+    assertTrue(notifications.get(0).startsWith("Превышен бюджет категории Транспорт!"));
+
+    assertThrows(
+        InvalidCredentialsException.class,
+        () ->
+            new NotificationRule(
+                "bad", Metric.BUDGET_USAGE, Comparison.BELOW, 50, 100, "Ниже %2$.1f"));
+  }
+
+  private List<String> localize(List<String> notifications) {
+    return notifications.stream().map(text -> text.replace('.', ',')).toList();
+  }
+}
@@ -0,0 +1,426 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.List;
+import oop.finance.model.Budget;
+import oop.finance.model.BudgetPeriod;
+import oop.finance.model.CategoryDictionary;
+import oop.finance.model.Transaction;
+import oop.finance.model.TransactionStore;
+import oop.finance.model.User;
+import oop.finance.repository.UserRepository;
+import oop.finance.repository.storage.BackgroundPersister;
+import oop.finance.repository.storage.ShardedUserStorage;
+import oop.finance.repository.storage.SnapshotUserStorage;
+import oop.finance.repository.storage.WriteBatch;
+import oop.finance.repository.storage.format.BinarySnapshotFormat;
+import oop.finance.repository.storage.format.JsonSnapshotFormat;
+import oop.finance.repository.storage.format.SnapshotConverter;
+import oop.finance.utils.JsonUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UserRepositoryTest {
+  @TempDir Path tempDir;
+  private String filePath;
+  private final String TEST_STRING = "test";
+  private final String TEST_CATEGORY = "Еда";
+  private final double TEST_AMOUNT = 1000.0;
+  private final double TEST_EXPENSE = 300.0;
+
+  @BeforeEach
+  void setUp() {
+    filePath = tempDir.resolve("users.json").toString();
+  }
+
+  @Test
+  @DisplayName("Изменения после сохранения должны восстанавливаться из журнала")
+  void testJournalReplay() {
+    UserRepository repository = new UserRepository(filePath);
+    User user = new User(TEST_STRING, TEST_STRING);
+    repository.add(user);
+    user.getWallet().setBudget(new Budget(TEST_CATEGORY, TEST_AMOUNT));
+    user.getWallet().addTransaction(new Transaction(TEST_AMOUNT, TEST_STRING, true));
+    user.getWallet().addTransaction(new Transaction(TEST_EXPENSE, TEST_CATEGORY, false));
+    repository.saveAll();
+
+    assertFalse(Files.exists(Path.of(filePath)));
+    assertTrue(Files.exists(Path.of(filePath + ".journal")));
+
+    User restored = new UserRepository(filePath).findByLogin(TEST_STRING);
+    assertNotNull(restored);
+    assertEquals(TEST_AMOUNT - TEST_EXPENSE, restored.getWallet().getBalance());
+    assertEquals(2, restored.getWallet().getTransactions().size());
+    assertEquals(TEST_EXPENSE, restored.getWallet().getBudget(TEST_CATEGORY).getSpent());
+  }
+
+  @Test
+  @DisplayName("Свертка журнала должна переносить данные в снимок и очищать журнал")
+  void testCompaction() {
+    UserRepository repository = new UserRepository(new SnapshotUserStorage(filePath, 2));
+    User user = new User(TEST_STRING, TEST_STRING);
+    repository.add(user);
+    user.getWallet().addTransaction(new Transaction(TEST_AMOUNT, TEST_STRING, true));
+    repository.saveAll();
+
+    assertTrue(Files.exists(Path.of(filePath)));
+    assertFalse(Files.exists(Path.of(filePath + ".journal")));
+
+    User restored = new UserRepository(filePath).findByLogin(TEST_STRING);
+    assertEquals(TEST_AMOUNT, restored.getWallet().getBalance());
+    assertEquals(1, restored.getWallet().getTransactions().size());
+  }
+
+  @Test
+  @DisplayName("Снимок при свертке должен сериализоваться при записи пакета, а не при сохранении")
+  void testCompactionSerializesOnCommit() throws Exception {
+    SnapshotUserStorage storage = new SnapshotUserStorage(filePath, 2);
+    UserRepository repository = new UserRepository(storage);
+    User user = new User(TEST_STRING, TEST_STRING);
+    repository.add(user);
+    user.getWallet().addTransaction(new Transaction(TEST_AMOUNT, TEST_STRING, true));
+    WriteBatch compaction = storage.prepareSave(List.of(user));
+    assertFalse(Files.exists(Path.of(filePath)));
+
+    // изменение после подготовки свертки попадает и в снимок, и в журнал
+    user.getWallet().addTransaction(new Transaction(TEST_EXPENSE, TEST_CATEGORY, false));
+    compaction.merge(storage.prepareSave(List.of(user)));
+    compaction.commit();
+
+    assertEquals(
+        2,
+        new JsonSnapshotFormat()
+            .read(Path.of(filePath))
+            .get(TEST_STRING)
+            .getWallet()
+            .getTransactions()
+            .size());
+    User restored = new UserRepository(filePath).findByLogin(TEST_STRING);
+    assertEquals(2, restored.getWallet().getTransactions().size());
+    assertEquals(TEST_AMOUNT - TEST_EXPENSE, restored.getWallet().getBalance());
+  }
+
+  @Test
+  @DisplayName("Записи, дописанные в журнал после оборванной записи, не должны теряться")
+  void testTornJournalRecord() throws Exception {
+    UserRepository repository = new UserRepository(filePath);
+    User user = new User(TEST_STRING, TEST_STRING);
+    repository.add(user);
+    user.getWallet().addTransaction(new Transaction(TEST_AMOUNT, TEST_STRING, true));
+    repository.saveAll();
+    // имитация сбоя посреди дописывания записи
+    Path journal = Path.of(filePath + ".journal");
+    Files.write(journal, "{\"login\":\"tes".getBytes(), StandardOpenOption.APPEND);
+
+    UserRepository resumed = new UserRepository(filePath);
+    User loaded = resumed.findByLogin(TEST_STRING);
+    assertEquals(TEST_AMOUNT, loaded.getWallet().getBalance());
+    loaded.getWallet().addTransaction(new Transaction(TEST_EXPENSE, TEST_CATEGORY, false));
+    resumed.saveAll();
+
+    User restored = new UserRepository(filePath).findByLogin(TEST_STRING);
+    assertEquals(TEST_AMOUNT - TEST_EXPENSE, restored.getWallet().getBalance());
+    assertEquals(2, restored.getWallet().getTransactions().size());
+  }
+
+  @Test
+  @DisplayName("Записи журнала, уже учтенные в снимке, не должны применяться повторно")
+  void testReplayIsIdempotent() throws Exception {
+    SnapshotUserStorage storage = new SnapshotUserStorage(filePath);
+    UserRepository repository = new UserRepository(storage);
+    User user = new User(TEST_STRING, TEST_STRING);
+    repository.add(user);
+    user.getWallet().addTransaction(new Transaction(TEST_AMOUNT, TEST_STRING, true));
+    repository.saveAll();
+    // имитация сбоя между записью снимка и очисткой журнала
+    Path journal = Path.of(filePath + ".journal");
+    byte[] journalContent = Files.readAllBytes(journal);
+    storage.compact();
+    Files.write(journal, journalContent);
+
+    User restored = new UserRepository(filePath).findByLogin(TEST_STRING);
+    assertEquals(TEST_AMOUNT, restored.getWallet().getBalance());
+    assertEquals(1, restored.getWallet().getTransactions().size());
+  }
+
+  @Test
+  @DisplayName("Посегментное хранилище должно загружать пользователей по требованию")
+  void testShardedLazyLoading() {
+    String directory = tempDir.resolve("shards").toString();
+    UserRepository repository = new UserRepository(new ShardedUserStorage(directory, filePath));
+    User user = new User(TEST_STRING, TEST_STRING);
+    repository.add(user);
+    repository.add(new User(TEST_CATEGORY, TEST_CATEGORY));
+    user.getWallet().addTransaction(new Transaction(TEST_AMOUNT, TEST_STRING, true));
+    repository.saveAll();
+
+    assertTrue(Files.exists(Path.of(directory, "index.json")));
+    assertTrue(Files.exists(Path.of(directory, user.getId() + ".json")));
+
+    UserRepository reopened = new UserRepository(new ShardedUserStorage(directory, filePath));
+    assertTrue(reopened.existsByLogin(TEST_CATEGORY));
+    assertFalse(reopened.existsByLogin(TEST_STRING + TEST_STRING));
+    assertEquals(TEST_AMOUNT, reopened.findByLogin(TEST_STRING).getWallet().getBalance());
+    assertEquals(2, reopened.list().size());
+  }
+
+  @Test
+  @DisplayName("Посегментное хранилище должно перезаписывать только изменившиеся сегменты")
+  void testShardedSavesOnlyChangedUsers() throws Exception {
+    String directory = tempDir.resolve("shards").toString();
+    UserRepository repository = new UserRepository(new ShardedUserStorage(directory, filePath));
+    User user = new User(TEST_STRING, TEST_STRING);
+    User other = new User(TEST_CATEGORY, TEST_CATEGORY);
+    repository.add(user);
+    repository.add(other);
+    repository.saveAll();
+
+    Path otherShard = Path.of(directory, other.getId() + ".json");
+    FileTime otherModified = FileTime.fromMillis(0);
+    Files.setLastModifiedTime(otherShard, otherModified);
+    user.getWallet().addTransaction(new Transaction(TEST_AMOUNT, TEST_STRING, true));
+    repository.saveAll();
+
+    assertEquals(otherModified, Files.getLastModifiedTime(otherShard));
+    assertNotEquals(
+        otherModified, Files.getLastModifiedTime(Path.of(directory, user.getId() + ".json")));
+  }
+
+  @Test
+  @DisplayName("Посегментное хранилище должно переносить данные из снимка JSON при первом запуске")
+  void testShardedImportsLegacySnapshot() {
+    UserRepository legacy = new UserRepository(filePath);
+    User user = new User(TEST_STRING, TEST_STRING);
+    legacy.add(user);
+    user.getWallet().addTransaction(new Transaction(TEST_AMOUNT, TEST_STRING, true));
+    legacy.saveAll();
+
+    String directory = tempDir.resolve("shards").toString();
+    UserRepository repository = new UserRepository(new ShardedUserStorage(directory, filePath));
+    assertEquals(TEST_AMOUNT, repository.findByLogin(TEST_STRING).getWallet().getBalance());
+  }
+
+  @Test
+  @DisplayName("Фоновая запись должна объединять сохранения и дописывать их при закрытии")
+  void testBackgroundPersistence() {
+    BackgroundPersister persister = new BackgroundPersister(60_000, 60_000);
+    UserRepository repository = new UserRepository(new SnapshotUserStorage(filePath), persister);
+    User user = new User(TEST_STRING, TEST_STRING);
+    repository.add(user);
+    repository.saveAll();
+    user.getWallet().addTransaction(new Transaction(TEST_AMOUNT, TEST_STRING, true));
+    repository.saveAll();
+
+    assertFalse(Files.exists(Path.of(filePath + ".journal")));
+
+    persister.close();
+    User restored = new UserRepository(filePath).findByLogin(TEST_STRING);
+    assertEquals(TEST_AMOUNT, restored.getWallet().getBalance());
+  }
+
+  @Test
+  @DisplayName("Двоичный снимок должен сохранять и восстанавливать пользователей")
+  void testBinarySnapshot() {
+    String binaryPath = tempDir.resolve("users.bin").toString();
+    UserRepository repository =
+        new UserRepository(new SnapshotUserStorage(binaryPath, new BinarySnapshotFormat(), 1));
+    User user = new User(TEST_STRING, TEST_STRING);
+    repository.add(user);
+    user.getWallet().setBudget(new Budget(TEST_CATEGORY, TEST_AMOUNT));
+    user.getWallet().addTransaction(new Transaction(TEST_AMOUNT, TEST_STRING, true));
+    user.getWallet().addTransaction(new Transaction(TEST_EXPENSE, TEST_CATEGORY, false));
+    repository.saveAll();
+
+    assertFalse(Files.exists(Path.of(binaryPath + ".journal")));
+
+    User restored =
+        new UserRepository(new SnapshotUserStorage(binaryPath, new BinarySnapshotFormat(), 1))
+            .findByLogin(TEST_STRING);
+    assertEquals(user.getId(), restored.getId());
+    assertEquals(TEST_AMOUNT - TEST_EXPENSE, restored.getWallet().getBalance());
+    assertEquals(
+        user.getWallet().getTransactions().get(1).getId(),
+        restored.getWallet().getTransactions().get(1).getId());
+    assertFalse(restored.getWallet().getTransactions().get(1).isIncome());
+    assertEquals(TEST_EXPENSE, restored.getWallet().getBudget(TEST_CATEGORY).getSpent());
+  }
+
+  @Test
+  @DisplayName("Транзакция без даты должна восстанавливаться из двоичного снимка без даты")
+  void testBinarySnapshotKeepsMissingDate() {
+    String binaryPath = tempDir.resolve("users.bin").toString();
+    UserRepository repository =
+        new UserRepository(new SnapshotUserStorage(binaryPath, new BinarySnapshotFormat(), 1));
+    User user = new User(TEST_STRING, TEST_STRING);
+    repository.add(user);
+    String uuid = "123e4567-e89b-12d3-a456-426614174000";
+    user.getWallet().addTransaction(new Transaction(uuid, null, TEST_AMOUNT, TEST_STRING, true));
+    user.getWallet()
+        .addTransaction(new Transaction(TEST_STRING, null, TEST_EXPENSE, TEST_CATEGORY, false));
+    repository.saveAll();
+
+    User restored =
+        new UserRepository(new SnapshotUserStorage(binaryPath, new BinarySnapshotFormat(), 1))
+            .findByLogin(TEST_STRING);
+    assertEquals(2, restored.getWallet().getTransactions().size());
+    for (Transaction transaction : restored.getWallet().getTransactions()) {
+      assertNull(transaction.getCreatedAt());
+    }
+    assertEquals(uuid, restored.getWallet().getTransactions().get(0).getId());
+  }
+
+  @Test
+  @DisplayName("Конвертер должен переносить данные из JSON в двоичный формат и обратно")
+  void testSnapshotConverter() throws Exception {
+    UserRepository repository = new UserRepository(filePath);
+    User user = new User(TEST_STRING, TEST_STRING);
+    repository.add(user);
+    user.getWallet().addTransaction(new Transaction(TEST_AMOUNT, TEST_CATEGORY, true));
+    repository.saveAll();
+
+    String binaryPath = tempDir.resolve("users.bin").toString();
+    String jsonPath = tempDir.resolve("converted.json").toString();
+    assertEquals(1, SnapshotConverter.jsonToBinary(filePath, binaryPath));
+    assertEquals(1, SnapshotConverter.binaryToJson(binaryPath, jsonPath));
+
+    User restored = new UserRepository(jsonPath).findByLogin(TEST_STRING);
+    assertEquals(TEST_AMOUNT, restored.getWallet().getBalance());
+    assertEquals(TEST_CATEGORY, restored.getWallet().getTransactions().get(0).getCategory());
+  }
+
+  @Test
+  @DisplayName("Словарь категорий должен сохраняться рядом с данными пользователей")
+  void testCategoryDictionaryPersisted() throws Exception {
+    UserRepository repository = new UserRepository(filePath);
+    User user = new User(TEST_STRING, TEST_STRING);
+    repository.add(user);
+    user.getWallet().addTransaction(new Transaction(TEST_EXPENSE, TEST_CATEGORY, false));
+    repository.saveAll();
+
+    Path categoriesPath = Path.of(filePath + ".categories");
+    assertTrue(Files.exists(categoriesPath));
+    assertTrue(Files.readString(categoriesPath).contains(TEST_CATEGORY));
+
+    int categoryId = CategoryDictionary.global().find(TEST_CATEGORY);
+    User restored = new UserRepository(filePath).findByLogin(TEST_STRING);
+    TransactionStore store = restored.getWallet().getTransactionStore();
+    assertEquals(categoryId, store.globalCategoryId(store.getCategoryId(0)));
+  }
+
+  @Test
+  @DisplayName("Потоковые адаптеры должны читать и писать прежний формат JSON")
+  void testAdaptersKeepJsonFormat() {
+    // так пользователя сериализовала рефлексия Gson до появления адаптеров
+    String legacyJson =
+        "{\"login\":\"test\",\"password\":\"test\",\"wallet\":{\"balance\":-300.0,"
+            + "\"transactions\":[{\"category\":\"Еда\",\"amount\":300.0,\"isIncome\":false,"
+            + "\"id\":\"3e39e7d9-a2f6-4d4d-b31a-f01107cea1d0\","
+            + "\"createdAt\":\"2026-10-18T17:13:00.215778916\"}],"
+            + "\"budgets\":{\"Еда\":{\"category\":\"Еда\",\"limit\":1000.0,\"spent\":300.0,"
+            + "\"id\":\"6547ec0e-cbd4-4605-94b0-2c1773a68e6a\",\"createdAt\":\"2026-10-18T17:13:00\"}},"
+            + "\"version\":2,\"id\":\"e3d0ca7c-e07a-45af-8cc7-2f979bbefe99\","
+            + "\"createdAt\":\"2026-10-18T17:13:00.2157\"},"
+            + "\"id\":\"e3d0ca7c-e07a-45af-8cc7-2f979bbefe99\",\"createdAt\":\"2026-10-18T17:13:00.21571197\"}";
+    JsonUtils jsonUtils = new JsonUtils();
+
+    User restored = jsonUtils.fromJsonLine(legacyJson, User.class);
+    assertEquals(2, restored.getWallet().getVersion());
+    assertEquals(
+        LocalDateTime.of(2026, 10, 18, 17, 13, 0, 215778916),
+        restored.getWallet().getTransactions().get(0).getCreatedAt());
+    assertEquals(TEST_EXPENSE, restored.getWallet().getBudget(TEST_CATEGORY).getSpent());
+    // эскизы кошелька без них строятся по истории и дописываются отдельным полем
+    assertEquals(
+        TEST_EXPENSE, restored.getWallet().getSketches().quantile(TEST_CATEGORY, false, 0.5));
+    JsonObject written = JsonParser.parseString(jsonUtils.toJson(restored)).getAsJsonObject();
+    assertNotNull(written.getAsJsonObject("wallet").remove("sketches"));
+    assertEquals(JsonParser.parseString(legacyJson), written);
+  }
+
+  @Test
+  @DisplayName("Эскизы сумм по категориям должны сохраняться в JSON и двоичном снимке")
+  void testSketchesPersisted() {
+    String binaryPath = tempDir.resolve("users.bin").toString();
+    UserRepository jsonRepository = new UserRepository(new SnapshotUserStorage(filePath, 1));
+    UserRepository binaryRepository =
+        new UserRepository(new SnapshotUserStorage(binaryPath, new BinarySnapshotFormat(), 1));
+    User user = new User(TEST_STRING, TEST_STRING);
+    jsonRepository.add(user);
+    binaryRepository.add(user);
+    for (int i = 1; i <= 5_000; i++) {
+      user.getWallet().addTransaction(new Transaction(i % 997 + 1, TEST_CATEGORY, false));
+      user.getWallet().addTransaction(new Transaction(i, TEST_STRING, true));
+    }
+    jsonRepository.saveAll();
+    user.getWallet().addTransaction(new Transaction(TEST_EXPENSE, TEST_CATEGORY, false));
+    binaryRepository.saveAll();
+
+    User fromJson =
+        new UserRepository(new SnapshotUserStorage(filePath, 1)).findByLogin(TEST_STRING);
+    User fromBinary =
+        new UserRepository(new SnapshotUserStorage(binaryPath, new BinarySnapshotFormat(), 1))
+            .findByLogin(TEST_STRING);
+    // после сохранения в JSON добавлена еще одна транзакция: эскиз восстановленного кошелька
+    // должен совпасть с эскизом, продолженным той же транзакцией
+    fromJson.getWallet().addTransaction(new Transaction(TEST_EXPENSE, TEST_CATEGORY, false));
+    for (User restored : new User[] {fromJson, fromBinary}) {
+      for (double rank : new double[] {0, 0.5, 0.95, 1}) {
+        assertEquals(
+            user.getWallet().getSketches().quantile(TEST_CATEGORY, false, rank),
+            restored.getWallet().getSketches().quantile(TEST_CATEGORY, false, rank));
+        assertEquals(
+            user.getWallet().getSketches().quantile(TEST_STRING, true, rank),
+            restored.getWallet().getSketches().quantile(TEST_STRING, true, rank));
+      }
+      assertArrayEquals(
+          user.getWallet().getSketches().largestExpenses(TEST_CATEGORY),
+          restored.getWallet().getSketches().largestExpenses(TEST_CATEGORY));
+      assertEquals(
+          user.getWallet().getSketches().getRetained(),
+          restored.getWallet().getSketches().getRetained());
+    }
+  }
+
+  @Test
+  @DisplayName("Период бюджета должен сохраняться в журнале, JSON и двоичном снимке")
+  void testPeriodicBudgetPersisted() {
+    String binaryPath = tempDir.resolve("users.bin").toString();
+    UserRepository jsonRepository = new UserRepository(new SnapshotUserStorage(filePath, 1));
+    UserRepository binaryRepository =
+        new UserRepository(new SnapshotUserStorage(binaryPath, new BinarySnapshotFormat(), 1));
+    User user = new User(TEST_STRING, TEST_STRING);
+    jsonRepository.add(user);
+    binaryRepository.add(user);
+    user.getWallet()
+        .addTransaction(
+            new Transaction(
+                TEST_STRING, LocalDateTime.now().minusDays(40), TEST_AMOUNT, TEST_CATEGORY, false));
+    binaryRepository.saveAll();
+    jsonRepository.saveAll();
+    // бюджет и расход добавлены после первого сохранения
+    user.getWallet().setBudget(new Budget(TEST_CATEGORY, TEST_AMOUNT, BudgetPeriod.week()));
+    user.getWallet().addTransaction(new Transaction(TEST_EXPENSE, TEST_CATEGORY, false));
+    binaryRepository.saveAll();
+    jsonRepository.saveAll();
+
+    User fromJson =
+        new UserRepository(new SnapshotUserStorage(filePath, 1)).findByLogin(TEST_STRING);
+    User fromBinary =
+        new UserRepository(new SnapshotUserStorage(binaryPath, new BinarySnapshotFormat(), 1))
+            .findByLogin(TEST_STRING);
+    for (User restored : new User[] {fromJson, fromBinary}) {
+      Budget budget = restored.getWallet().getBudget(TEST_CATEGORY);
+      assertEquals(BudgetPeriod.week(), budget.getPeriod());
+      assertEquals(TEST_EXPENSE, budget.getSpent());
+      assertEquals(TEST_AMOUNT - TEST_EXPENSE, budget.getRemaining());
+    }
+  }
+}
@@ -1,7 +1,15 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import oop.finance.model.Budget;
+import oop.finance.model.BudgetPeriod;
+import oop.finance.model.CategoryDictionary;
 import oop.finance.model.Transaction;
+import oop.finance.model.TransactionStore;
 import oop.finance.model.User;
 import oop.finance.model.Wallet;
 import org.junit.jupiter.api.BeforeEach;
@@ -54,4 +62,156 @@ class WalletTest {
     assertEquals(TEST_CATEGORY, retrievedBudget.getCategory());
     assertEquals(TEST_MIN_AMOUNT, retrievedBudget.getLimit());
   }
+
+  @Test
+  @DisplayName("Периодический бюджет должен заполняться расходами периода из истории")
+  void testPeriodicBudgetFromHistory() {
+    // фиксированные часы: результат не зависит от времени запуска (полночь, смена периода)
+    Clock clock = Clock.fixed(Instant.parse("2024-03-15T12:00:00Z"), ZoneOffset.UTC);
+    LocalDateTime now = LocalDateTime.now(clock);
+    wallet.addTransaction(
+        new Transaction(TEST_STRING, now.minusDays(10), TEST_AMOUNT, TEST_CATEGORY, false));
+    wallet.addTransaction(
+        new Transaction(TEST_STRING + 1, now.minusDays(3), TEST_MIN_AMOUNT, TEST_CATEGORY, false));
+    wallet.setBudget(new Budget(TEST_CATEGORY, TEST_AMOUNT, BudgetPeriod.rollingDays(7), clock));
+    Budget budget = wallet.getBudget(TEST_CATEGORY);
+    assertEquals(TEST_MIN_AMOUNT, budget.getSpent());
+
+    // расход задним числом попадает в период, только если его день входит в окно
+    wallet.addTransaction(
+        new Transaction(TEST_STRING + 2, now.minusDays(1), TEST_MIN_AMOUNT, TEST_CATEGORY, false));
+    wallet.addTransaction(
+        new Transaction(TEST_STRING + 3, now.minusDays(30), TEST_AMOUNT, TEST_CATEGORY, false));
+    assertEquals(TEST_MIN_AMOUNT * 2, budget.getSpent());
+    assertFalse(budget.isExceeded());
+  }
+
+  @Test
+  @DisplayName("Итоги расходов по категориям должны совпадать с проходом по истории")
+  void testCategoryExpenses() {
+    int categories = 50;
+    for (int i = 0; i < 5000; i++) {
+      wallet.addTransaction(new Transaction(i % 13 + 1, "category" + i % categories, i % 4 == 0));
+    }
+    wallet.addTransaction(new Transaction(TEST_AMOUNT, null, false));
+
+    for (int c = 0; c < categories; c++) {
+      String category = "category" + c;
+      double expected = 0;
+      for (Transaction transaction : wallet.getTransactions()) {
+        if (!transaction.isIncome() && category.equals(transaction.getCategory())) {
+          expected += transaction.getAmount();
+        }
+      }
+      assertEquals(expected, wallet.getExpenses(category), 1e-9);
+    }
+    // расходы без категории не попадают в итог неизвестной категории
+    assertEquals(0, wallet.getExpenses("Неизвестная категория"));
+  }
+
+  @Test
+  @DisplayName("История кошелька должна восстанавливать транзакции из колонок без потерь")
+  void testTransactionStoreViews() {
+    Transaction income = new Transaction(TEST_AMOUNT, TEST_STRING, true);
+    Transaction expense = new Transaction(TEST_MIN_AMOUNT, TEST_CATEGORY, false);
+    wallet.addTransaction(income);
+    wallet.addTransaction(expense);
+
+    Transaction restored = wallet.getTransactions().get(1);
+    assertEquals(expense.getId(), restored.getId());
+    assertEquals(expense.getCreatedAt(), restored.getCreatedAt());
+    assertEquals(TEST_CATEGORY, restored.getCategory());
+    assertFalse(restored.isIncome());
+    assertEquals(TEST_MIN_AMOUNT, wallet.getTransactionStore().sum(false, TEST_CATEGORY));
+    assertEquals(TEST_AMOUNT, wallet.getTransactionStore().sum(true));
+    assertThrows(UnsupportedOperationException.class, () -> wallet.getTransactions().add(income));
+  }
+
+  @Test
+  @DisplayName("Итоги кошелька должны зависеть от его категорий, а не от категорий всех кошельков")
+  void testLocalCategoryIds() {
+    // категории других пользователей (например, переводы с логином) пополняют общий словарь
+    for (int i = 0; i < 10_000; i++) {
+      new User(TEST_STRING + i, TEST_STRING)
+          .getWallet()
+          .addTransaction(new Transaction(TEST_AMOUNT, "Перевод от user" + i, true));
+    }
+    wallet.addTransaction(new Transaction(TEST_AMOUNT, TEST_STRING, true));
+    wallet.addTransaction(new Transaction(TEST_MIN_AMOUNT, TEST_CATEGORY, false));
+    wallet.addTransaction(new Transaction(TEST_MIN_AMOUNT, "Перевод от user9999", true));
+
+    TransactionStore store = wallet.getTransactionStore();
+    assertEquals(3, store.getCategoryBound());
+    assertEquals(TEST_MIN_AMOUNT, store.sum(true, "Перевод от user9999"));
+    assertEquals(
+        CategoryDictionary.global().find(TEST_CATEGORY),
+        store.globalCategoryId(store.categoryIdOf(TEST_CATEGORY)));
+    assertTrue(store.getRollupBytes() < 16_384);
+  }
+
+  @Test
+  @DisplayName("Далекая дата не должна расширять итоги по дням и месяцам всех категорий")
+  void testRollupsWithOutlierDates() {
+    LocalDateTime start = LocalDateTime.of(2024, 1, 15, 12, 0);
+    for (int i = 0; i < 24; i++) {
+      wallet.addTransaction(
+          new Transaction(
+              TEST_STRING + i, start.plusMonths(i), TEST_MIN_AMOUNT, TEST_CATEGORY + i % 5, false));
+    }
+    long compact = wallet.getTransactionStore().getRollupBytes();
+    wallet.addTransaction(
+        new Transaction("outlier", LocalDateTime.of(1970, 1, 1, 0, 0), TEST_AMOUNT, null, false));
+    wallet.addTransaction(
+        new Transaction("clamped", LocalDateTime.of(2262, 4, 1, 0, 0), TEST_AMOUNT, null, false));
+
+    TransactionStore store = wallet.getTransactionStore();
+    assertTrue(store.getRollupBytes() < compact * 2);
+    long from = LocalDate.of(1970, 1, 1).toEpochDay();
+    long to = LocalDate.of(2262, 4, 1).toEpochDay();
+    assertEquals(TEST_MIN_AMOUNT * 24 + TEST_AMOUNT * 2, store.sumDays(false, from, to), 1e-9);
+    assertEquals(TEST_AMOUNT, store.sumDays(false, from, from));
+    assertEquals(
+        TEST_MIN_AMOUNT * 5,
+        store.sumDays(
+            false,
+            store.categoryIdOf(TEST_CATEGORY + 0),
+            LocalDate.of(2024, 1, 15).toEpochDay(),
+            LocalDate.of(2025, 12, 15).toEpochDay()),
+        1e-9);
+    assertEquals(2, store.countDays(false, CategoryDictionary.NO_CATEGORY, from, to));
+
+    // ошибочная дата первой: диапазоном становятся месяцы основной истории
+    TransactionStore outlierFirst = new TransactionStore();
+    outlierFirst.add(
+        new Transaction("outlier", LocalDateTime.of(1970, 1, 1, 0, 0), TEST_AMOUNT, null, false));
+    for (int i = 0; i < 24; i++) {
+      outlierFirst.add(
+          new Transaction(TEST_STRING + i, start.plusMonths(i), TEST_MIN_AMOUNT, null, false));
+    }
+    assertEquals(TEST_MIN_AMOUNT * 24 + TEST_AMOUNT, outlierFirst.sumDays(false, from, to), 1e-9);
+    assertTrue(outlierFirst.getRollupBytes() < compact);
+  }
+
+  @Test
+  @DisplayName("Даты на границах диапазона должны сохраняться точно, а даты за ними отклоняться")
+  void testBoundaryDates() {
+    // Long.MIN_VALUE наносекунд - отметка транзакции без даты, поэтому самая ранняя дата на 1 нс
+    // позже
+    LocalDateTime earliest = LocalDateTime.of(1677, 9, 21, 0, 12, 43, 145_224_193);
+    LocalDateTime latest = LocalDateTime.of(2262, 4, 11, 23, 47, 16, 854_775_807);
+    wallet.addTransaction(new Transaction("earliest", earliest, TEST_AMOUNT, null, true));
+    wallet.addTransaction(new Transaction("latest", latest, TEST_AMOUNT, null, true));
+    assertEquals(earliest, wallet.getTransactions().get(0).getCreatedAt());
+    assertEquals(latest, wallet.getTransactions().get(1).getCreatedAt());
+
+    for (LocalDateTime outside :
+        new LocalDateTime[] {
+          earliest.minusNanos(1), latest.plusNanos(1), LocalDateTime.of(1500, 1, 1, 0, 0)
+        }) {
+      Transaction transaction = new Transaction(TEST_STRING, outside, TEST_AMOUNT, null, true);
+      assertThrows(IllegalArgumentException.class, () -> wallet.addTransaction(transaction));
+    }
+    assertEquals(2, wallet.getTransactions().size());
+    assertEquals(TEST_AMOUNT * 2, wallet.getBalance());
+  }
 }
@@ -0,0 +1,101 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import oop.finance.model.Budget;
+import oop.finance.model.SystemStatistics;
+import oop.finance.model.User;
+import oop.finance.repository.UserRepository;
+import oop.finance.service.AnalyticsService;
+import oop.finance.service.FinanceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Статистика по всем пользователям: прежний способ (копия списка пользователей, карты категорий
+ * FinanceService на каждого пользователя) против AnalyticsService с частичными итогами потоков
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class AnalyticsBenchmark {
+  private static final int TRANSACTIONS_PER_USER = 20;
+  private static final int CATEGORIES = 30;
+  private static final int TOP_SPENDERS = 10;
+
+  @Param({"50000"})
+  public int users;
+
+  private UserRepository repository;
+  private FinanceService financeService;
+  private AnalyticsService analyticsService;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    Path directory = Files.createTempDirectory("analytics-bench");
+    repository = new UserRepository(directory.resolve("data.json").toString());
+    // без кэша: каждый проход считает статистику заново
+    financeService = new FinanceService(Integer.MAX_VALUE, 0);
+    analyticsService = new AnalyticsService(repository, 1);
+    for (int i = 0; i < users; i++) {
+      User user = new User("user" + i, "password");
+      repository.add(user);
+      financeService.addIncome(user, "Зарплата", 1000);
+      for (int j = 0; j < TRANSACTIONS_PER_USER; j++) {
+        financeService.addExpense(user, "category" + (i + j) % CATEGORIES, j + 1);
+      }
+      user.getWallet().setBudget(new Budget("category" + i % CATEGORIES, i % 100 + 1));
+    }
+  }
+
+  @Benchmark
+  public Map<String, Double> perUserMaps() {
+    Map<String, Double> expenses = new HashMap<>();
+    Map<String, Double> income = new HashMap<>();
+    Map<String, Double> spenders = new HashMap<>();
+    int overBudget = 0;
+    for (User user : repository.list()) {
+      financeService
+          .getExpensesByCategory(user)
+          .forEach((key, value) -> expenses.merge(key, value, Double::sum));
+      financeService
+          .getIncomeByCategory(user)
+          .forEach((key, value) -> income.merge(key, value, Double::sum));
+      spenders.put(user.getLogin(), financeService.getTotalExpense(user));
+      for (Budget budget : user.getWallet().getBudgetsList()) {
+        if (budget.isExceeded()) {
+          overBudget++;
+          break;
+        }
+      }
+    }
+    spenders.entrySet().stream()
+        .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+        .limit(TOP_SPENDERS)
+        .count();
+    expenses.put("overBudget", (double) overBudget);
+    return expenses;
+  }
+
+  @Benchmark
+  public SystemStatistics analyticsService() {
+    return analyticsService.collect(TOP_SPENDERS);
+  }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import oop.finance.model.Budget;
+import oop.finance.model.NotificationRule;
+import oop.finance.model.NotificationRule.Comparison;
+import oop.finance.model.NotificationRule.Metric;
+import oop.finance.model.Transaction;
+import oop.finance.model.User;
+import oop.finance.service.NotificationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Стоимость добавления расхода с проверкой правил уведомлений в зависимости от числа собственных
+ * правил пользователя (правила распределены по категориям и окнам скорости расходов)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class NotificationRuleBenchmark {
+  private static final int CATEGORIES = 20;
+  private static final int[] WINDOWS = {1, 7, 30};
+  private static final double LIMIT = 1e12;
+
+  @Param({"0", "100", "1000"})
+  public int rules;
+
+  private User user;
+  private NotificationService notificationService;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    user = new User("user", "password");
+    notificationService = new NotificationService();
+    List<NotificationRule> custom = new ArrayList<>();
+    for (int i = 0; i < rules; i++) {
+      String category = "category" + i % CATEGORIES;
+      custom.add(
+          i % 2 == 0
+              ? new NotificationRule(
+                  "velocity" + i,
+                  Metric.CATEGORY_VELOCITY,
+                  Comparison.AT_LEAST,
+                  LIMIT + i,
+                  category,
+                  WINDOWS[i % WINDOWS.length],
+                  "%1$s: %2$.2f")
+              : new NotificationRule(
+                  "pacing" + i,
+                  Metric.BUDGET_PACING,
+                  Comparison.ABOVE,
+                  LIMIT + i,
+                  category,
+                  0,
+                  "%1$s: %2$.2f"));
+    }
+    notificationService.setRules(user.getLogin(), custom);
+    for (int i = 0; i < CATEGORIES; i++) {
+      user.getWallet().setBudget(new Budget("category" + i, LIMIT));
+    }
+    user.getWallet().addTransaction(new Transaction(LIMIT, "Зарплата", true));
+    notificationService.pollNotifications(user);
+  }
+
+  @Benchmark
+  public int addExpense() {
+    user.getWallet().addTransaction(new Transaction(1, "category" + next++ % CATEGORIES, false));
+    return notificationService.pollNotifications(user).size();
+  }
+}
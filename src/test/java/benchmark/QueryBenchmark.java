@@ -0,0 +1,91 @@
+package benchmark;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import oop.finance.model.QueryPlan;
+import oop.finance.model.StatisticsQuery;
+import oop.finance.model.Transaction;
+import oop.finance.model.TransactionStore;
+import oop.finance.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Сравнение выполнения запроса статистики с фильтром по категориям: предикат build() по списку
+ * транзакций, проверка StatisticsQuery.matches для каждой строки хранилища и скомпилированный план
+ * QueryPlan. Запрос без типа, поэтому план выполняет полный проход по строкам.
+ *
+ * <p>Запуск: {@code java -cp <test classpath> org.openjdk.jmh.Main QueryBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+  private static final int ROWS = 1_000_000;
+  private static final int ALL_CATEGORIES = 40;
+
+  @Param({"1", "5", "10", "20"})
+  public int categories;
+
+  private User user;
+  private TransactionStore store;
+  private StatisticsQuery query;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    user = new User("benchmark", "password");
+    store = user.getWallet().getTransactionStore();
+    LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+    for (int i = 0; i < ROWS; i++) {
+      store.add(
+          null, start.plusMinutes(i), i % 1000, "bench" + (i * 7 % ALL_CATEGORIES), i % 3 == 0);
+    }
+
+    String[] selected = new String[categories];
+    for (int i = 0; i < categories; i++) {
+      selected[i] = "bench" + i;
+    }
+    query =
+        StatisticsQuery.create()
+            .withCategories(selected)
+            .withPeriod(null, LocalDateTime.of(2100, 1, 1, 0, 0));
+  }
+
+  @Benchmark
+  public double predicate() {
+    return user.getWallet().getTransactions().stream()
+        .filter(query.build())
+        .mapToDouble(Transaction::getAmount)
+        .sum();
+  }
+
+  @Benchmark
+  public double rowMatches() {
+    double total = 0;
+    for (int row = 0; row < store.size(); row++) {
+      if (query.matches(store, row)) {
+        total += store.getAmount(row);
+      }
+    }
+    return total;
+  }
+
+  @Benchmark
+  public double compiled() {
+    QueryPlan plan = query.compile(store);
+    return plan.total();
+  }
+}
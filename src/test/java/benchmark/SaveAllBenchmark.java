@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import oop.finance.model.Transaction;
+import oop.finance.model.User;
+import oop.finance.repository.UserRepository;
+import oop.finance.repository.storage.ShardedUserStorage;
+import oop.finance.repository.storage.SnapshotUserStorage;
+import oop.finance.repository.storage.UserStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Задержка saveAll в зависимости от общего числа пользователей при фиксированном числе измененных.
+ * Режим snapshot - прежнее поведение (полная перезапись data.json), journal - журнал изменений,
+ * sharded - запись только измененных сегментов
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaveAllBenchmark {
+  private static final int TRANSACTIONS_PER_USER = 20;
+  private static final double AMOUNT = 10.0;
+
+  @Param({"1000", "10000", "50000"})
+  public int totalUsers;
+
+  @Param({"10"})
+  public int dirtyUsers;
+
+  @Param({"snapshot", "journal", "sharded"})
+  public String mode;
+
+  private Path directory;
+  private SnapshotUserStorage jsonStorage;
+  private UserRepository repository;
+  private final List<User> users = new ArrayList<>();
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("save-all");
+    String snapshotPath = directory.resolve("data.json").toString();
+    jsonStorage = new SnapshotUserStorage(snapshotPath, Integer.MAX_VALUE);
+    UserStorage storage =
+        "sharded".equals(mode)
+            ? new ShardedUserStorage(directory.resolve("shards").toString(), null)
+            : jsonStorage;
+    repository = new UserRepository(storage);
+
+    for (int i = 0; i < totalUsers; i++) {
+      User user = new User("user" + i, "password");
+      for (int j = 0; j < TRANSACTIONS_PER_USER; j++) {
+        user.getWallet().addTransaction(new Transaction(AMOUNT, "category" + j, j % 2 == 0));
+      }
+      repository.add(user);
+      users.add(user);
+    }
+    repository.saveAll();
+  }
+
+  @Setup(Level.Invocation)
+  public void touchUsers() {
+    for (int i = 0; i < dirtyUsers; i++) {
+      users.get(i).getWallet().addTransaction(new Transaction(AMOUNT, "category", false));
+    }
+  }
+
+  @Benchmark
+  public void saveAll() {
+    if ("snapshot".equals(mode)) {
+      jsonStorage.compact();
+    } else {
+      repository.saveAll();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+}
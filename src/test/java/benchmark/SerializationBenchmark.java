@@ -0,0 +1,201 @@
+package benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import oop.finance.model.Budget;
+import oop.finance.model.Transaction;
+import oop.finance.model.User;
+import oop.finance.model.Wallet;
+import oop.finance.utils.adapter.ModelAdapters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Сравнение сериализации пользователей рефлексией Gson (с прежним адаптером дат через дерево
+ * JsonElement) и потоковыми адаптерами моделей. Модели больше не сериализуются рефлексией, поэтому
+ * для режима reflective пользователи копируются в классы с прежним набором полей. По умолчанию 1000
+ * пользователей по 1000 транзакций, всего 1 млн транзакций
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+  private static final int USERS = 1000;
+  private static final int CATEGORIES = 20;
+  private static final double AMOUNT = 10.0;
+  private static final Type USERS_TYPE = new TypeToken<Map<String, User>>() {}.getType();
+  private static final Type LEGACY_TYPE = new TypeToken<Map<String, LegacyUser>>() {}.getType();
+
+  @Param({"1000"})
+  public int transactionsPerUser;
+
+  @Param({"reflective", "adapters"})
+  public String mode;
+
+  private Gson gson;
+  private Type type;
+  private Map<String, ?> users;
+  private byte[] json;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    boolean adapters = "adapters".equals(mode);
+    gson = adapters ? ModelAdapters.register(new GsonBuilder()).create() : legacy();
+    type = adapters ? USERS_TYPE : LEGACY_TYPE;
+    Map<String, User> generated = new HashMap<>();
+    for (int i = 0; i < USERS; i++) {
+      User user = new User("user" + i, "password");
+      for (int c = 0; c < CATEGORIES; c++) {
+        user.getWallet().setBudget(new Budget("category" + c, AMOUNT * transactionsPerUser));
+      }
+      for (int j = 0; j < transactionsPerUser; j++) {
+        user.getWallet()
+            .addTransaction(new Transaction(AMOUNT, "category" + j % CATEGORIES, j % 2 == 0));
+      }
+      generated.put(user.getLogin(), user);
+    }
+
+    if (adapters) {
+      users = generated;
+    } else {
+      Map<String, LegacyUser> legacyUsers = new HashMap<>();
+      generated.forEach((login, user) -> legacyUsers.put(login, new LegacyUser(user)));
+      users = legacyUsers;
+    }
+    json = gson.toJson(users, type).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public long write() throws IOException {
+    try (CountingWriter writer = new CountingWriter()) {
+      gson.toJson(users, type, writer);
+      return writer.count;
+    }
+  }
+
+  @Benchmark
+  public Map<String, ?> read() throws IOException {
+    try (Reader reader =
+        new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8)) {
+      return gson.fromJson(reader, type);
+    }
+  }
+
+  // Прежняя конфигурация: модели через рефлексию, даты через JsonSerializer/JsonDeserializer
+  private static Gson legacy() {
+    DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    JsonSerializer<LocalDateTime> serializer =
+        (value, type, context) -> new JsonPrimitive(formatter.format(value));
+    JsonDeserializer<LocalDateTime> deserializer =
+        (element, type, context) -> LocalDateTime.parse(element.getAsString(), formatter);
+    return new GsonBuilder()
+        .registerTypeAdapter(LocalDateTime.class, serializer)
+        .registerTypeAdapter(LocalDateTime.class, deserializer)
+        .create();
+  }
+
+  /** Прежняя форма пользователя для рефлексивной сериализации */
+  private static class LegacyUser {
+    private final String login;
+    private final String password;
+    private final LegacyWallet wallet;
+    private final String id;
+    private final LocalDateTime createdAt;
+
+    LegacyUser(User user) {
+      login = user.getLogin();
+      password = user.getPassword();
+      wallet = new LegacyWallet(user.getWallet());
+      id = user.getId();
+      createdAt = user.getCreatedAt();
+    }
+  }
+
+  /** Прежняя форма кошелька: список объектов транзакций */
+  private static class LegacyWallet {
+    private final double balance;
+    private final List<LegacyTransaction> transactions = new ArrayList<>();
+    private final Map<String, Budget> budgets;
+    private final long version;
+    private final String id;
+    private final LocalDateTime createdAt;
+
+    LegacyWallet(Wallet wallet) {
+      balance = wallet.getBalance();
+      wallet.getTransactions().forEach(t -> transactions.add(new LegacyTransaction(t)));
+      budgets = wallet.getBudgets();
+      version = wallet.getVersion();
+      id = wallet.getId();
+      createdAt = wallet.getCreatedAt();
+    }
+  }
+
+  /** Прежняя форма транзакции */
+  private static class LegacyTransaction {
+    private final String category;
+    private final double amount;
+    private final boolean isIncome;
+    private final String id;
+    private final LocalDateTime createdAt;
+
+    LegacyTransaction(Transaction transaction) {
+      category = transaction.getCategory();
+      amount = transaction.getAmount();
+      isIncome = transaction.isIncome();
+      id = transaction.getId();
+      createdAt = transaction.getCreatedAt();
+    }
+  }
+
+  /** Поток, отбрасывающий символы и считающий их количество */
+  private static class CountingWriter extends Writer {
+    private long count;
+
+    @Override
+    public void write(char[] buffer, int offset, int length) {
+      count += length;
+    }
+
+    @Override
+    public void write(String text, int offset, int length) {
+      count += length;
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import oop.finance.model.CategorySketches;
+import oop.finance.model.TransactionStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 95-й перцентиль расходов категории: сортировка сумм категории из истории против эскиза квантилей,
+ * а также стоимость обновления эскизов при добавлении транзакции
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SketchBenchmark {
+  private static final int CATEGORIES = 10;
+  private static final String CATEGORY = "category0";
+  private static final double RANK = 0.95;
+
+  @Param({"1000000"})
+  public int rows;
+
+  private TransactionStore store;
+  private CategorySketches sketches;
+  private final Random random = new Random(1);
+  private int categoryId;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    store = new TransactionStore(rows);
+    sketches = new CategorySketches(store);
+    for (int i = 0; i < rows; i++) {
+      double amount = 1 + random.nextInt(100_000) / 100.0;
+      int row = store.add(i, i, i, amount, "category" + i % CATEGORIES, false);
+      sketches.add(store.getCategoryId(row), amount, false);
+    }
+    categoryId = store.categoryIdOf(CATEGORY);
+  }
+
+  @Benchmark
+  public double sortHistory() {
+    double[] amounts = new double[store.size()];
+    int size = 0;
+    for (int row = 0; row < store.size(); row++) {
+      if (CATEGORY.equals(store.getCategory(row)) && !store.isIncome(row)) {
+        amounts[size++] = store.getAmount(row);
+      }
+    }
+    Arrays.sort(amounts, 0, size);
+    return amounts[(int) Math.ceil(RANK * size) - 1];
+  }
+
+  @Benchmark
+  public double sketchQuantile() {
+    return sketches.quantile(CATEGORY, false, RANK);
+  }
+
+  @Benchmark
+  public CategorySketches sketchUpdate() {
+    sketches.add(categoryId, 1 + random.nextInt(100_000) / 100.0, false);
+    return sketches;
+  }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import oop.finance.model.QueryPlan;
+import oop.finance.model.StatisticsQuery;
+import oop.finance.model.TransactionStore;
+import oop.finance.model.kernel.SumKernel;
+import oop.finance.utils.DateTimeUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Сравнение общей суммы за период по кошельку из 10 млн транзакций: выборка строк через
+ * хронологический индекс, сплошной проход скалярным ядром и векторным ядром (jdk.incubator.vector).
+ * У периода задана одна граница, поэтому итоги по дням не используются.
+ *
+ * <p>Запуск: {@code java --add-modules jdk.incubator.vector -cp <test classpath>
+ * org.openjdk.jmh.Main SumKernelBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xmx4g", "--add-modules=jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class SumKernelBenchmark {
+  private static final int CATEGORIES = 20;
+
+  @Param({"10000000"})
+  public int rows;
+
+  // доля истории (в процентах), попадающая в период
+  @Param({"50", "75", "85", "100"})
+  public int periodShare;
+
+  private TransactionStore store;
+  private StatisticsQuery query;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    store = new TransactionStore(rows);
+    long start = DateTimeUtils.toEpochNanos(LocalDateTime.of(2015, 1, 1, 0, 0));
+    long step = TimeUnit.SECONDS.toNanos(20);
+    for (int i = 0; i < rows; i++) {
+      store.add(i, i, start + i * step, i % 1000 * 0.01, "bench" + i % CATEGORIES, i % 3 == 0);
+    }
+    long to = start + rows * (long) periodShare / 100 * step;
+    query =
+        StatisticsQuery.create().withType(false).withPeriod(null, DateTimeUtils.fromEpochNanos(to));
+  }
+
+  @Benchmark
+  public double timeIndex() {
+    return QueryPlan.compile(query, store, Integer.MAX_VALUE, null).total();
+  }
+
+  @Benchmark
+  public double scalarKernel() {
+    return QueryPlan.compile(query, store, Integer.MAX_VALUE, SumKernel.scalar()).total();
+  }
+
+  @Benchmark
+  public double vectorKernel() {
+    return QueryPlan.compile(query, store, Integer.MAX_VALUE, SumKernel.preferred()).total();
+  }
+}
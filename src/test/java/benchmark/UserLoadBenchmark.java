@@ -0,0 +1,148 @@
+package benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import oop.finance.model.Transaction;
+import oop.finance.model.User;
+import oop.finance.utils.JsonUtils;
+import oop.finance.utils.LocalDateTimeAdapter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Сравнение загрузки data.json целиком (Gson.fromJson в Map) и потоковой загрузки по одному
+ * пользователю. Время - SingleShotTime, пиковая куча - счетчик peakHeapMb.
+ *
+ * <p>Запуск для файла в 1 ГБ: {@code java -Xmx8g -cp <test classpath> org.openjdk.jmh.Main
+ * UserLoadBenchmark -p sizeMb=1024}
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class UserLoadBenchmark {
+  private static final int TRANSACTIONS_PER_USER = 1000;
+  private static final int CATEGORIES = 20;
+  private static final long BYTES_IN_MB = 1024L * 1024;
+
+  /** Сгенерированный файл данных нужного размера */
+  @State(Scope.Benchmark)
+  public static class DataFile {
+    @Param({"64"})
+    public int sizeMb;
+
+    Path path;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+      path = Files.createTempFile("users", ".json");
+      Gson gson =
+          new GsonBuilder()
+              .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+              .create();
+
+      try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+          JsonWriter writer = new JsonWriter(out)) {
+        writer.beginObject();
+        for (int i = 0; Files.size(path) < sizeMb * BYTES_IN_MB; i++) {
+          User user = new User("user" + i, "password");
+          for (int j = 0; j < TRANSACTIONS_PER_USER; j++) {
+            user.getWallet()
+                .addTransaction(new Transaction(j + 0.5, "category" + j % CATEGORIES, j % 2 == 0));
+          }
+          writer.name(user.getLogin());
+          gson.toJson(user, User.class, writer);
+          writer.flush();
+        }
+        writer.endObject();
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  /** Пиковое использование кучи за одну загрузку */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class PeakHeap {
+    public long peakHeapMb;
+
+    @Setup(Level.Invocation)
+    public void reset() {
+      System.gc();
+      heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @TearDown(Level.Invocation)
+    public void record() {
+      long peak = 0;
+      for (MemoryPoolMXBean pool : heapPools()) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+      peakHeapMb = peak / BYTES_IN_MB;
+    }
+
+    private static java.util.List<MemoryPoolMXBean> heapPools() {
+      return ManagementFactory.getMemoryPoolMXBeans().stream()
+          .filter(pool -> pool.getType() == MemoryType.HEAP)
+          .toList();
+    }
+  }
+
+  private final JsonUtils jsonUtils = new JsonUtils();
+  private final Type usersMapType = new TypeToken<Map<String, User>>() {}.getType();
+
+  @Benchmark
+  public Map<String, User> wholeFile(DataFile file, PeakHeap heap) {
+    return jsonUtils.readFromJSON(file.path.toString(), usersMapType);
+  }
+
+  @Benchmark
+  public Map<String, User> streamingIntoMap(DataFile file, PeakHeap heap) {
+    Map<String, User> users = new HashMap<>();
+    jsonUtils.readEntriesFromJSON(file.path.toString(), User.class, users::put, null);
+    return users;
+  }
+
+  @Benchmark
+  public void streamingVisit(DataFile file, PeakHeap heap, Blackhole blackhole) {
+    jsonUtils.readEntriesFromJSON(
+        file.path.toString(),
+        User.class,
+        (login, user) -> blackhole.consume(user.getWallet().getBalance()),
+        null);
+  }
+}